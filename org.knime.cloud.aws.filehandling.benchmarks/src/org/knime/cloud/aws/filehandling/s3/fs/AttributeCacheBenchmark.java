@@ -0,0 +1,137 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+import org.knime.filehandling.core.connections.base.attributes.BaseFileAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups in the attribute cache of the {@link S3FileSystem}, directly and through
+ * {@link Files#readAttributes(java.nio.file.Path, Class, java.nio.file.LinkOption...)}, single-threaded and under
+ * contention.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class AttributeCacheBenchmark {
+
+    @Param({"10000"})
+    int cachedEntries;
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    private S3Path m_cached;
+
+    private S3Path m_uncached;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        m_server = new LocalS3Server();
+        m_fs = new S3FileSystem(m_server.createConnectionConfig("/bucket/"), TimeUnit.HOURS.toMillis(1));
+
+        final var lastModified = FileTime.fromMillis(System.currentTimeMillis());
+        for (var i = 0; i < cachedEntries; i++) {
+            final var path = m_fs.getPath(String.format("/bucket/dir/file-%08d.csv", i));
+            m_fs.addToAttributeCache(path,
+                new BaseFileAttributes(true, path, lastModified, lastModified, lastModified, 1024, false, false, null));
+        }
+        m_cached = m_fs.getPath(String.format("/bucket/dir/file-%08d.csv", cachedEntries / 2));
+        m_uncached = m_fs.getPath("/bucket/dir/missing.csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        m_fs.close();
+        m_server.close();
+    }
+
+    @Benchmark
+    public Optional<BaseFileAttributes> cacheHit() {
+        return m_fs.getCachedAttributes(m_cached);
+    }
+
+    @Benchmark
+    public Optional<BaseFileAttributes> cacheMiss() {
+        return m_fs.getCachedAttributes(m_uncached);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<BaseFileAttributes> cacheHitContended() {
+        return m_fs.getCachedAttributes(m_cached);
+    }
+
+    @Benchmark
+    public BasicFileAttributes readAttributesCached() throws IOException {
+        return Files.readAttributes(m_cached, BasicFileAttributes.class);
+    }
+}
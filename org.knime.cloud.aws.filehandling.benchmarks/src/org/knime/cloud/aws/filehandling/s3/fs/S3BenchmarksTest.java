@@ -0,0 +1,91 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this fragment and writes the results as JSON, so they can be tracked across builds.
+ *
+ * The benchmarks run inside the test runtime (JMH forks are not possible within OSGi), hence the results of a run
+ * should only be compared with runs on the same machine. The benchmarks to run are selected with the regular
+ * expression in the system property {@value #INCLUDE_PROPERTY}, and the result file is given by the system property
+ * {@value #RESULT_FILE_PROPERTY}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3BenchmarksTest {
+
+    private static final String INCLUDE_PROPERTY = "knime.benchmarks.include";
+
+    private static final String RESULT_FILE_PROPERTY = "knime.benchmarks.resultFile";
+
+    @Test
+    public void runBenchmarks() throws IOException, RunnerException {
+        final var resultFile = Path.of(System.getProperty(RESULT_FILE_PROPERTY, "target/jmh-results.json"));
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+
+        final var options = new OptionsBuilder() //
+            .include(System.getProperty(INCLUDE_PROPERTY, ".*")) //
+            .forks(0) //
+            .shouldFailOnError(true) //
+            .resultFormat(ResultFormatType.JSON) //
+            .result(resultFile.toString()) //
+            .build();
+
+        assertFalse(new Runner(options).run().isEmpty(), "No benchmark matched the include pattern");
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+import org.knime.core.node.NodeLogger;
+import org.knime.filehandling.core.connections.FSFileSystem;
+import org.knime.filehandling.core.connections.FSFiles;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import software.amazon.awssdk.protocols.jsoncore.JsonNode;
+
+/**
+ * End-to-end transfer benchmarks for the S3 file system, gated against a stored baseline.
+ *
+ * Each scenario runs through a fresh {@link S3FSConnection} against a {@link LocalS3Server} that delays every request
+ * by a simulated round trip time and only counts uploaded bytes, so transfers of many gigabytes neither need network
+ * access nor memory. For every scenario the throughput in MB/s and requests/s, the 99th percentile of the S3 request
+ * latencies (taken from the {@code org.knime.cloud.aws.S3Request} flight recorder events) and the peak heap usage are
+ * written to the result file. If a baseline file exists, the test fails when a scenario is slower, has a higher p99
+ * latency or needs more memory than the baseline by more than the configured tolerance.
+ *
+ * The numbers depend on the machine, hence the baseline should be recorded on the machine that runs the gate, by
+ * setting the system property {@value #UPDATE_BASELINE_PROPERTY}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3MacroBenchmarksTest {
+
+    private static final NodeLogger LOG = NodeLogger.getLogger(S3MacroBenchmarksTest.class);
+
+    private static final String PROPERTY_PREFIX = "knime.benchmarks.macro.";
+
+    private static final String INCLUDE_PROPERTY = PROPERTY_PREFIX + "include";
+
+    private static final String RTT_PROPERTY = PROPERTY_PREFIX + "rttMillis";
+
+    private static final String THREADS_PROPERTY = PROPERTY_PREFIX + "threads";
+
+    private static final String TRANSFER_SIZES_PROPERTY = PROPERTY_PREFIX + "transferSizes";
+
+    private static final String SMALL_FILES_PROPERTY = PROPERTY_PREFIX + "smallFiles";
+
+    private static final String LIST_KEYS_PROPERTY = PROPERTY_PREFIX + "listKeys";
+
+    private static final String DELETE_FILES_PROPERTY = PROPERTY_PREFIX + "deleteFiles";
+
+    private static final String RESULT_FILE_PROPERTY = PROPERTY_PREFIX + "resultFile";
+
+    private static final String BASELINE_PROPERTY = PROPERTY_PREFIX + "baseline";
+
+    private static final String TOLERANCE_PROPERTY = PROPERTY_PREFIX + "tolerance";
+
+    private static final String UPDATE_BASELINE_PROPERTY = PROPERTY_PREFIX + "updateBaseline";
+
+    private static final String BUCKET = "bucket";
+
+    private static final String REQUEST_EVENT = "org.knime.cloud.aws.S3Request";
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final int SMALL_FILE_SIZE = 1024;
+
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    private static final double MB = 1024d * 1024d;
+
+    @Test
+    public void runMacroBenchmarks() throws Exception {
+        final var include = System.getProperty(INCLUDE_PROPERTY, ".*");
+        final var scenarios = createScenarios().stream() //
+            .filter(s -> s.m_name.matches(include)) //
+            .collect(Collectors.toList());
+        assertFalse(scenarios.isEmpty(), "No scenario matched the include pattern");
+
+        final List<Result> results = new ArrayList<>();
+        try (final var server = new LocalS3Server()) {
+            server.setDiscardContent(true);
+            server.setLatency(Duration.ofMillis(Long.getLong(RTT_PROPERTY, 10)));
+            server.createBucket(BUCKET);
+            for (final var scenario : scenarios) {
+                results.add(run(scenario, server));
+            }
+        }
+
+        final var resultFile = Path.of(System.getProperty(RESULT_FILE_PROPERTY, "target/macro-benchmark-results.json"));
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        Files.writeString(resultFile, toJson(results));
+
+        final var baselineFile = Path.of(System.getProperty(BASELINE_PROPERTY, "baseline/macro-benchmarks.json"));
+        if (Boolean.getBoolean(UPDATE_BASELINE_PROPERTY)) {
+            Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+            Files.copy(resultFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+            LOG.info("Updated macro benchmark baseline " + baselineFile);
+        } else if (Files.exists(baselineFile)) {
+            final var regressions = compareWithBaseline(results, baselineFile,
+                Double.parseDouble(System.getProperty(TOLERANCE_PROPERTY, "0.15")));
+            assertTrue(regressions.isEmpty(), "Regressions against " + baselineFile + ":\n"
+                + String.join("\n", regressions));
+        } else {
+            LOG.warn("No macro benchmark baseline found at " + baselineFile + ", skipping the regression check.");
+        }
+    }
+
+    private static List<Scenario> createScenarios() {
+        final List<Scenario> scenarios = new ArrayList<>();
+        final var sizes = Arrays.stream(System.getProperty(TRANSFER_SIZES_PROPERTY, "1g,10g,100g").split(",")) //
+            .map(String::trim) //
+            .filter(s -> !s.isEmpty()) //
+            .collect(Collectors.toList());
+
+        for (final var size : sizes) {
+            final var bytes = parseSize(size);
+            scenarios.add(new Scenario("upload-" + size, (fs, server) -> upload(fs, bytes)));
+        }
+        for (final var size : sizes) {
+            final var bytes = parseSize(size);
+            scenarios.add(new Scenario("download-" + size, (fs, server) -> {
+                server.putObject(BUCKET, "download.bin", bytes);
+                return () -> download(fs);
+            }));
+        }
+
+        final var smallFiles = Integer.getInteger(SMALL_FILES_PROPERTY, 100_000);
+        final var threads = Integer.getInteger(THREADS_PROPERTY, 16);
+        scenarios.add(new Scenario("small-files", (fs, server) -> () -> writeSmallFiles(fs, smallFiles, threads)));
+
+        final var listKeys = Integer.getInteger(LIST_KEYS_PROPERTY, 1_000_000);
+        scenarios.add(new Scenario("list", (fs, server) -> {
+            for (var i = 0; i < listKeys; i++) {
+                server.putObject(BUCKET, String.format("list/file-%08d", i), 0);
+            }
+            return () -> list(fs, listKeys);
+        }));
+
+        final var deleteFiles = Integer.getInteger(DELETE_FILES_PROPERTY, 10_000);
+        scenarios.add(new Scenario("delete-recursive", (fs, server) -> {
+            for (var i = 0; i < deleteFiles; i++) {
+                server.putObject(BUCKET,
+                    String.format("delete/dir-%04d/file-%04d", i / FILES_PER_DIRECTORY, i % FILES_PER_DIRECTORY), 0);
+            }
+            return () -> {
+                FSFiles.deleteRecursively(fs.getPath("/" + BUCKET + "/delete/"));
+                return 0;
+            };
+        }));
+        return scenarios;
+    }
+
+    private static long parseSize(final String size) {
+        final var unit = Character.toLowerCase(size.charAt(size.length() - 1));
+        final var shift = unit == 'g' ? 30 : unit == 'm' ? 20 : unit == 'k' ? 10 : 0;
+        final var number = shift == 0 ? size : size.substring(0, size.length() - 1);
+        return Long.parseLong(number) << shift;
+    }
+
+    private static Workload upload(final FSFileSystem<?> fs, final long size) {
+        final var chunk = new byte[CHUNK_SIZE];
+        new Random(0).nextBytes(chunk);
+        return () -> {
+            try (final var out = Files.newOutputStream(fs.getPath("/" + BUCKET + "/upload.bin"))) {
+                for (long written = 0; written < size; written += CHUNK_SIZE) {
+                    out.write(chunk, 0, (int)Math.min(CHUNK_SIZE, size - written));
+                }
+            }
+            return size;
+        };
+    }
+
+    private static long download(final FSFileSystem<?> fs) throws IOException {
+        final var buffer = new byte[CHUNK_SIZE];
+        long total = 0;
+        try (InputStream in = Files.newInputStream(fs.getPath("/" + BUCKET + "/download.bin"))) {
+            for (var read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    private static long writeSmallFiles(final FSFileSystem<?> fs, final int count, final int threads) throws Exception {
+        final var content = new byte[SMALL_FILE_SIZE];
+        new Random(0).nextBytes(content);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>(count);
+            for (var i = 0; i < count; i++) {
+                final var path = fs.getPath(String.format("/%s/small/dir-%04d/file-%04d", BUCKET,
+                    i / FILES_PER_DIRECTORY, i % FILES_PER_DIRECTORY));
+                futures.add(executor.submit(() -> Files.write(path, content)));
+            }
+            for (final var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return (long)count * SMALL_FILE_SIZE;
+    }
+
+    private static long list(final FSFileSystem<?> fs, final int expected) throws IOException {
+        var count = 0;
+        try (final var stream = Files.newDirectoryStream(fs.getPath("/" + BUCKET + "/list/"))) {
+            for (@SuppressWarnings("unused") final var path : stream) {
+                count++;
+            }
+        }
+        assertTrue(count == expected, "Listed " + count + " instead of " + expected + " files");
+        return 0;
+    }
+
+    private static Result run(final Scenario scenario, final LocalS3Server server) throws Exception {
+        final var config = server.createConnectionConfig("/" + BUCKET + "/");
+        try (final var connection = new S3FSConnection(config); final var recording = new Recording()) {
+            final var fs = connection.getFileSystem();
+            final var workload = scenario.m_setup.prepare(fs, server);
+            recording.enable(REQUEST_EVENT).withoutThreshold();
+
+            final var heapPools = ManagementFactory.getMemoryPoolMXBeans().stream() //
+                .filter(p -> p.getType() == MemoryType.HEAP) //
+                .collect(Collectors.toList());
+            System.gc(); // NOSONAR start from a comparable heap
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            server.resetRequestCounts();
+
+            recording.start();
+            final var start = System.nanoTime();
+            final var bytes = workload.run();
+            final var seconds = (System.nanoTime() - start) / 1e9;
+            recording.stop();
+
+            final var requests = server.getRequestCounts().values().stream().mapToLong(Long::longValue).sum();
+            final var peakHeap = heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+            final var result = new Result(scenario.m_name, bytes / MB / seconds, requests / seconds,
+                p99Millis(recording), peakHeap / MB);
+            LOG.info(String.format(Locale.US, "%s: %.1f MB/s, %.1f requests/s, p99 %.1f ms, peak heap %.0f MB",
+                result.m_name, result.m_mbPerSecond, result.m_requestsPerSecond, result.m_p99Millis,
+                result.m_peakHeapMb));
+            return result;
+        }
+    }
+
+    private static double p99Millis(final Recording recording) throws IOException {
+        final var file = Files.createTempFile("s3-macro-benchmark", ".jfr");
+        try {
+            recording.dump(file);
+            final var durations = RecordingFile.readAllEvents(file).stream() //
+                .filter(e -> e.getEventType().getName().equals(REQUEST_EVENT)) //
+                .mapToLong(e -> e.getDuration().toNanos()) //
+                .sorted() //
+                .toArray();
+            if (durations.length == 0) {
+                return 0;
+            }
+            return durations[(int)Math.ceil(durations.length * 0.99) - 1] / 1e6;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<String> compareWithBaseline(final List<Result> results, final Path baselineFile,
+        final double tolerance) throws IOException {
+        final Map<String, JsonNode> baseline;
+        try (final var in = Files.newInputStream(baselineFile)) {
+            baseline = JsonNode.parser().parse(in).asObject();
+        }
+
+        final List<String> regressions = new ArrayList<>();
+        for (final var result : results) {
+            final var expected = baseline.get(result.m_name);
+            if (expected == null) {
+                LOG.warn("No baseline for macro benchmark " + result.m_name);
+                continue;
+            }
+            checkLower(regressions, result.m_name, "MB/s", result.m_mbPerSecond, expected, tolerance);
+            checkLower(regressions, result.m_name, "requests/s", result.m_requestsPerSecond, expected, tolerance);
+            checkHigher(regressions, result.m_name, "p99 ms", result.m_p99Millis, expected, tolerance);
+            checkHigher(regressions, result.m_name, "peak heap MB", result.m_peakHeapMb, expected, tolerance);
+        }
+        return regressions;
+    }
+
+    private static void checkLower(final List<String> regressions, final String scenario, final String metric,
+        final double actual, final JsonNode expected, final double tolerance) {
+        final var limit = baselineValue(expected, metric) * (1 - tolerance);
+        if (actual < limit) {
+            regressions.add(String.format(Locale.US, "%s: %s dropped to %.2f (baseline %.2f)", scenario, metric,
+                actual, baselineValue(expected, metric)));
+        }
+    }
+
+    private static void checkHigher(final List<String> regressions, final String scenario, final String metric,
+        final double actual, final JsonNode expected, final double tolerance) {
+        final var limit = baselineValue(expected, metric) * (1 + tolerance);
+        if (actual > limit) {
+            regressions.add(String.format(Locale.US, "%s: %s increased to %.2f (baseline %.2f)", scenario, metric,
+                actual, baselineValue(expected, metric)));
+        }
+    }
+
+    private static double baselineValue(final JsonNode expected, final String metric) {
+        return expected.field(metric).map(n -> Double.parseDouble(n.asNumber())).orElse(Double.NaN);
+    }
+
+    private static String toJson(final List<Result> results) {
+        return results.stream() //
+            .map(r -> String.format(Locale.US,
+                "  \"%s\": {\"MB/s\": %.3f, \"requests/s\": %.3f, \"p99 ms\": %.3f, \"peak heap MB\": %.1f}", r.m_name,
+                r.m_mbPerSecond, r.m_requestsPerSecond, r.m_p99Millis, r.m_peakHeapMb)) //
+            .collect(Collectors.joining(",\n", "{\n", "\n}\n"));
+    }
+
+    /**
+     * Prepares the state a workload needs, e.g. the objects to download, outside the measured time.
+     */
+    @FunctionalInterface
+    private interface ScenarioSetup {
+        Workload prepare(FSFileSystem<?> fs, LocalS3Server server) throws Exception;
+    }
+
+    /**
+     * The measured part of a scenario.
+     */
+    @FunctionalInterface
+    private interface Workload {
+        /** @return the number of transferred content bytes. */
+        long run() throws Exception;
+    }
+
+    private static final class Scenario {
+
+        private final String m_name;
+
+        private final ScenarioSetup m_setup;
+
+        Scenario(final String name, final ScenarioSetup setup) {
+            m_name = name;
+            m_setup = setup;
+        }
+    }
+
+    private static final class Result {
+
+        private final String m_name;
+
+        private final double m_mbPerSecond;
+
+        private final double m_requestsPerSecond;
+
+        private final double m_p99Millis;
+
+        private final double m_peakHeapMb;
+
+        Result(final String name, final double mbPerSecond, final double requestsPerSecond, final double p99Millis,
+            final double peakHeapMb) {
+            m_name = name;
+            m_mbPerSecond = mbPerSecond;
+            m_requestsPerSecond = requestsPerSecond;
+            m_p99Millis = p99Millis;
+            m_peakHeapMb = peakHeapMb;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction and manipulation of {@link S3Path}s, which happens for every listed or accessed file.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class S3PathBenchmark {
+
+    private static final String FILE = "/bucket/data/2024/01/part-00000.csv";
+
+    private static final String[] FILE_COMPONENTS = {"data", "2024", "01", "part-00000.csv"};
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    private S3Path m_dir;
+
+    private S3Path m_file;
+
+    private S3Path m_unnormalized;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        m_server = new LocalS3Server();
+        m_fs = new S3FileSystem(m_server.createConnectionConfig("/bucket/"), 0);
+        m_dir = m_fs.getPath("/bucket/data/");
+        m_file = m_fs.getPath(FILE);
+        m_unnormalized = m_fs.getPath("/bucket/data/./2024/../2024/01/part-00000.csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        m_fs.close();
+        m_server.close();
+    }
+
+    @Benchmark
+    public S3Path constructFromString() {
+        return new S3Path(m_fs, FILE, new String[0]);
+    }
+
+    @Benchmark
+    public S3Path constructFromComponents() {
+        return new S3Path(m_fs, "/bucket", FILE_COMPONENTS);
+    }
+
+    @Benchmark
+    public S3Path constructFromBucketAndKey() {
+        return new S3Path(m_fs, "bucket", "data/2024/01/part-00000.csv");
+    }
+
+    @Benchmark
+    public Path relativize() {
+        return m_dir.relativize(m_file);
+    }
+
+    @Benchmark
+    public Path normalize() {
+        return m_unnormalized.normalize();
+    }
+
+    @Benchmark
+    public Path getParent() {
+        return m_file.getParent();
+    }
+
+    @Benchmark
+    public Path resolve() {
+        return m_dir.resolve("2024/01/part-00000.csv");
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.cloud.aws.filehandling.s3.MultiRegionS3Client;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Measures directory listings through the paged iterator of {@link S3PathIteratorFactory}. The
+ * {@link #processPages(Blackhole)} benchmark replays prepared ListObjectsV2 pages to isolate the client-side
+ * processing (path creation and attribute caching), while {@link #listLocal(Blackhole)} lists the same directory
+ * from a {@link LocalS3Server}, which adds the HTTP round trips and response parsing.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class S3PathIteratorBenchmark {
+
+    private static final String BUCKET = "bucket";
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Filter<? super Path> ALL_FILTER = p -> true;
+
+    @Param({"10000"})
+    int entries;
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    private S3Path m_localDir;
+
+    private S3FileSystem m_replayingFs;
+
+    private S3Path m_replayedDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        m_server = new LocalS3Server();
+        for (var i = 0; i < entries; i++) {
+            m_server.putObject(BUCKET, key(i), new byte[0]);
+        }
+        m_fs = new S3FileSystem(m_server.createConnectionConfig("/" + BUCKET + "/"), 60_000);
+        m_localDir = m_fs.getPath("/" + BUCKET + "/dir/");
+
+        final List<ListObjectsV2Response> pages = createPages();
+        final var config = m_server.createConnectionConfig("/" + BUCKET + "/");
+        final var replayingClient = new MultiRegionS3Client(config) {
+            @Override
+            public ListObjectsV2Response listObjects(final ListObjectsV2Request request) {
+                final var token = request.continuationToken();
+                return pages.get(token == null ? 0 : Integer.parseInt(token));
+            }
+        };
+        m_replayingFs = new S3FileSystem(config, 60_000, replayingClient);
+        m_replayedDir = m_replayingFs.getPath("/" + BUCKET + "/dir/");
+    }
+
+    private List<ListObjectsV2Response> createPages() {
+        final var lastModified = Instant.now();
+        final List<ListObjectsV2Response> pages = new ArrayList<>();
+        for (var start = 0; start < entries; start += PAGE_SIZE) {
+            final List<S3Object> contents = new ArrayList<>();
+            for (var i = start; i < Math.min(entries, start + PAGE_SIZE); i++) {
+                contents.add(S3Object.builder().key(key(i)).size(1024L).lastModified(lastModified).build());
+            }
+            final var nextPage = start + PAGE_SIZE;
+            pages.add(ListObjectsV2Response.builder() //
+                .contents(contents) //
+                .nextContinuationToken(nextPage < entries ? Integer.toString(pages.size() + 1) : null) //
+                .build());
+        }
+        return pages;
+    }
+
+    private static String key(final int i) {
+        return String.format("dir/file-%08d.csv", i);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        m_replayingFs.close();
+        m_fs.close();
+        m_server.close();
+    }
+
+    @Benchmark
+    public void processPages(final Blackhole blackhole) throws IOException {
+        S3PathIteratorFactory.create(m_replayedDir, ALL_FILTER).forEachRemaining(blackhole::consume);
+    }
+
+    @Benchmark
+    public void listLocal(final Blackhole blackhole) throws IOException {
+        S3PathIteratorFactory.create(m_localDir, ALL_FILTER).forEachRemaining(blackhole::consume);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the AIMD behavior of the {@link AdaptiveRateLimiter}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class AdaptiveRateLimiterTest {
+
+    private static final String PREFIX = "bucket/dir/";
+
+    private long m_now;
+
+    private AdaptiveRateLimiter m_limiter;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_now = 0;
+        m_limiter = new AdaptiveRateLimiter(() -> m_now);
+    }
+
+    private void sendRequests(final int count, final long durationMillis) {
+        for (var i = 0; i < count; i++) {
+            m_limiter.reserve(PREFIX);
+            m_now += TimeUnit.MILLISECONDS.toNanos(durationMillis) / count;
+        }
+    }
+
+    @Test
+    public void test_prefix_key() {
+        assertEquals("bucket/a/b/", AdaptiveRateLimiter.toPrefixKey("bucket", "a/b/file.csv"));
+        assertEquals("bucket/", AdaptiveRateLimiter.toPrefixKey("bucket", "file.csv"));
+        assertEquals("bucket/", AdaptiveRateLimiter.toPrefixKey("bucket", null));
+        assertEquals(null, AdaptiveRateLimiter.toPrefixKey(null, null));
+    }
+
+    @Test
+    public void test_unthrottled_prefix_is_not_paced() {
+        for (var i = 0; i < 1000; i++) {
+            assertEquals(0, m_limiter.reserve(PREFIX));
+        }
+        assertEquals(Double.POSITIVE_INFINITY, m_limiter.getRateLimit(PREFIX));
+        assertTrue(m_limiter.getRateLimits().isEmpty());
+        assertEquals(0, m_limiter.getTrackedPrefixCount());
+    }
+
+    /**
+     * Throttles the prefix for the first time, which starts measuring its rate, and sends 100 requests per second.
+     */
+    private void throttleAt100RequestsPerSecond() {
+        m_limiter.onThrottled(PREFIX);
+        assertEquals(Double.POSITIVE_INFINITY, m_limiter.getRateLimit(PREFIX));
+        sendRequests(100, 1000);
+        m_limiter.reserve(PREFIX);
+    }
+
+    @Test
+    public void test_throttling_halves_observed_rate_once_per_burst() {
+        throttleAt100RequestsPerSecond();
+
+        m_limiter.onThrottled(PREFIX);
+        m_limiter.onThrottled(PREFIX); // same burst, must not decrease again
+        assertEquals(50.0, m_limiter.getRateLimit(PREFIX), 0.001);
+        assertEquals(50.0, m_limiter.getRateLimits().get(PREFIX), 0.001);
+
+        // requests are now spaced by 1/50 s
+        assertEquals(0, m_limiter.reserve(PREFIX));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), m_limiter.reserve(PREFIX));
+
+        m_now += TimeUnit.SECONDS.toNanos(2);
+        m_limiter.onThrottled(PREFIX);
+        assertEquals(25.0, m_limiter.getRateLimit(PREFIX), 0.001);
+    }
+
+    @Test
+    public void test_limit_increases_additively_and_is_released() {
+        throttleAt100RequestsPerSecond();
+        m_limiter.onThrottled(PREFIX);
+
+        m_now += TimeUnit.SECONDS.toNanos(1);
+        m_limiter.reserve(PREFIX);
+        assertEquals(60.0, m_limiter.getRateLimit(PREFIX), 0.001);
+
+        m_now += TimeUnit.SECONDS.toNanos(60);
+        m_limiter.reserve(PREFIX);
+        assertEquals(Double.POSITIVE_INFINITY, m_limiter.getRateLimit(PREFIX));
+        assertEquals(0, m_limiter.getTrackedPrefixCount());
+    }
+
+    @Test
+    public void test_single_throttle_is_forgotten() {
+        m_limiter.onThrottled(PREFIX);
+        assertEquals(1, m_limiter.getTrackedPrefixCount());
+
+        m_now += TimeUnit.SECONDS.toNanos(60);
+        assertEquals(0, m_limiter.reserve(PREFIX));
+        assertEquals(0, m_limiter.getTrackedPrefixCount());
+    }
+
+    @Test
+    public void test_unthrottled_prefixes_do_not_evict_throttled_prefix() {
+        throttleAt100RequestsPerSecond();
+        m_limiter.onThrottled(PREFIX);
+
+        for (var i = 0; i < 10_000; i++) {
+            assertEquals(0, m_limiter.reserve("bucket/other-" + i + "/"));
+        }
+        assertEquals(1, m_limiter.getTrackedPrefixCount());
+        assertEquals(50.0, m_limiter.getRateLimit(PREFIX), 0.001);
+    }
+
+    @Test
+    public void test_rate_never_drops_below_minimum() {
+        for (var i = 0; i < 20; i++) {
+            m_limiter.onThrottled(PREFIX);
+            m_now += TimeUnit.SECONDS.toNanos(2);
+        }
+        assertTrue(m_limiter.getRateLimit(PREFIX) >= AdaptiveRateLimiter.MIN_RATE);
+    }
+}
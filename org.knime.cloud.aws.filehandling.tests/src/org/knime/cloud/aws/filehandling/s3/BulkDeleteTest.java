@@ -0,0 +1,120 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.fs.S3FileSystem;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests the batched deletes of the {@link MultiRegionS3Client} and {@link S3FileSystem#deleteRecursively}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class BulkDeleteTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    private static final int OBJECT_COUNT = 2500;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    private List<String> m_keys;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_server.putObject(BUCKET, "keep.txt", new byte[1]);
+        m_server.putObject(BUCKET, "dir/", new byte[0]);
+        m_keys = new ArrayList<>();
+        for (var i = 0; i < OBJECT_COUNT; i++) {
+            final var key = String.format("dir/sub-%d/file-%04d", i % 7, i);
+            m_server.putObject(BUCKET, key, new byte[1]);
+            m_keys.add(key);
+        }
+
+        m_fs = m_s3.getFileSystem();
+        m_server.resetRequestCounts();
+    }
+
+    @Test
+    public void test_delete_objects_in_batches() {
+        assertTrue(m_fs.getClient().deleteObjects(BUCKET, m_keys).isEmpty());
+
+        assertEquals(List.of("dir/", "keep.txt"), m_server.listKeys(BUCKET));
+        assertEquals(3, m_server.getRequestCount("DeleteObjects"));
+    }
+
+    @Test
+    public void test_delete_recursively() throws IOException {
+        final var dir = m_fs.getPath("/" + BUCKET + "/dir");
+        assertTrue(Files.isDirectory(dir));
+
+        m_fs.deleteRecursively(dir);
+
+        assertEquals(List.of("keep.txt"), m_server.listKeys(BUCKET));
+        assertEquals(3, m_server.getRequestCount("DeleteObjects"));
+        assertEquals(0, m_server.getRequestCount("DeleteObject"));
+        assertFalse(Files.exists(dir));
+    }
+}
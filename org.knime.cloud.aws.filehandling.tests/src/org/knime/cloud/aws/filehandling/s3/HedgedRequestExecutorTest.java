@@ -0,0 +1,251 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+
+/**
+ * Tests the {@link HedgedRequestExecutor}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class HedgedRequestExecutorTest {
+
+    /** Hedging starts after this many observed latencies. */
+    private static final int WARM_UP_REQUESTS = 32;
+
+    private static final long SLOW_MILLIS = 500;
+
+    private ExecutorService m_executor;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void afterTestCase() {
+        m_executor.shutdownNow();
+    }
+
+    private HedgedRequestExecutor warmedUp(final double budget) {
+        final var hedging = new HedgedRequestExecutor(m_executor, 0.9, budget);
+        for (var i = 0; i < WARM_UP_REQUESTS; i++) {
+            hedging.execute(() -> "fast");
+        }
+        return hedging;
+    }
+
+    /**
+     * @return a request whose first call (the primary request) is slow and returns the given result, and whose later
+     *         calls (the hedge) return the given hedge result immediately.
+     */
+    private static Supplier<String> slowPrimary(final String primaryResult, final Supplier<String> hedgeResult) {
+        final var calls = new AtomicInteger();
+        return () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(SLOW_MILLIS);
+                return primaryResult;
+            }
+            return hedgeResult.get();
+        };
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) { // NOSONAR test helper
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void test_requests_are_not_hedged_before_warm_up() {
+        final var hedging = new HedgedRequestExecutor(m_executor, 0.9, 1);
+        assertEquals("primary", hedging.execute(slowPrimary("primary", () -> "hedge")));
+        assertEquals(0, hedging.getHedgeCount());
+    }
+
+    @Test
+    public void test_slow_request_is_hedged() {
+        final var hedging = warmedUp(1);
+        final var discarded = new CopyOnWriteArrayList<String>();
+
+        final var start = System.nanoTime();
+        assertEquals("hedge", hedging.execute(slowPrimary("primary", () -> "hedge"), discarded::add));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS));
+        assertEquals(1, hedging.getHedgeCount());
+        assertEquals(WARM_UP_REQUESTS + 1, hedging.getRequestCount());
+
+        // the response of the slower request is released once it arrives
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (discarded.isEmpty() && System.nanoTime() < deadline) {
+            sleep(10);
+        }
+        assertEquals(List.of("primary"), discarded);
+    }
+
+    @Test
+    public void test_hedges_are_capped_by_budget() {
+        // no budget, only the burst of 10 hedges is allowed
+        final var hedging = warmedUp(0);
+        for (var i = 0; i < 15; i++) {
+            hedging.execute(slowPrimary("primary", () -> "hedge"));
+        }
+
+        assertEquals(10, hedging.getHedgeCount());
+        assertEquals(WARM_UP_REQUESTS + 15, hedging.getRequestCount());
+    }
+
+    @Test
+    public void test_failed_primary_is_replaced_by_hedge() {
+        final var hedging = warmedUp(1);
+        final var calls = new AtomicInteger();
+        final Supplier<String> request = () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(SLOW_MILLIS);
+                throw new IllegalStateException("primary failed");
+            }
+            return "hedge";
+        };
+
+        assertEquals("hedge", hedging.execute(request));
+    }
+
+    @Test
+    public void test_exception_is_propagated() {
+        final var hedging = warmedUp(1);
+        final var failure = new IllegalStateException("failed");
+
+        // fails before the deadline
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> hedging.execute(() -> {
+            throw failure;
+        })));
+
+        // fails after the deadline, as does the hedge
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> hedging.execute(() -> {
+            sleep(50);
+            throw failure;
+        })));
+        assertEquals(1, hedging.getHedgeCount());
+    }
+
+    private static void awaitDiscarded(final List<String> discarded, final int count) {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (discarded.size() < count && System.nanoTime() < deadline) {
+            sleep(10);
+        }
+    }
+
+    @Test
+    public void test_interrupted_caller_discards_primary_response() {
+        final var hedging = warmedUp(1);
+        final var discarded = new CopyOnWriteArrayList<String>();
+
+        Thread.currentThread().interrupt();
+        assertThrows(AbortedException.class, () -> hedging.execute(() -> {
+            sleep(50);
+            return "primary";
+        }, discarded::add));
+        assertTrue(Thread.interrupted());
+
+        awaitDiscarded(discarded, 1);
+        assertEquals(List.of("primary"), discarded);
+    }
+
+    @Test
+    public void test_interrupted_caller_discards_hedged_responses() throws InterruptedException {
+        final var hedging = warmedUp(1);
+        final var discarded = new CopyOnWriteArrayList<String>();
+        final var calls = new AtomicInteger();
+        final Supplier<String> request = () -> {
+            final var call = calls.incrementAndGet();
+            sleep(SLOW_MILLIS);
+            return "response " + call;
+        };
+
+        final var failure = new AtomicReference<Throwable>();
+        final var caller = new Thread(() -> {
+            try {
+                hedging.execute(request, discarded::add);
+            } catch (Throwable t) { // NOSONAR checked below
+                failure.set(t);
+            }
+        });
+        caller.start();
+        // wait until the hedge has been started
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (calls.get() < 2 && System.nanoTime() < deadline) {
+            sleep(1);
+        }
+        caller.interrupt();
+        caller.join();
+
+        assertTrue(failure.get() instanceof AbortedException);
+        awaitDiscarded(discarded, 2);
+        assertEquals(Set.of("response 1", "response 2"), Set.copyOf(discarded));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Tests that {@link MultiRegionS3Client} probes the 'list-buckets' permission lazily and only once.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class ListBucketPermissionTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private MultiRegionS3Client m_client;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_client = m_s3.getFileSystem().getClient();
+    }
+
+    @Test
+    public void test_permission_is_probed_on_first_use_only() {
+        assertEquals(0, m_server.getRequestCount("ListBuckets"));
+
+        assertTrue(m_client.hasListBucketPermission());
+        assertTrue(m_client.hasListBucketPermission());
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+
+        // the bucket lookup lists the buckets, but does not probe again
+        assertNotNull(m_client.getBucket(BUCKET));
+        assertEquals(2, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_missing_permission_is_remembered() {
+        m_server.injectErrors("ListBuckets", 1, 403, "AccessDenied");
+
+        assertFalse(m_client.hasListBucketPermission());
+        assertFalse(m_client.hasListBucketPermission());
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+
+        // without the permission, the bucket is looked up by its region
+        assertNotNull(m_client.getBucket(BUCKET));
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_failed_probe_is_repeated() {
+        m_server.injectErrors("ListBuckets", 1, 400, "InvalidArgument");
+
+        assertThrows(S3Exception.class, m_client::hasListBucketPermission);
+        assertTrue(m_client.hasListBucketPermission());
+        assertEquals(2, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_connection_test_records_permission() {
+        m_client.testConnection();
+
+        assertTrue(m_client.hasListBucketPermission());
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_warm_up_probes_in_background() throws InterruptedException, ExecutionException, TimeoutException {
+        final CompletableFuture<Void> warmUp = m_client.warmUpAsync(BUCKET);
+        warmUp.get(10, TimeUnit.SECONDS);
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+
+        assertTrue(m_client.hasListBucketPermission());
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_failed_warm_up_probe_is_repeated_on_first_use()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        m_server.injectErrors("ListBuckets", 1, 400, "InvalidArgument");
+
+        m_client.warmUpAsync(null).get(10, TimeUnit.SECONDS);
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+
+        assertTrue(m_client.hasListBucketPermission());
+        assertEquals(2, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_caller_waiting_for_failed_warm_up_probe_repeats_it() {
+        m_server.setLatency(Duration.ofMillis(100));
+        m_server.injectErrors("ListBuckets", 1, 400, "InvalidArgument");
+
+        m_client.warmUpAsync(null);
+        assertTrue(m_client.hasListBucketPermission());
+        assertEquals(2, m_server.getRequestCount("ListBuckets"));
+    }
+
+    @Test
+    public void test_concurrent_callers_share_probe()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        m_server.setLatency(Duration.ofMillis(100));
+
+        final var first = CompletableFuture.supplyAsync(m_client::hasListBucketPermission);
+        final var second = CompletableFuture.supplyAsync(m_client::hasListBucketPermission);
+
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertTrue(second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, m_server.getRequestCount("ListBuckets"));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests the multipart copy of large objects through the S3 file system.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class MultipartCopyTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension(config -> {
+        config.setMultipartCopyThreshold(PART_SIZE);
+        config.setMultipartCopyPartSize(PART_SIZE);
+    });
+
+    private LocalS3Server m_server;
+
+    private byte[] m_content;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+
+        m_content = new byte[2 * PART_SIZE + 1234];
+        new Random(0).nextBytes(m_content);
+        m_server.putObject(BUCKET, "large.bin", m_content);
+    }
+
+    @Test
+    public void test_large_object_is_copied_in_parts() throws IOException {
+        final var fs = m_s3.getFileSystem();
+        Files.copy(fs.getPath("/" + BUCKET + "/large.bin"), fs.getPath("/" + BUCKET + "/copy.bin"));
+
+        assertArrayEquals(m_content, m_server.getObject(BUCKET, "copy.bin"));
+        assertEquals(3, m_server.getRequestCount("UploadPartCopy"));
+        assertEquals(0, m_server.getRequestCount("CopyObject"));
+    }
+
+    @Test
+    public void test_small_object_is_copied_with_single_request() throws IOException {
+        m_server.putObject(BUCKET, "small.bin", new byte[PART_SIZE]);
+
+        final var fs = m_s3.getFileSystem();
+        Files.copy(fs.getPath("/" + BUCKET + "/small.bin"), fs.getPath("/" + BUCKET + "/copy.bin"));
+
+        assertEquals(PART_SIZE, m_server.getObject(BUCKET, "copy.bin").length);
+        assertEquals(1, m_server.getRequestCount("CopyObject"));
+        assertEquals(0, m_server.getRequestCount("UploadPartCopy"));
+    }
+
+    @Test
+    public void test_multipart_copy_preserves_metadata_and_tags() throws IOException {
+        final var headers = Map.of("content-type", "text/csv", //
+            "cache-control", "max-age=60", //
+            "content-disposition", "attachment; filename=\"large.csv\"", //
+            "content-encoding", "gzip", //
+            "content-language", "en", //
+            "x-amz-meta-owner", "knime", //
+            "x-amz-tagging", "team=data&stage=raw%20input");
+        m_server.setObjectHeaders(BUCKET, "large.bin", headers);
+
+        final var fs = m_s3.getFileSystem();
+        Files.copy(fs.getPath("/" + BUCKET + "/large.bin"), fs.getPath("/" + BUCKET + "/copy.bin"));
+
+        assertEquals(3, m_server.getRequestCount("UploadPartCopy"));
+        assertEquals(headers, m_server.getObjectHeaders(BUCKET, "copy.bin"));
+    }
+
+    @Test
+    public void test_move_uses_multipart_copy() throws IOException {
+        final var fs = m_s3.getFileSystem();
+        Files.move(fs.getPath("/" + BUCKET + "/large.bin"), fs.getPath("/" + BUCKET + "/moved.bin"));
+
+        assertArrayEquals(m_content, m_server.getObject(BUCKET, "moved.bin"));
+        assertNull(m_server.getObject(BUCKET, "large.bin"));
+        assertEquals(3, m_server.getRequestCount("UploadPartCopy"));
+    }
+
+    @Test
+    public void test_failed_part_aborts_the_upload() {
+        m_server.injectErrors("UploadPartCopy", 100, 403, "AccessDenied");
+
+        final var fs = m_s3.getFileSystem();
+        assertThrows(IOException.class,
+            () -> Files.copy(fs.getPath("/" + BUCKET + "/large.bin"), fs.getPath("/" + BUCKET + "/copy.bin")));
+
+        assertFalse(m_server.listKeys(BUCKET).contains("copy.bin"));
+        assertEquals(1, m_server.getRequestCount("AbortMultipartUpload"));
+    }
+}
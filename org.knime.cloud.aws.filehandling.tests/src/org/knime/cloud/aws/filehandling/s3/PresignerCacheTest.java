@@ -0,0 +1,118 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.fs.S3FileSystem;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests that {@link MultiRegionS3Client} caches presigners and that URLs are signed without further requests.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class PresignerCacheTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_server.createBucket("other");
+        m_fs = m_s3.getFileSystem();
+    }
+
+    @Test
+    public void test_presigner_is_cached_per_region() {
+        final var client = m_fs.getClient();
+        final var presigner = client.getS3Presigner(BUCKET);
+
+        assertSame(presigner, client.getS3Presigner(BUCKET));
+        // both buckets are in the region of the local server
+        assertSame(presigner, client.getS3Presigner("other"));
+    }
+
+    @Test
+    public void test_urls_are_signed_locally() {
+        final var paths = List.of(m_fs.getPath("/" + BUCKET + "/a.csv"), m_fs.getPath("/" + BUCKET + "/dir/b.csv"),
+            m_fs.getPath("/other/c.csv"));
+        m_fs.getClient().getS3Presigner(BUCKET);
+        m_fs.getClient().getS3Presigner("other");
+        m_server.resetRequestCounts();
+
+        final List<URL> urls = m_fs.getPreSignedUrls(paths, Duration.ofMinutes(10));
+
+        assertEquals(3, urls.size());
+        assertTrue(urls.get(0).toString().contains("a.csv?"));
+        assertTrue(urls.get(1).toString().contains("dir/b.csv?"));
+        assertTrue(urls.get(2).toString().contains("c.csv?"));
+        for (final URL url : urls) {
+            assertTrue(url.getQuery().contains("X-Amz-Expires=600"));
+            assertTrue(url.getQuery().contains("X-Amz-Signature="));
+        }
+        assertTrue(m_server.getRequestCounts().isEmpty());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.fs.S3FileSystem;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+import software.amazon.awssdk.http.SdkHttpResponse;
+
+/**
+ * Tests the {@link S3RequestMetrics} collected by the client of an S3 file system.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3RequestMetricsTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    private S3RequestMetrics m_metrics;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_fs = m_s3.getFileSystem();
+        m_metrics = m_fs.getClient().getMetrics();
+    }
+
+    private static void assertOperation(final S3RequestMetrics metrics, final String operation) {
+        assertTrue(Arrays.stream(metrics.getOperationSummaries()).anyMatch(s -> s.startsWith(operation + ":")),
+            () -> Arrays.toString(metrics.getOperationSummaries()));
+    }
+
+    @Test
+    public void test_requests_and_bytes_are_counted() throws IOException {
+        final var requestsBefore = m_metrics.getRequestCount();
+        final var data = new byte[12345];
+
+        Files.write(m_fs.getPath("/" + BUCKET + "/file.bin"), data);
+        m_fs.clearAttributeCache();
+        try (final var in = Files.newInputStream(m_fs.getPath("/" + BUCKET + "/file.bin"))) {
+            assertEquals(data.length, in.readAllBytes().length);
+        }
+
+        assertTrue(m_metrics.getRequestCount() >= requestsBefore + 2);
+        assertEquals(0, m_metrics.getFailedRequestCount());
+        assertTrue(m_metrics.getBytesSent() >= data.length);
+        assertTrue(m_metrics.getBytesReceived() >= data.length);
+        assertOperation(m_metrics, "PutObject");
+        assertOperation(m_metrics, "GetObject");
+    }
+
+    @Test
+    public void test_throttled_retries_are_counted() throws IOException {
+        m_server.putObject(BUCKET, "file.bin", new byte[10]);
+        m_server.injectErrors("HeadObject", 2, 503, "SlowDown");
+
+        assertEquals(10, Files.size(m_fs.getPath("/" + BUCKET + "/file.bin")));
+
+        assertEquals(2, m_metrics.getRetryCount());
+        assertEquals(2, m_metrics.getThrottleCount());
+        assertEquals(0, m_metrics.getFailedRequestCount());
+    }
+
+    @Test
+    public void test_failed_requests_are_counted() {
+        m_server.injectErrors("HeadObject", 1, 403, "AccessDenied");
+
+        assertThrows(IOException.class, () -> Files.size(m_fs.getPath("/" + BUCKET + "/file.bin")));
+
+        assertTrue(m_metrics.getFailedRequestCount() >= 1);
+        assertEquals(0, m_metrics.getRetryCount());
+    }
+
+    @Test
+    public void test_metrics_are_registered_with_jmx() throws JMException {
+        final var server = ManagementFactory.getPlatformMBeanServer();
+        final var pattern = new ObjectName("org.knime.cloud.aws.filehandling:type=S3FileSystem,name=\"test\",*");
+
+        final var metrics = new S3RequestMetrics(Map::of, () -> 3);
+        metrics.registerMBean("test");
+        final var registered = server.queryNames(pattern, null);
+        assertEquals(1, registered.size());
+        assertEquals(3L, server.getAttribute(registered.iterator().next(), "HedgedRequestCount"));
+
+        metrics.close();
+        assertTrue(server.queryNames(pattern, null).isEmpty());
+    }
+
+    @Test
+    public void test_payload_length_prefers_decoded_content_length() {
+        final var chunked = SdkHttpResponse.builder()//
+            .putHeader("Content-Length", "1200")//
+            .putHeader("x-amz-decoded-content-length", "1000")//
+            .build();
+        assertEquals(1000, S3RequestMetrics.payloadLength(chunked));
+        assertEquals(5,
+            S3RequestMetrics.payloadLength(SdkHttpResponse.builder().putHeader("Content-Length", "5").build()));
+        assertEquals(0, S3RequestMetrics.payloadLength(SdkHttpResponse.builder().build()));
+    }
+
+    @Test
+    public void test_key_prefix() {
+        assertEquals("a/b/", S3RequestMetrics.toKeyPrefix("a/b/c.csv"));
+        assertEquals("a/b/", S3RequestMetrics.toKeyPrefix("a/b/"));
+        assertEquals("", S3RequestMetrics.toKeyPrefix("c.csv"));
+        assertNull(S3RequestMetrics.toKeyPrefix(null));
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+
+/**
+ * Tests the request coalescing of the {@link SingleFlight}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class SingleFlightTest {
+
+    private static final int THREADS = 8;
+
+    private ExecutorService m_executor;
+
+    private SingleFlight<String, Object> m_flights;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_executor = Executors.newFixedThreadPool(THREADS);
+        m_flights = new SingleFlight<>();
+    }
+
+    @AfterEach
+    public void afterTestCase() {
+        m_executor.shutdownNow();
+    }
+
+    @Test
+    public void test_concurrent_requests_share_one_call() throws Exception {
+        final var calls = new AtomicInteger();
+        final var release = new CountDownLatch(1);
+        final var result = new Object();
+
+        final List<Future<Object>> futures = new ArrayList<>();
+        for (var i = 0; i < THREADS; i++) {
+            futures.add(m_executor.submit(() -> m_flights.execute("bucket/key", () -> {
+                calls.incrementAndGet();
+                awaitUninterruptibly(release);
+                return result;
+            })));
+        }
+        while (m_flights.getCoalescedCount() < THREADS - 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        for (final var future : futures) {
+            assertSame(result, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void test_exception_is_shared() throws Exception {
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var leader = m_executor.submit(() -> m_flights.execute("bucket/key", () -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            throw new IllegalStateException("failed");
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final var follower = m_executor.submit(() -> m_flights.execute("bucket/key", Object::new));
+        while (m_flights.getCoalescedCount() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        for (final var future : List.of(leader, follower)) {
+            final var e = assertThrows(Exception.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void test_completed_requests_are_not_cached() {
+        final var calls = new AtomicInteger();
+        m_flights.execute("bucket/key", calls::incrementAndGet);
+        m_flights.execute("bucket/key", calls::incrementAndGet);
+        m_flights.execute("bucket/other", calls::incrementAndGet);
+
+        assertEquals(3, calls.get());
+        assertEquals(0, m_flights.getCoalescedCount());
+    }
+
+    @Test
+    public void test_waiting_caller_can_be_interrupted() throws Exception {
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var leader = m_executor.submit(() -> m_flights.execute("bucket/key", () -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            return "result";
+        }));
+        // the follower must join the running request instead of becoming the leader itself
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final var followerThread = new AtomicReference<Thread>();
+        final var follower = m_executor.submit(() -> {
+            followerThread.set(Thread.currentThread());
+            try {
+                m_flights.execute("bucket/key", Object::new);
+                return false;
+            } catch (AbortedException e) {
+                return Thread.currentThread().isInterrupted();
+            }
+        });
+        while (m_flights.getCoalescedCount() < 1) {
+            Thread.sleep(1);
+        }
+
+        followerThread.get().interrupt();
+        assertTrue(follower.get(10, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertEquals("result", leader.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test_forgotten_request_is_not_joined() throws Exception {
+        final var calls = new AtomicInteger();
+        final var release = new CountDownLatch(1);
+        final var leader = m_executor.submit(() -> m_flights.execute("bucket/key", () -> {
+            calls.incrementAndGet();
+            awaitUninterruptibly(release);
+            return "before write";
+        }));
+        while (calls.get() < 1) {
+            Thread.sleep(1);
+        }
+
+        // a write of the key has completed while the request is in flight
+        m_flights.forget("bucket/key"::equals);
+        assertEquals("after write", m_flights.execute("bucket/key", () -> {
+            calls.incrementAndGet();
+            return "after write";
+        }));
+
+        release.countDown();
+        assertEquals("before write", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        assertEquals(0, m_flights.getCoalescedCount());
+    }
+
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) { // NOSONAR test helper
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig.SSEMode;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests that copies with customer-provided keys (SSE-C) only retry without the copy-source keys if the source is not
+ * encrypted.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class SseCustomerKeyCopyTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension(config -> {
+        config.setSseEnabled(true);
+        config.setSseMode(SSEMode.CUSTOMER_PROVIDED);
+        config.setCustomerKey(Base64.getEncoder().encodeToString(new byte[32]));
+    });
+
+    private LocalS3Server m_server;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_server.putObject(BUCKET, "plain.bin", new byte[1024]);
+    }
+
+    @Test
+    public void test_unencrypted_source_is_copied_without_source_key() throws IOException {
+        m_server.injectErrors("CopyObject", 0, 1, 400, "InvalidRequest",
+            "The encryption parameters are not applicable to this object.");
+
+        final var fs = m_s3.getFileSystem();
+        Files.copy(fs.getPath("/" + BUCKET + "/plain.bin"), fs.getPath("/" + BUCKET + "/copy.bin"));
+
+        assertEquals(1024, m_server.getObject(BUCKET, "copy.bin").length);
+        assertEquals(2, m_server.getRequestCount("CopyObject"));
+    }
+
+    @Test
+    public void test_other_bad_request_is_not_retried() {
+        m_server.injectErrors("CopyObject", 1, 400, "InvalidArgument");
+
+        final var fs = m_s3.getFileSystem();
+        assertThrows(IOException.class,
+            () -> Files.copy(fs.getPath("/" + BUCKET + "/plain.bin"), fs.getPath("/" + BUCKET + "/copy.bin")));
+        assertEquals(1, m_server.getRequestCount("CopyObject"));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the front coding of the {@link CompactListing}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class CompactListingTest {
+
+    @Test
+    public void test_names_are_decoded_and_found() {
+        final var listing = new CompactListing();
+        for (var i = 0; i < 1000; i++) {
+            listing.add(String.format("part-2024-10-%05d.parquet", i), i, 1000L + i);
+        }
+        listing.add("\u00e4\u00f6\u00fc.csv", 1, 2);
+        listing.trimToSize();
+
+        assertEquals(1001, listing.size());
+        for (var i = 0; i < 1000; i++) {
+            final var name = String.format("part-2024-10-%05d.parquet", i);
+            assertEquals(name, listing.getName(i));
+            assertEquals(i, listing.indexOf(name));
+            assertEquals(i, listing.getSize(i));
+            assertEquals(1000L + i, listing.getLastModifiedMillis(i));
+        }
+        assertEquals(1000, listing.indexOf("\u00e4\u00f6\u00fc.csv"));
+        assertEquals(-1, listing.indexOf("part-2024-10-00010"));
+        assertEquals(-1, listing.indexOf("a"));
+        assertEquals(-1, listing.indexOf("z"));
+        assertEquals(-1, new CompactListing().indexOf("a"));
+    }
+
+    @Test
+    public void test_removed_entries_are_not_found() {
+        final var listing = new CompactListing();
+        listing.add("a", 1, 1);
+        listing.add("b", 1, 1);
+        listing.remove(1);
+
+        assertEquals(0, listing.indexOf("a"));
+        assertEquals(-1, listing.indexOf("b"));
+    }
+
+    @Test
+    public void test_names_must_be_ascending() {
+        final var listing = new CompactListing();
+        listing.add("b", 1, 1);
+        assertFalse(listing.add("a", 1, 1));
+        assertFalse(listing.add("b", 1, 1));
+        assertEquals(1, listing.size());
+    }
+}
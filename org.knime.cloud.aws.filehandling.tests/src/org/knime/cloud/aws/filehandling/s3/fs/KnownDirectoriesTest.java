@@ -0,0 +1,119 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link KnownDirectories}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class KnownDirectoriesTest {
+
+    private static final String BUCKET = "bucket";
+
+    private long m_now;
+
+    private KnownDirectories m_dirs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_now = 0;
+        m_dirs = new KnownDirectories(1000, () -> m_now);
+    }
+
+    @Test
+    public void test_ancestors_are_known() {
+        m_dirs.add(BUCKET, "a/b/c/");
+
+        assertTrue(m_dirs.contains(BUCKET, "a/b/c/"));
+        assertTrue(m_dirs.contains(BUCKET, "a/b/"));
+        assertTrue(m_dirs.contains(BUCKET, "a/"));
+        assertFalse(m_dirs.contains(BUCKET, "a/b/c/d/"));
+        assertFalse(m_dirs.contains("other", "a/"));
+    }
+
+    @Test
+    public void test_parents_of_objects_are_known() {
+        m_dirs.addParentsOf(BUCKET, "a/b/file.csv");
+        m_dirs.addParentsOf(BUCKET, "top.csv");
+
+        assertTrue(m_dirs.contains(BUCKET, "a/b/"));
+        assertFalse(m_dirs.contains(BUCKET, "a/b/file.csv/"));
+    }
+
+    @Test
+    public void test_entries_expire() {
+        m_dirs.add(BUCKET, "a/");
+        m_now += TimeUnit.MILLISECONDS.toNanos(999);
+        assertTrue(m_dirs.contains(BUCKET, "a/"));
+        m_now += TimeUnit.MILLISECONDS.toNanos(1);
+        assertFalse(m_dirs.contains(BUCKET, "a/"));
+    }
+
+    @Test
+    public void test_invalidate_forgets_descendants_and_ancestors() {
+        m_dirs.add(BUCKET, "a/b/c/d/");
+        m_dirs.add(BUCKET, "a/x/");
+        m_dirs.add(BUCKET, "a/bb/");
+
+        m_dirs.invalidate(BUCKET, "a/b/c");
+
+        assertFalse(m_dirs.contains(BUCKET, "a/b/c/d/"));
+        assertFalse(m_dirs.contains(BUCKET, "a/b/c/"));
+        assertFalse(m_dirs.contains(BUCKET, "a/b/"));
+        assertFalse(m_dirs.contains(BUCKET, "a/"));
+        assertTrue(m_dirs.contains(BUCKET, "a/x/"));
+        assertTrue(m_dirs.contains(BUCKET, "a/bb/"));
+    }
+}
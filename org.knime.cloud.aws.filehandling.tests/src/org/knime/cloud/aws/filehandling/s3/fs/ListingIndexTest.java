@@ -0,0 +1,244 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knime.cloud.aws.filehandling.s3.fs.ListingIndex.State;
+
+/**
+ * Tests the {@link ListingIndex}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class ListingIndexTest {
+
+    private static final String BUCKET = "bucket";
+
+    private long m_now;
+
+    private ListingIndex m_index;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_now = 1;
+        m_index = new ListingIndex(1000, 100, () -> m_now);
+    }
+
+    private State lookup(final String key) {
+        return m_index.lookup(BUCKET, key, key.endsWith("/")).getState();
+    }
+
+    private void list(final String dirKey, final String... children) {
+        final var listing = m_index.startListing(BUCKET, dirKey.isEmpty() ? null : dirKey);
+        for (final var child : children) {
+            if (child.endsWith("/")) {
+                listing.addDirectory(child);
+            } else {
+                listing.addFile(child, 10, 1234);
+            }
+        }
+        listing.complete();
+    }
+
+    @Test
+    public void test_complete_listing_answers_children() {
+        list("dir/", "file.csv", "sub/");
+
+        final var file = m_index.lookup(BUCKET, "dir/file.csv", false);
+        assertEquals(State.FILE, file.getState());
+        assertEquals(10, file.getSize());
+        assertEquals(1234, file.getLastModifiedMillis());
+        assertEquals(State.NOT_FOUND, lookup("dir/file.csv/"));
+        assertEquals(State.DIRECTORY, lookup("dir/sub"));
+        assertEquals(State.DIRECTORY, lookup("dir/sub/"));
+        assertEquals(State.NOT_FOUND, lookup("dir/missing.csv"));
+        assertEquals(State.UNKNOWN, lookup("dir/sub/file.csv"));
+        assertEquals(State.DIRECTORY, lookup("dir/"));
+        assertEquals(State.UNKNOWN, lookup("other.csv"));
+    }
+
+    @Test
+    public void test_listed_subtree_answers_grandchildren() {
+        list("", "dir/");
+        list("dir/", "sub/");
+        list("dir/sub/", "file.csv");
+
+        assertEquals(State.FILE, lookup("dir/sub/file.csv"));
+        assertEquals(State.NOT_FOUND, lookup("dir/sub/missing.csv"));
+        assertEquals(State.NOT_FOUND, lookup("missing/"));
+    }
+
+    @Test
+    public void test_entries_expire() {
+        list("dir/", "file.csv");
+        m_now += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        assertEquals(State.UNKNOWN, lookup("dir/file.csv"));
+        assertEquals(State.UNKNOWN, lookup("dir/missing.csv"));
+    }
+
+    @Test
+    public void test_delete_removes_subtree_and_makes_ancestors_uncertain() {
+        list("", "a/");
+        list("a/", "b/");
+        list("a/b/", "file.csv", "c/");
+        list("a/b/c/", "nested.csv");
+
+        m_index.remove(BUCKET, "a/b/c/");
+
+        assertEquals(State.NOT_FOUND, lookup("a/b/c/"));
+        assertEquals(State.UNKNOWN, lookup("a/b/c/nested.csv"));
+        assertEquals(State.FILE, lookup("a/b/file.csv"));
+        assertEquals(State.UNKNOWN, lookup("a/b/"));
+        assertEquals(State.UNKNOWN, lookup("a/"));
+
+        // seeing the directory again makes it certain
+        m_index.addDirectory(BUCKET, "a/b/");
+        assertEquals(State.DIRECTORY, lookup("a/b/"));
+    }
+
+    @Test
+    public void test_incomplete_listing_answers_listed_files_only() {
+        final var listing = m_index.startListing(BUCKET, "dir/");
+        listing.addFile("a.csv", 1, 1);
+
+        assertEquals(State.FILE, lookup("dir/a.csv"));
+        assertEquals(State.UNKNOWN, lookup("dir/b.csv"));
+    }
+
+    @Test
+    public void test_written_file_is_known() {
+        list("dir/", "a.csv");
+        m_index.addFile(BUCKET, "dir/b.csv", 5, 1);
+
+        assertEquals(5, m_index.lookup(BUCKET, "dir/b.csv", false).getSize());
+        m_index.remove(BUCKET, "dir/a.csv");
+        assertEquals(State.NOT_FOUND, lookup("dir/a.csv"));
+    }
+
+    @Test
+    public void test_object_named_like_known_directory() {
+        m_index.addFile(BUCKET, "a/b/file.csv", 5, 1);
+
+        // "a/" has not been listed, so there might be an object "a/b"
+        assertEquals(State.DIRECTORY, lookup("a/b/"));
+        assertEquals(State.UNKNOWN, lookup("a/b"));
+
+        list("dir/", "sub", "sub/");
+        assertEquals(State.FILE, lookup("dir/sub"));
+        assertEquals(State.DIRECTORY, lookup("dir/sub/"));
+    }
+
+    @Test
+    public void test_memory_is_bounded() {
+        final var listing = m_index.startListing(BUCKET, "dir/");
+        for (var i = 0; i < 250; i++) {
+            listing.addFile(String.format("file%03d", i), 1, 1);
+        }
+        assertTrue(m_index.size() <= 100);
+        assertFalse(listing.isActive());
+    }
+
+    private static String[] files(final int count) {
+        final var names = new String[count];
+        for (var i = 0; i < count; i++) {
+            names[i] = String.format("file%03d", i);
+        }
+        return names;
+    }
+
+    @Test
+    public void test_overflow_drops_oldest_listing_only() {
+        list("a/", files(40));
+        list("b/", files(40));
+        for (var i = 0; i < 20; i++) {
+            m_index.addFile(BUCKET, "c/written" + i, 1, 1);
+        }
+
+        assertTrue(m_index.size() <= 100);
+        assertEquals(State.UNKNOWN, lookup("a/file000"));
+        assertEquals(State.UNKNOWN, lookup("a/missing"));
+        assertEquals(State.FILE, lookup("b/file000"));
+        assertEquals(State.NOT_FOUND, lookup("b/missing"));
+        assertEquals(State.FILE, lookup("c/written19"));
+    }
+
+    @Test
+    public void test_dropped_running_listing_is_not_completed() {
+        final var listing = m_index.startListing(BUCKET, "dir/");
+        for (final var name : files(60)) {
+            listing.addFile(name, 1, 1);
+        }
+        for (var i = 0; i < 50; i++) {
+            m_index.addFile(BUCKET, "other/written" + i, 1, 1);
+        }
+        listing.complete();
+
+        assertFalse(listing.isActive());
+        // the listing did not get to see all files, so it must not report any as missing
+        assertEquals(State.UNKNOWN, lookup("dir/file099"));
+    }
+
+    @Test
+    public void test_unsorted_listing_is_dropped() {
+        final var listing = m_index.startListing(BUCKET, "dir/");
+        assertTrue(listing.addFile("b.csv", 1, 1));
+        assertFalse(listing.addFile("a.csv", 1, 1));
+        listing.complete();
+
+        assertFalse(listing.isActive());
+        assertEquals(State.UNKNOWN, lookup("dir/a.csv"));
+        assertEquals(State.UNKNOWN, lookup("dir/b.csv"));
+        assertEquals(State.UNKNOWN, lookup("dir/c.csv"));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests that writes, copies, directory creation and deletes keep the attribute cache of the {@link S3FileSystem} up
+ * to date, so that checking a path right afterwards needs no request.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3AttributeCacheTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_fs = m_s3.getFileSystem();
+    }
+
+    private long headRequests() {
+        return m_server.getRequestCount("HeadObject") + m_server.getRequestCount("ListObjectsV2");
+    }
+
+    @Test
+    public void test_written_file_is_cached() throws IOException {
+        final var file = m_fs.getPath("/" + BUCKET + "/file.txt");
+        Files.write(file, new byte[42]);
+        m_server.resetRequestCounts();
+
+        assertTrue(Files.exists(file));
+        assertEquals(42, Files.size(file));
+        assertEquals(0, headRequests());
+    }
+
+    @Test
+    public void test_channel_write_is_cached() throws IOException {
+        final var file = m_fs.getPath("/" + BUCKET + "/file.txt");
+        try (final var channel = Files.newByteChannel(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[7]));
+        }
+        m_server.resetRequestCounts();
+
+        assertEquals(7, Files.size(file));
+        assertEquals(0, headRequests());
+    }
+
+    @Test
+    public void test_copied_file_is_cached() throws IOException {
+        final var file = m_fs.getPath("/" + BUCKET + "/file.txt");
+        final var copy = m_fs.getPath("/" + BUCKET + "/copy.txt");
+        Files.write(file, new byte[5]);
+        Files.copy(file, copy);
+        m_server.resetRequestCounts();
+
+        assertEquals(5, Files.size(copy));
+        assertEquals(0, headRequests());
+    }
+
+    @Test
+    public void test_created_directory_is_cached() throws IOException {
+        final var dir = m_fs.getPath("/" + BUCKET + "/dir/");
+        Files.createDirectory(dir);
+        m_server.resetRequestCounts();
+
+        assertTrue(Files.isDirectory(dir));
+        assertEquals(0, headRequests());
+    }
+
+    @Test
+    public void test_parents_of_written_files_are_known_directories() throws IOException {
+        final var dir = m_fs.getPath("/" + BUCKET + "/a/b/c/d/");
+        Files.write(dir.resolve("file1.csv"), new byte[1]);
+        m_server.resetRequestCounts();
+
+        Files.createDirectories(dir);
+        Files.createDirectories(m_fs.getPath("/" + BUCKET + "/a/b/"));
+        Files.write(dir.resolve("file2.csv"), new byte[1]);
+
+        assertEquals(0, headRequests());
+        assertEquals(1, m_server.getRequestCounts().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void test_object_takes_precedence_over_known_directory() throws IOException {
+        Files.write(m_fs.getPath("/" + BUCKET + "/a/b/file.csv"), new byte[1]);
+        // written by someone else, after the write above has checked the parent directory
+        m_server.putObject(BUCKET, "a/b", new byte[7]);
+        m_fs.clearAttributeCache();
+        m_server.resetRequestCounts();
+
+        final var dir = m_fs.getPath("/" + BUCKET + "/a/b/");
+        assertTrue(Files.isDirectory(dir));
+        assertEquals(0, headRequests());
+
+        final var file = m_fs.getPath("/" + BUCKET + "/a/b");
+        assertTrue(Files.isRegularFile(file));
+        assertEquals(7, Files.size(file));
+        assertEquals(1, headRequests());
+    }
+
+    @Test
+    public void test_deleted_directory_is_not_known() throws IOException {
+        final var dir = m_fs.getPath("/" + BUCKET + "/a/b/");
+        final var file = dir.resolve("file.csv");
+        Files.write(file, new byte[1]);
+        Files.delete(file);
+
+        assertFalse(Files.exists(dir));
+        assertFalse(Files.exists(m_fs.getPath("/" + BUCKET + "/a/")));
+    }
+
+    @Test
+    public void test_listed_children_are_answered_from_index() throws IOException {
+        m_server.putObject(BUCKET, "dir/file.csv", new byte[3]);
+        m_server.putObject(BUCKET, "dir/sub/nested.csv", new byte[4]);
+        final var dir = m_fs.getPath("/" + BUCKET + "/dir/");
+        try (final var children = Files.list(dir)) {
+            assertEquals(2, children.count());
+        }
+        m_fs.clearAttributeCache();
+        m_server.resetRequestCounts();
+
+        assertEquals(3, Files.size(dir.resolve("file.csv")));
+        assertTrue(Files.isDirectory(dir.resolve("sub")));
+        assertFalse(Files.exists(dir.resolve("missing.csv")));
+        assertEquals(0, headRequests());
+    }
+
+    @Test
+    public void test_deleted_file_is_not_cached() throws IOException {
+        final var file = m_fs.getPath("/" + BUCKET + "/file.txt");
+        Files.write(file, new byte[1]);
+        Files.delete(file);
+
+        assertFalse(Files.exists(file));
+    }
+}
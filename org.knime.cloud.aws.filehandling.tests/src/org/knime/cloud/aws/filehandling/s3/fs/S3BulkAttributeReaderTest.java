@@ -0,0 +1,152 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests {@link S3FileSystem#readAttributes(java.util.Collection)}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3BulkAttributeReaderTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        for (var i = 0; i < 30; i++) {
+            m_server.putObject(BUCKET, String.format("dir/file%02d.csv", i), new byte[i]);
+        }
+        m_server.putObject(BUCKET, "dir/sub/nested.csv", new byte[1]);
+        m_fs = m_s3.getFileSystem();
+    }
+
+    private S3Path path(final String key) {
+        return m_fs.getPath("/" + BUCKET + "/" + key);
+    }
+
+    @Test
+    public void test_large_group_is_listed() throws IOException {
+        final List<S3Path> paths = new ArrayList<>();
+        for (var i = 0; i < 20; i++) {
+            paths.add(path(String.format("dir/file%02d.csv", i)));
+        }
+        paths.add(path("dir/missing.csv"));
+        paths.add(path("dir/sub"));
+
+        final var attributes = m_fs.readAttributes(paths);
+
+        assertEquals(21, attributes.size());
+        assertEquals(7, attributes.get(path("dir/file07.csv")).size());
+        assertTrue(attributes.get(path("dir/file07.csv")).isRegularFile());
+        assertTrue(attributes.get(path("dir/sub")).isDirectory());
+        assertFalse(attributes.containsKey(path("dir/missing.csv")));
+        assertEquals(path("dir/file00.csv"), attributes.keySet().iterator().next());
+        assertEquals(1, m_server.getRequestCount("ListObjectsV2"));
+        assertEquals(0, m_server.getRequestCount("HeadObject"));
+
+        // the results are cached
+        m_server.resetRequestCounts();
+        assertEquals(19, m_fs.readAttributes(List.of(path("dir/file19.csv"))).get(path("dir/file19.csv")).size());
+        assertEquals(0, m_server.getRequestCount("HeadObject"));
+    }
+
+    @Test
+    public void test_small_group_uses_head_requests() throws IOException {
+        final var attributes =
+            m_fs.readAttributes(List.of(path("dir/file01.csv"), path("dir/file02.csv"), path("dir/missing.csv")));
+
+        assertEquals(2, attributes.size());
+        assertEquals(2, attributes.get(path("dir/file02.csv")).size());
+        assertTrue(m_server.getRequestCount("HeadObject") >= 3);
+        // only the prefix probe for the missing path
+        assertEquals(1, m_server.getRequestCount("ListObjectsV2"));
+    }
+
+    @Test
+    public void test_listing_uses_s3_key_order() throws IOException {
+        // S3 orders keys by their UTF-8 bytes, in which U+FF21 sorts before U+1F600 unlike in UTF-16
+        for (var i = 0; i < 999; i++) {
+            m_server.putObject(BUCKET, String.format("big/file%03d.csv", i), new byte[1]);
+        }
+        m_server.putObject(BUCKET, "big/\uFF21.csv", new byte[1]);
+        m_server.putObject(BUCKET, "big/\uD83D\uDE00.csv", new byte[2]);
+
+        final List<S3Path> paths = new ArrayList<>();
+        for (var i = 0; i < 11; i++) {
+            paths.add(path(String.format("big/file%03d.csv", i)));
+        }
+        paths.add(path("big/\uD83D\uDE00.csv"));
+
+        // the first page ends with the key of U+FF21, which must not be taken as past the last requested name
+        final var attributes = m_fs.readAttributes(paths);
+
+        assertEquals(12, attributes.size());
+        assertEquals(2, attributes.get(path("big/\uD83D\uDE00.csv")).size());
+        assertEquals(1, m_server.getRequestCount("ListObjectsV2"));
+    }
+}
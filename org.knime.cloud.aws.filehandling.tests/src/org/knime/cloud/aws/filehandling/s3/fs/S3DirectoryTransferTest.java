@@ -0,0 +1,211 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests the recursive server-side copy and move of the {@link S3DirectoryTransfer}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3DirectoryTransferTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    /** More than one listing page. */
+    private static final int FILE_COUNT = 1500;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_server.putObject(BUCKET, "src/", new byte[0]);
+        for (var i = 0; i < FILE_COUNT; i++) {
+            m_server.putObject(BUCKET, String.format("src/dir-%d/file-%04d", i % 3, i), content(i));
+        }
+
+        m_fs = m_s3.getFileSystem();
+    }
+
+    private static byte[] content(final int i) {
+        return ("file " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> keys(final String prefix) {
+        return m_server.listKeys(BUCKET).stream().filter(k -> k.startsWith(prefix)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_copy_reports_progress() throws IOException {
+        final var transfer = new S3DirectoryTransfer(m_fs.getPath("/" + BUCKET + "/src"),
+            m_fs.getPath("/" + BUCKET + "/dst"), false);
+        final long[] lastProgress = new long[1];
+        transfer.setProgressListener((objects, bytes) -> {
+            synchronized (lastProgress) {
+                lastProgress[0] = Math.max(lastProgress[0], objects);
+            }
+        });
+        transfer.run();
+
+        assertEquals(FILE_COUNT + 1, keys("dst/").size());
+        assertEquals(FILE_COUNT + 1, keys("src/").size());
+        assertEquals(FILE_COUNT + 1, transfer.getCopiedObjects());
+        assertEquals(FILE_COUNT + 1, lastProgress[0]);
+        assertArrayEquals(content(42), m_server.getObject(BUCKET, "dst/dir-0/file-0042"));
+    }
+
+    @Test
+    public void test_move_directory() throws IOException {
+        Files.move(m_fs.getPath("/" + BUCKET + "/src/"), m_fs.getPath("/" + BUCKET + "/moved/"));
+
+        assertTrue(keys("src/").isEmpty());
+        assertEquals(FILE_COUNT + 1, keys("moved/").size());
+        assertArrayEquals(content(7), m_server.getObject(BUCKET, "moved/dir-1/file-0007"));
+        assertFalse(Files.exists(m_fs.getPath("/" + BUCKET + "/src/dir-1/file-0007")));
+        assertTrue(m_server.getRequestCount("DeleteObjects") >= 2);
+        assertEquals(0, m_server.getRequestCount("DeleteObject"));
+    }
+
+    @Test
+    public void test_cancelled_move_keeps_source() {
+        final var transfer = new S3DirectoryTransfer(m_fs.getPath("/" + BUCKET + "/src"),
+            m_fs.getPath("/" + BUCKET + "/dst"), true);
+        transfer.setProgressListener((objects, bytes) -> {
+            if (objects >= 10) {
+                transfer.cancel();
+            }
+        });
+
+        assertThrows(InterruptedIOException.class, transfer::run);
+        assertEquals(FILE_COUNT + 1, keys("src/").size());
+        assertTrue(keys("dst/").size() < FILE_COUNT);
+    }
+
+    @Test
+    public void test_copy_into_itself_fails() {
+        final var transfer = new S3DirectoryTransfer(m_fs.getPath("/" + BUCKET + "/src"),
+            m_fs.getPath("/" + BUCKET + "/src/sub"), false);
+        assertThrows(IOException.class, transfer::run);
+    }
+
+    @Test
+    public void test_failed_copy_keeps_source() {
+        final var transfer = new S3DirectoryTransfer(m_fs.getPath("/" + BUCKET + "/src"),
+            m_fs.getPath("/" + BUCKET + "/dst"), true);
+        transfer.setProgressListener((objects, bytes) -> {
+            if (objects == 5) {
+                throw new IllegalStateException("Listener failure");
+            }
+        });
+
+        final var ex = assertThrows(IOException.class, transfer::run);
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        assertEquals(FILE_COUNT + 1, keys("src/").size());
+        assertEquals(0, m_server.getRequestCount("DeleteObjects"));
+    }
+
+    @Test
+    public void test_move_directory_honors_copy_options() throws IOException {
+        final var source = m_fs.getPath("/" + BUCKET + "/src/");
+        final var target = m_fs.getPath("/" + BUCKET + "/moved/");
+        m_server.putObject(BUCKET, "moved/", new byte[0]);
+
+        assertThrows(AtomicMoveNotSupportedException.class,
+            () -> Files.move(source, target, StandardCopyOption.ATOMIC_MOVE));
+        assertThrows(FileAlreadyExistsException.class, () -> Files.move(source, target));
+        assertEquals(FILE_COUNT + 1, keys("src/").size());
+
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(keys("src/").isEmpty());
+        assertEquals(FILE_COUNT + 1, keys("moved/").size());
+    }
+
+    @Test
+    public void test_moved_directory_exists_in_listed_parent() throws IOException {
+        // the listing must stay fresh during the move
+        m_fs = m_s3.reconnect(config -> config.setListingIndexTTL(Duration.ofMinutes(10)));
+        final var parent = m_fs.getPath("/" + BUCKET + "/parent/");
+        Files.createDirectory(parent);
+        try (final var stream = Files.newDirectoryStream(parent)) {
+            assertFalse(stream.iterator().hasNext());
+        }
+
+        final var target = m_fs.getPath("/" + BUCKET + "/parent/moved/");
+        Files.move(m_fs.getPath("/" + BUCKET + "/src/"), target);
+
+        assertTrue(Files.exists(target));
+        assertTrue(Files.isDirectory(target));
+        assertTrue(Files.exists(m_fs.getPath("/" + BUCKET + "/parent/moved/dir-1/file-0007")));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests the number of requests needed to delete files with the {@link S3FileSystemProvider}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3FileSystemProviderDeleteTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_server.putObject(BUCKET, "dir/", new byte[0]);
+        for (var i = 0; i < 10; i++) {
+            m_server.putObject(BUCKET, "dir/file-" + i, new byte[1]);
+        }
+        m_server.resetRequestCounts();
+    }
+
+    @Test
+    public void test_listed_files_are_deleted_without_head() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        final var dir = m_s3.getFileSystem().getPath("/" + BUCKET + "/dir/");
+        try (final var stream = Files.newDirectoryStream(dir)) {
+            stream.forEach(files::add);
+        }
+        for (final var file : files) {
+            Files.delete(file);
+        }
+
+        assertEquals(0, m_server.getRequestCount("HeadObject"));
+        assertEquals(10, m_server.getRequestCount("DeleteObject"));
+        assertEquals(List.of("dir/"), m_server.listKeys(BUCKET));
+    }
+
+    @Test
+    public void test_file_is_deleted_after_single_head() throws IOException {
+        Files.delete(m_s3.getFileSystem().getPath("/" + BUCKET + "/dir/file-3"));
+
+        assertEquals(1, m_server.getRequestCount("HeadObject"));
+        assertEquals(1, m_server.getRequestCount("DeleteObject"));
+    }
+
+    @Test
+    public void test_non_empty_directory_is_not_deleted() {
+        assertThrows(DirectoryNotEmptyException.class,
+            () -> Files.delete(m_s3.getFileSystem().getPath("/" + BUCKET + "/dir")));
+        assertEquals(11, m_server.listKeys(BUCKET).size());
+    }
+
+    @Test
+    public void test_directory_is_deleted_recursively_in_bulk() throws IOException {
+        m_server.putObject(BUCKET, "other", new byte[1]);
+        final var fs = m_s3.getFileSystem();
+        final var provider = (S3FileSystemProvider)fs.provider();
+
+        provider.deleteRecursively(fs.getPath("/" + BUCKET + "/dir"));
+
+        assertEquals(1, m_server.getRequestCount("DeleteObjects"));
+        assertEquals(0, m_server.getRequestCount("DeleteObject"));
+        assertEquals(List.of("other"), m_server.listKeys(BUCKET));
+        assertFalse(Files.exists(fs.getPath("/" + BUCKET + "/dir/file-3")));
+
+        provider.deleteRecursively(fs.getPath("/" + BUCKET + "/other"));
+        assertEquals(1, m_server.getRequestCount("DeleteObject"));
+        assertTrue(m_server.listKeys(BUCKET).isEmpty());
+        assertThrows(NoSuchFileException.class, () -> provider.deleteRecursively(fs.getPath("/" + BUCKET + "/dir")));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests the Java Flight Recorder events of the S3 file system and its requests.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3FlightRecorderEventsTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    private static final String OPERATION_EVENT = "org.knime.cloud.aws.S3FileSystemOperation";
+
+    private static final String REQUEST_EVENT = "org.knime.cloud.aws.S3Request";
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_server.putObject(BUCKET, "dir/file.csv", new byte[1234]);
+        m_fs = m_s3.getFileSystem();
+    }
+
+    private static List<RecordedEvent> record(final String eventName, final IOOperation operation)
+        throws IOException {
+        try (final var recording = new Recording()) {
+            recording.enable(eventName).withoutThreshold();
+            recording.start();
+            operation.run();
+            recording.stop();
+
+            final var file = Files.createTempFile("s3-events", ".jfr");
+            try {
+                recording.dump(file);
+                return RecordingFile.readAllEvents(file).stream()//
+                    .filter(e -> e.getEventType().getName().equals(eventName))//
+                    .collect(Collectors.toList());
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOOperation {
+        void run() throws IOException;
+    }
+
+    @Test
+    public void test_read_records_bytes_when_stream_is_closed() throws IOException {
+        final var file = m_fs.getPath("/" + BUCKET + "/dir/file.csv");
+        final var events = record(OPERATION_EVENT, () -> {
+            try (final var in = Files.newInputStream(file)) {
+                in.readAllBytes();
+            }
+        });
+
+        final var get = events.stream().filter(e -> e.getString("operation").equals("get")).findFirst().get();
+        assertEquals(BUCKET, get.getString("bucket"));
+        assertEquals("dir/", get.getString("keyPrefix"));
+        assertEquals(1234, get.getLong("bytes"));
+        assertEquals("OK", get.getString("status"));
+    }
+
+    @Test
+    public void test_failed_operation_records_exception() throws IOException {
+        final var dir = m_fs.getPath("/" + BUCKET + "/dir/missing/");
+        final var events = record(OPERATION_EVENT, () -> {
+            try {
+                Files.readAttributes(dir, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) { // NOSONAR expected
+            }
+        });
+
+        final var head = events.stream().filter(e -> e.getString("operation").equals("head")).findFirst().get();
+        // the prefix of a directory is the one of its parent
+        assertEquals("dir/", head.getString("keyPrefix"));
+        assertEquals("NoSuchFileException", head.getString("status"));
+    }
+
+    @Test
+    public void test_request_attempts_are_recorded() throws IOException {
+        m_server.injectErrors("GetObject", 1, 500, "InternalError");
+        final var file = m_fs.getPath("/" + BUCKET + "/dir/file.csv");
+        final var events = record(REQUEST_EVENT, () -> {
+            try (final var in = Files.newInputStream(file)) {
+                in.readAllBytes();
+            }
+        });
+
+        final var gets = events.stream().filter(e -> e.getString("operation").equals("GetObject"))
+            .collect(Collectors.toList());
+        assertEquals(2, gets.size());
+        assertEquals(500, gets.get(0).getInt("status"));
+        assertEquals(1, gets.get(0).getInt("attempt"));
+        assertEquals(200, gets.get(1).getInt("status"));
+        assertEquals(2, gets.get(1).getInt("attempt"));
+        assertEquals(1234, gets.get(1).getLong("bytesReceived"));
+        assertEquals("dir/", gets.get(1).getString("keyPrefix"));
+        assertFalse(events.stream().anyMatch(e -> e.getLong("bytesSent") < 0));
+    }
+}
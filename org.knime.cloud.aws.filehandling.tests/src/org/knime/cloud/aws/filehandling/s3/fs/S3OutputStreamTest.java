@@ -0,0 +1,170 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests the streaming mode of the {@link S3OutputStream}, which buffers parts in memory.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3OutputStreamTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension(S3OutputStreamTest::configureStreaming);
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_fs = m_s3.getFileSystem();
+    }
+
+    private static void configureStreaming(final S3FSConnectionConfig config) {
+        config.setMultipartUploadPartSize(PART_SIZE);
+        config.setStreamingUpload(true);
+    }
+
+    private static byte[] randomBytes(final int size) {
+        final var bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void test_multipart_upload_from_memory() throws IOException {
+        final var data = randomBytes(2 * PART_SIZE + 12345);
+        try (final var out = new S3OutputStream(m_fs.getPath("/" + BUCKET + "/large.bin"))) {
+            // odd write sizes cross chunk and part boundaries
+            for (var offset = 0; offset < data.length; offset += 777_777) {
+                out.write(data, offset, Math.min(777_777, data.length - offset));
+            }
+        }
+
+        assertArrayEquals(data, m_server.getObject(BUCKET, "large.bin"));
+        assertEquals(1, m_server.getRequestCount("CreateMultipartUpload"));
+        assertEquals(3, m_server.getRequestCount("UploadPart"));
+        // the chunks of the two part buffers are kept for the next upload
+        assertTrue(m_fs.getUploadBufferPool().getPooledChunkCount() > 0);
+
+        // the pooled chunks remain reserved in the transfer memory, which is exposed via JMX
+        final var transferMemory = m_fs.getClient().getMetrics().getTransferMemory();
+        assertTrue(transferMemory.get("reservedBytes") > 0);
+        assertTrue(transferMemory.get("peakReservedBytes") >= PART_SIZE);
+    }
+
+    @Test
+    public void test_streaming_starts_with_minimum_part_size() throws IOException {
+        m_fs = m_s3.reconnect(config -> {
+            config.setMultipartUploadPartSize(100 * 1024 * 1024);
+            config.setStreamingUpload(true);
+        });
+
+        // parts of 5 MB, 10 MB and the remaining 3 MB
+        final var data = randomBytes(18 * 1024 * 1024);
+        try (final var out = new S3OutputStream(m_fs.getPath("/" + BUCKET + "/growing.bin"))) {
+            out.write(data);
+        }
+
+        assertArrayEquals(data, m_server.getObject(BUCKET, "growing.bin"));
+        assertEquals(3, m_server.getRequestCount("UploadPart"));
+    }
+
+    @Test
+    public void test_small_upload_from_memory() throws IOException {
+        final var data = randomBytes(1000);
+        try (final var out = new S3OutputStream(m_fs.getPath("/" + BUCKET + "/small.bin"))) {
+            out.write(data);
+        }
+        new S3OutputStream(m_fs.getPath("/" + BUCKET + "/empty.bin")).close();
+
+        assertArrayEquals(data, m_server.getObject(BUCKET, "small.bin"));
+        assertEquals(0, m_server.getObjectSize(BUCKET, "empty.bin"));
+        assertEquals(2, m_server.getRequestCount("PutObject"));
+        assertEquals(0, m_server.getRequestCount("CreateMultipartUpload"));
+    }
+
+    @Test
+    public void test_exhausted_memory_budget_falls_back_to_temp_files() throws IOException {
+        m_fs = m_s3.reconnect(config -> {
+            configureStreaming(config);
+            config.setTransferMemoryLimit(UploadBufferPool.CHUNK_SIZE);
+        });
+
+        final var data = randomBytes(PART_SIZE + 1000);
+        try (final var out = new S3OutputStream(m_fs.getPath("/" + BUCKET + "/large.bin"))) {
+            out.write(data);
+        }
+
+        assertArrayEquals(data, m_server.getObject(BUCKET, "large.bin"));
+        final var budget = m_fs.getTransferMemoryBudget();
+        assertEquals(UploadBufferPool.CHUNK_SIZE, budget.getPeakReservedBytes());
+        assertTrue(budget.getDeniedAcquireCount() > 0);
+        // only the pooled chunk is still reserved
+        assertEquals(m_fs.getUploadBufferPool().getPooledChunkCount() * (long)UploadBufferPool.CHUNK_SIZE,
+            budget.getReservedBytes());
+    }
+}
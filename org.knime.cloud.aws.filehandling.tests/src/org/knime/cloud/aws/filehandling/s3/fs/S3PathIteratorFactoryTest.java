@@ -52,12 +52,15 @@
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.nio.file.DirectoryStream.Filter;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Iterator;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -68,6 +71,7 @@
 import software.amazon.awssdk.services.s3.model.CommonPrefix;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
 
 /**
  * Tests the directory listing functionality of the S3 file system, in particular the paging.
@@ -86,6 +90,7 @@ public class S3PathIteratorFactoryTest {
     public void beforeTestCase() {
         m_fs = mock(S3FileSystem.class);
         when(m_fs.getSeparator()).thenReturn(S3FileSystem.PATH_SEPARATOR);
+        when(m_fs.getListingIndex()).thenReturn(new ListingIndex(0, 0));
 
         m_client = mock(MultiRegionS3Client.class);
         when(m_fs.getClient()).thenReturn(m_client);
@@ -114,6 +119,51 @@ public void test_bucket_path_iterator_with_continuation() throws IOException {
         assertFalse(iter.hasNext());
     }
 
+    private static S3Object object(final String key) {
+        return S3Object.builder().key(key).size(1L).lastModified(Instant.ofEpochMilli(1000)).build();
+    }
+
+    private void listDirectory(final S3Object... objects) throws IOException {
+        when(m_client.listObjects(any(ListObjectsV2Request.class)))
+            .thenReturn(ListObjectsV2Response.builder().contents(objects).build());
+        final Iterator<S3Path> iter =
+            S3PathIteratorFactory.create(new S3Path(m_fs, "/mockbucket/dir/", new String[0]), ALL_FILTER);
+        while (iter.hasNext()) {
+            iter.next();
+        }
+    }
+
+    @Test
+    public void test_unsorted_listing_is_not_indexed() throws IOException {
+        final var index = new ListingIndex(1000, 100);
+        when(m_fs.getListingIndex()).thenReturn(index);
+
+        // an S3-compatible endpoint that does not list in UTF-8 byte order
+        listDirectory(object("dir/b.csv"), object("dir/a.csv"), object("dir/c.csv"));
+
+        // the listing is not complete in the index, so it must not report listed files as missing
+        assertEquals(ListingIndex.State.UNKNOWN, index.lookup("mockbucket", "dir/a.csv", false).getState());
+        assertEquals(ListingIndex.State.UNKNOWN, index.lookup("mockbucket", "dir/d.csv", false).getState());
+        // the files after the out-of-order name are cached as attributes instead
+        verify(m_fs).addToAttributeCache(eq(new S3Path(m_fs, "/mockbucket/dir/a.csv", new String[0])), any());
+        verify(m_fs).addToAttributeCache(eq(new S3Path(m_fs, "/mockbucket/dir/c.csv", new String[0])), any());
+    }
+
+    @Test
+    public void test_listing_too_large_for_index_falls_back_to_attribute_cache() throws IOException {
+        final var index = new ListingIndex(1000, 5);
+        when(m_fs.getListingIndex()).thenReturn(index);
+
+        final var objects = new S3Object[10];
+        for (var i = 0; i < objects.length; i++) {
+            objects[i] = object("dir/file" + i);
+        }
+        listDirectory(objects);
+
+        assertEquals(ListingIndex.State.UNKNOWN, index.lookup("mockbucket", "dir/missing", false).getState());
+        verify(m_fs).addToAttributeCache(eq(new S3Path(m_fs, "/mockbucket/dir/file9", new String[0])), any());
+    }
+
     private Bucket createDummyBucket(final String name) {
         return Bucket.builder().name(name).build();
     }
@@ -0,0 +1,190 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Server;
+
+/**
+ * Tests the {@link S3SpilledListing}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3SpilledListingTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    private static final int FILE_COUNT = 2500;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private S3FileSystem m_fs;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        for (var i = 0; i < FILE_COUNT; i++) {
+            m_server.putObject(BUCKET, String.format("dir/a/file%04d.csv", i), new byte[i % 7]);
+        }
+        m_server.putObject(BUCKET, "dir/b.csv", new byte[3]);
+        m_server.putObject(BUCKET, "dir/c/nested.csv", new byte[1]);
+        m_server.putObject(BUCKET, "other.csv", new byte[1]);
+        m_fs = m_s3.getFileSystem();
+    }
+
+    private S3Path path(final String key) {
+        return m_fs.getPath("/" + BUCKET + "/" + key);
+    }
+
+    @Test
+    public void test_recursive_listing_spans_pages() throws IOException {
+        try (final var listing = S3SpilledListing.create(path("dir"), true)) {
+            assertEquals(FILE_COUNT + 2, listing.size());
+            assertTrue(m_server.getRequestCount("ListObjectsV2") >= 3);
+
+            final List<S3SpilledListing.Entry> entries;
+            try (final var stream = listing.entries()) {
+                entries = stream.collect(Collectors.toList());
+            }
+            assertEquals(FILE_COUNT + 2, entries.size());
+            assertEquals("dir/a/file0000.csv", entries.get(0).getKey());
+            assertEquals("dir/a/file1234.csv", entries.get(1234).getKey());
+            assertEquals(1234 % 7, entries.get(1234).getSize());
+            assertEquals(path("dir/a/file1234.csv"), entries.get(1234).toPath());
+            assertEquals("dir/b.csv", entries.get(FILE_COUNT).getKey());
+            assertEquals("dir/c/nested.csv", entries.get(FILE_COUNT + 1).getKey());
+
+            // the listing can be iterated again without contacting S3
+            m_server.resetRequestCounts();
+            try (final var stream = listing.entries()) {
+                assertEquals(FILE_COUNT + 2, stream.count());
+            }
+            assertEquals(0, m_server.getRequestCount("ListObjectsV2"));
+        }
+    }
+
+    @Test
+    public void test_listing_merges_directories() throws IOException {
+        try (final var listing = S3SpilledListing.create(path("dir/"), false)) {
+            final List<String> keys;
+            final List<Boolean> directories;
+            try (final var stream = listing.entries()) {
+                final var entries = stream.collect(Collectors.toList());
+                keys = entries.stream().map(S3SpilledListing.Entry::getKey).collect(Collectors.toList());
+                directories = entries.stream().map(S3SpilledListing.Entry::isDirectory).collect(Collectors.toList());
+            }
+            assertEquals(List.of("dir/a/", "dir/b.csv", "dir/c/"), keys);
+            assertEquals(List.of(true, false, true), directories);
+        }
+    }
+
+    @Test
+    public void test_close_deletes_spill_file() throws IOException {
+        final var listing = S3SpilledListing.create(path(""), true);
+        assertEquals(FILE_COUNT + 3, listing.size());
+        listing.close();
+        assertThrows(NoSuchFileException.class, listing::entries);
+    }
+
+    @Test
+    public void test_failed_listing_is_resumed_from_checkpoint(@TempDir final Path tempDir) throws IOException {
+        final var checkpoint = tempDir.resolve("listing.checkpoint");
+        m_server.injectErrors("ListObjectsV2", 1, 1, 403, "AccessDenied");
+        assertThrows(IOException.class, () -> S3SpilledListing.createResumable(path("dir"), true, checkpoint));
+        assertTrue(Files.exists(checkpoint));
+
+        m_server.resetRequestCounts();
+        final var listing = S3SpilledListing.createResumable(path("dir"), true, checkpoint);
+        // only the pages after the first one are listed again
+        assertEquals(2, m_server.getRequestCount("ListObjectsV2"));
+        assertEquals(FILE_COUNT + 2, listing.size());
+        assertEquals("dir/c/nested.csv", listing.getLastKey());
+        try (final var stream = listing.entries()) {
+            final var keys = stream.map(S3SpilledListing.Entry::getKey).collect(Collectors.toList());
+            assertEquals(FILE_COUNT + 2, keys.size());
+            assertEquals(FILE_COUNT + 2, new TreeSet<>(keys).size());
+            assertEquals("dir/a/file0999.csv", keys.get(999));
+            assertEquals("dir/a/file1000.csv", keys.get(1000));
+        }
+        listing.close();
+
+        // a complete listing is reused as is
+        m_server.resetRequestCounts();
+        try (final var reused = S3SpilledListing.createResumable(path("dir"), true, checkpoint)) {
+            assertEquals(FILE_COUNT + 2, reused.size());
+            assertEquals(0, m_server.getRequestCount("ListObjectsV2"));
+            reused.delete();
+        }
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    public void test_checkpoint_of_other_listing_is_rejected(@TempDir final Path tempDir) throws IOException {
+        final var checkpoint = tempDir.resolve("listing.checkpoint");
+        S3SpilledListing.createResumable(path("dir"), false, checkpoint).close();
+        assertThrows(IOException.class, () -> S3SpilledListing.createResumable(path("dir"), true, checkpoint));
+    }
+}
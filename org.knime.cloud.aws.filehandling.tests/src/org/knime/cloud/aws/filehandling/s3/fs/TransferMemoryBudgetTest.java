@@ -0,0 +1,158 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link TransferMemoryBudget}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class TransferMemoryBudgetTest {
+
+    @Test
+    public void test_try_acquire_respects_limit() {
+        final var budget = new TransferMemoryBudget(100, new TransferMemoryBudget.Ceiling(1000));
+
+        assertTrue(budget.tryAcquire(60));
+        assertFalse(budget.tryAcquire(60));
+        assertTrue(budget.tryAcquire(40));
+        budget.release(60);
+        assertTrue(budget.tryAcquire(50));
+
+        assertEquals(90, budget.getReservedBytes());
+        assertEquals(100, budget.getPeakReservedBytes());
+        assertEquals(1, budget.getDeniedAcquireCount());
+    }
+
+    @Test
+    public void test_oversized_reservation_is_granted_when_idle() {
+        final var budget = new TransferMemoryBudget(100, new TransferMemoryBudget.Ceiling(1000));
+
+        assertTrue(budget.tryAcquire(500));
+        assertFalse(budget.tryAcquire(1));
+        budget.release(500);
+        assertEquals(0, budget.getReservedBytes());
+    }
+
+    @Test
+    public void test_ceiling_is_shared_by_budgets() {
+        final var ceiling = new TransferMemoryBudget.Ceiling(100);
+        final var first = new TransferMemoryBudget(80, ceiling);
+        final var second = new TransferMemoryBudget(80, ceiling);
+
+        assertTrue(first.tryAcquire(70));
+        assertFalse(second.tryAcquire(40));
+        assertTrue(second.tryAcquire(30));
+        assertEquals(100, first.getGlobalReservedBytes());
+    }
+
+    @Test
+    public void test_blocking_acquire_waits_for_release()
+        throws InterruptedException, ExecutionException, TimeoutException, InterruptedIOException {
+        final var budget = new TransferMemoryBudget(100, new TransferMemoryBudget.Ceiling(1000));
+        budget.acquire(100);
+
+        assertFalse(budget.tryAcquire(10, Duration.ofMillis(20)));
+
+        final var waiting = CompletableFuture.runAsync(() -> {
+            try {
+                budget.acquire(50);
+            } catch (InterruptedIOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        budget.release(100);
+        waiting.get(10, TimeUnit.SECONDS);
+        assertEquals(50, budget.getReservedBytes());
+        assertEquals(2, budget.getBlockedAcquireCount());
+        assertEquals(1, budget.getDeniedAcquireCount());
+    }
+
+    @Test
+    public void test_interrupted_acquire_restores_interrupt_flag() {
+        final var budget = new TransferMemoryBudget(100, new TransferMemoryBudget.Ceiling(1000));
+        budget.tryAcquire(100);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> budget.acquire(10));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void test_metrics_by_name() {
+        final var budget = new TransferMemoryBudget(100, new TransferMemoryBudget.Ceiling(1000));
+        budget.tryAcquire(60);
+        budget.tryAcquire(60);
+
+        final var metrics = budget.getMetrics();
+        assertEquals(100, metrics.get("limit"));
+        assertEquals(60, metrics.get("reservedBytes"));
+        assertEquals(60, metrics.get("peakReservedBytes"));
+        assertEquals(1, metrics.get("deniedAcquires"));
+        assertEquals(60, metrics.get("globalReservedBytes"));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.testing.LocalS3Extension;
+
+/**
+ * Tests the prefix extraction and matching of the {@link S3NameFilter} and its pushdown into the listing.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class S3NameFilterTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    @Test
+    public void test_glob_prefix() {
+        assertEquals("part-2024-10-", S3NameFilter.globPrefix("part-2024-10-*.parquet"));
+        assertEquals("file", S3NameFilter.globPrefix("file?.csv"));
+        assertEquals("data", S3NameFilter.globPrefix("data{1,2}.csv"));
+        assertEquals("a*b", S3NameFilter.globPrefix("a\\*b[0-9]"));
+        assertEquals("", S3NameFilter.globPrefix("*.csv"));
+        assertEquals("file.csv", S3NameFilter.globPrefix("file.csv"));
+    }
+
+    @Test
+    public void test_regex_prefix() {
+        assertEquals("part-2024-10-", S3NameFilter.regexPrefix("^part-2024-10-.*\\.parquet"));
+        assertEquals("file", S3NameFilter.regexPrefix("files?\\.csv"));
+        assertEquals("file.", S3NameFilter.regexPrefix("file\\.\\d+"));
+        assertEquals("", S3NameFilter.regexPrefix("a.csv|b.csv"));
+        assertEquals("x", S3NameFilter.regexPrefix("x(a|b)"));
+        assertEquals("", S3NameFilter.regexPrefix("\\d+"));
+        assertEquals("", S3NameFilter.ofRegex(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)).getNamePrefix());
+    }
+
+    @Test
+    public void test_glob_matching() {
+        final var filter = S3NameFilter.ofGlob("part-{a,b}-?[0-9].*");
+        assertTrue(filter.accept(Path.of("dir", "part-a-x1.parquet")));
+        assertTrue(filter.accept(Path.of("part-b-y2.csv")));
+        assertFalse(filter.accept(Path.of("part-c-x1.parquet")));
+        assertFalse(filter.accept(Path.of("part-a-xx.parquet")));
+        assertTrue(S3NameFilter.ofGlob("[!a]*").accept(Path.of("b")));
+        assertFalse(S3NameFilter.ofGlob("[!a]*").accept(Path.of("a")));
+    }
+
+    @Test
+    public void test_prefix_is_pushed_down() throws IOException {
+        final var server = m_s3.getServer();
+        server.putObject(BUCKET, "dir/part-2024-09-1.parquet", new byte[1]);
+        server.putObject(BUCKET, "dir/part-2024-10-1.parquet", new byte[1]);
+        server.putObject(BUCKET, "dir/part-2024-10-2.csv", new byte[1]);
+        server.putObject(BUCKET, "dir/part-2024-10-3.parquet", new byte[1]);
+
+        final var dir = m_s3.path("dir/");
+        assertTrue(Files.isDirectory(dir));
+        server.resetRequestCounts();
+
+        final List<String> names = new ArrayList<>();
+        try (final var stream = Files.newDirectoryStream(dir, S3NameFilter.ofGlob("part-2024-10-*.parquet"))) {
+            stream.forEach(p -> names.add(p.getFileName().toString()));
+        }
+        assertEquals(List.of("part-2024-10-1.parquet", "part-2024-10-3.parquet"), names);
+        // only the keys starting with the literal prefix are listed
+        assertEquals(3, server.getListedEntryCount());
+    }
+}
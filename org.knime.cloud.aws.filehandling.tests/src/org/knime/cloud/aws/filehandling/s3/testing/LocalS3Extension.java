@@ -0,0 +1,168 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.testing;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.knime.cloud.aws.filehandling.s3.fs.S3FSConnection;
+import org.knime.cloud.aws.filehandling.s3.fs.S3FileSystem;
+import org.knime.cloud.aws.filehandling.s3.fs.S3Path;
+import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig;
+
+/**
+ * Starts a {@link LocalS3Server} with the bucket {@value #BUCKET} before each test and connects an S3 file system to
+ * it. Both are closed after the test. Register it on a non-private field:
+ *
+ * <pre>
+ * &#64;RegisterExtension
+ * final LocalS3Extension m_s3 = new LocalS3Extension(config -&gt; config.setStreamingUpload(true));
+ * </pre>
+ *
+ * The extension runs before the <code>&#64;BeforeEach</code> methods of the test class, which can hence put the
+ * objects a test needs into the server.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class LocalS3Extension implements BeforeEachCallback, AfterEachCallback {
+
+    /** The bucket that is created for each test and is the working directory of the file system. */
+    public static final String BUCKET = "bucket";
+
+    private final Consumer<S3FSConnectionConfig> m_configurer;
+
+    private LocalS3Server m_server;
+
+    private S3FSConnection m_connection;
+
+    /**
+     * Creates an extension that connects with the default configuration of {@link LocalS3Server}.
+     */
+    public LocalS3Extension() {
+        this(config -> {
+        });
+    }
+
+    /**
+     * @param configurer adjusts the connection configuration before the file system is connected.
+     */
+    public LocalS3Extension(final Consumer<S3FSConnectionConfig> configurer) {
+        m_configurer = configurer;
+    }
+
+    @Override
+    public void beforeEach(final ExtensionContext context) throws IOException {
+        m_server = new LocalS3Server();
+        m_server.createBucket(BUCKET);
+        reconnect(m_configurer);
+    }
+
+    @Override
+    public void afterEach(final ExtensionContext context) {
+        if (m_connection != null) {
+            m_connection.close();
+            m_connection = null;
+        }
+        m_server.close();
+    }
+
+    /**
+     * Replaces the file system of the current test with one that uses a different configuration.
+     *
+     * @param configurer adjusts the connection configuration before the file system is connected.
+     * @return the new file system.
+     * @throws IOException if the file system could not be created.
+     */
+    public S3FileSystem reconnect(final Consumer<S3FSConnectionConfig> configurer) throws IOException {
+        if (m_connection != null) {
+            m_connection.close();
+            m_connection = null;
+        }
+        final var config = createConnectionConfig();
+        configurer.accept(config);
+        m_connection = new S3FSConnection(config);
+        return getFileSystem();
+    }
+
+    /**
+     * @return a new configuration for a connection to the server with the bucket as working directory.
+     */
+    public S3FSConnectionConfig createConnectionConfig() {
+        return m_server.createConnectionConfig("/" + BUCKET + "/");
+    }
+
+    /**
+     * @return the server of the current test.
+     */
+    public LocalS3Server getServer() {
+        return m_server;
+    }
+
+    /**
+     * @return the connection of the current test.
+     */
+    public S3FSConnection getConnection() {
+        return m_connection;
+    }
+
+    /**
+     * @return the file system of the current test.
+     */
+    public S3FileSystem getFileSystem() {
+        return (S3FileSystem)m_connection.getFileSystem();
+    }
+
+    /**
+     * @param key the object key in the bucket.
+     * @return the absolute path of the key.
+     */
+    public S3Path path(final String key) {
+        return getFileSystem().getPath("/" + BUCKET + "/" + key);
+    }
+}
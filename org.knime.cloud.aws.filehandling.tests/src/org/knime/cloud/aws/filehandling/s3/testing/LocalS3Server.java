@@ -0,0 +1,1356 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.testing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig;
+import org.knime.cloud.core.util.port.CloudConnectionInformation;
+import org.knime.core.util.KnimeEncryption;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process, in-memory stand-in for S3 that speaks enough of the REST API to run the S3 file system against it
+ * without network access or credentials. It implements the operations used by {@code MultiRegionS3Client}
+ * (ListBuckets, ListObjectsV2, HeadObject, GetObject with ranges, PutObject, CopyObject, DeleteObject,
+ * DeleteObjects, the multipart upload calls including UploadPartCopy, and the bucket calls) using path-style
+ * addressing. Signatures are not verified, but aws-chunked (streaming signed) request bodies are decoded.
+ *
+ * <p>
+ * For performance and fault testing, the server can delay every request, cap the bandwidth of request and response
+ * bodies, answer with 503 (SlowDown) above a request rate, inject random or a fixed number of errors and counts the
+ * requests it received per operation. With {@link #setDiscardContent(boolean)}, uploaded content is only counted,
+ * not stored, and downloads serve generated content, so transfers far beyond the available memory can be simulated.
+ * </p>
+ *
+ * <p>
+ * Use {@link #createConnectionConfig(String)} to obtain a configuration that points the S3 file system at the
+ * server in the same way the generic S3 connector does with an endpoint override.
+ * </p>
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class LocalS3Server implements AutoCloseable {
+
+    /** Region reported by the server and used by {@link #createConnectionConfig(String)}. */
+    public static final String REGION = "us-east-1";
+
+    private static final String ACCESS_KEY_ID = "local-access-key";
+
+    private static final String SECRET_ACCESS_KEY = "local-secret-key";
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    private static final String S3_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private static final String TAGGING_HEADER = "x-amz-tagging";
+
+    /** The request headers (besides user metadata and Content-Encoding) that are stored with an object. */
+    private static final Set<String> STORED_HEADERS = Set.of("content-type", "cache-control", "content-disposition",
+        "content-language", "expires", TAGGING_HEADER);
+
+    private static final int MAX_KEYS = 1000;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final DateTimeFormatter ISO_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT =
+        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final HttpServer m_server;
+
+    private final ExecutorService m_executor;
+
+    private final Map<String, Bucket> m_buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, MultipartUpload> m_uploads = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> m_requestCounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong m_listedEntries = new AtomicLong();
+
+    private final List<InjectedError> m_injectedErrors = new ArrayList<>();
+
+    private volatile long m_latencyNanos;
+
+    private volatile long m_bandwidth;
+
+    private volatile int m_maxRequestsPerSecond;
+
+    private volatile double m_errorRate;
+
+    private volatile boolean m_discardContent;
+
+    private final AtomicLong m_rateWindowStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger m_rateWindowCount = new AtomicInteger();
+
+    /**
+     * Creates and starts a server listening on an ephemeral port of the loopback interface.
+     *
+     * @throws IOException if the server socket could not be opened.
+     */
+    public LocalS3Server() throws IOException {
+        m_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        final var threadCount = new AtomicInteger();
+        m_executor = Executors.newCachedThreadPool(r -> {
+            final var thread = new Thread(r, "KNIME-Local-S3-Server-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_server.setExecutor(m_executor);
+        m_server.createContext("/", this::handle);
+        m_server.start();
+    }
+
+    /**
+     * @return the endpoint URL of the server.
+     */
+    public URI getEndpoint() {
+        return URI.create("http://" + m_server.getAddress().getHostString() + ":" + m_server.getAddress().getPort());
+    }
+
+    /**
+     * Creates a connection configuration that accesses this server through an endpoint override with path-style
+     * addressing, as configured by the generic S3 connector.
+     *
+     * @param workingDirectory the working directory of the file system.
+     * @return a new connection configuration.
+     */
+    public S3FSConnectionConfig createConnectionConfig(final String workingDirectory) {
+        final var connectionInfo = new CloudConnectionInformation();
+        connectionInfo.setProtocol("s3");
+        connectionInfo.setHost(REGION);
+        connectionInfo.setUser(ACCESS_KEY_ID);
+        try {
+            connectionInfo.setPassword(KnimeEncryption.encrypt(SECRET_ACCESS_KEY.toCharArray()));
+        } catch (Exception ex) { // NOSONAR encryption of a constant does not fail in practice
+            throw new IllegalStateException(ex);
+        }
+
+        final var config = new S3FSConnectionConfig(workingDirectory, connectionInfo);
+        config.setOverrideEndpoint(true);
+        config.setEndpointUrl(getEndpoint());
+        config.setPathStyle(true);
+        config.setNormalizePath(true);
+        return config;
+    }
+
+    /**
+     * Creates an empty bucket.
+     *
+     * @param bucket the bucket name.
+     */
+    public void createBucket(final String bucket) {
+        m_buckets.putIfAbsent(bucket, new Bucket());
+    }
+
+    /**
+     * Stores an object, creating the bucket if necessary.
+     *
+     * @param bucket the bucket name.
+     * @param key the object key.
+     * @param data the object content.
+     */
+    public void putObject(final String bucket, final String key, final byte[] data) {
+        m_buckets.computeIfAbsent(bucket, b -> new Bucket()).m_objects.put(key, new StoredObject(data, md5Hex(data)));
+    }
+
+    /**
+     * Stores an object with generated content of the given size, creating the bucket if necessary.
+     *
+     * @param bucket the bucket name.
+     * @param key the object key.
+     * @param size the object size in bytes.
+     */
+    public void putObject(final String bucket, final String key, final long size) {
+        m_buckets.computeIfAbsent(bucket, b -> new Bucket()).m_objects.put(key, StoredObject.generated(size));
+    }
+
+    /**
+     * @param bucket the bucket name.
+     * @param key the object key.
+     * @return the content of the object, or {@code null} if it does not exist or its content is generated.
+     */
+    public byte[] getObject(final String bucket, final String key) {
+        final var object = findObject(bucket, key);
+        return object == null ? null : object.m_data;
+    }
+
+    /**
+     * @param bucket the bucket name.
+     * @param key the object key.
+     * @return the size of the object in bytes, or -1 if it does not exist.
+     */
+    public long getObjectSize(final String bucket, final String key) {
+        final var object = findObject(bucket, key);
+        return object == null ? -1 : object.m_size;
+    }
+
+    /**
+     * Sets the stored headers of an object, i.e. its content type, Cache-Control, Content-Disposition,
+     * Content-Encoding, Content-Language, Expires, user metadata ({@code x-amz-meta-*}) and tags
+     * ({@code x-amz-tagging}, URL-encoded as in a PutObject request).
+     *
+     * @param bucket the bucket name.
+     * @param key the object key.
+     * @param headers the headers, with lower case names.
+     */
+    public void setObjectHeaders(final String bucket, final String key, final Map<String, String> headers) {
+        findObject(bucket, key).m_headers = new TreeMap<>(headers);
+    }
+
+    /**
+     * @param bucket the bucket name.
+     * @param key the object key.
+     * @return the stored headers of the object (see {@link #setObjectHeaders(String, String, Map)}), or {@code null}
+     *         if it does not exist.
+     */
+    public Map<String, String> getObjectHeaders(final String bucket, final String key) {
+        final var object = findObject(bucket, key);
+        return object == null ? null : object.m_headers;
+    }
+
+    private StoredObject findObject(final String bucket, final String key) {
+        final var b = m_buckets.get(bucket);
+        return b == null ? null : b.m_objects.get(key);
+    }
+
+    /**
+     * @param bucket the bucket name.
+     * @return the keys of all objects in the bucket, in lexicographic order.
+     */
+    public List<String> listKeys(final String bucket) {
+        final var b = m_buckets.get(bucket);
+        return b == null ? List.of() : new ArrayList<>(b.m_objects.keySet());
+    }
+
+    /**
+     * Only counts the bytes of uploaded objects instead of storing them. Such objects, like the ones created with
+     * {@link #putObject(String, String, long)}, are served with generated content.
+     *
+     * @param discardContent whether to discard uploaded content.
+     */
+    public void setDiscardContent(final boolean discardContent) {
+        m_discardContent = discardContent;
+    }
+
+    /**
+     * Delays every request by the given time before it is processed.
+     *
+     * @param latency the latency to add.
+     */
+    public void setLatency(final Duration latency) {
+        m_latencyNanos = latency.toNanos();
+    }
+
+    /**
+     * Caps the transfer rate of every request and response body.
+     *
+     * @param bytesPerSecond the cap per request, or 0 for no cap.
+     */
+    public void setBandwidth(final long bytesPerSecond) {
+        m_bandwidth = bytesPerSecond;
+    }
+
+    /**
+     * Answers requests above the given rate with 503 (SlowDown), in the way S3 throttles a busy prefix.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests per second, or 0 for no limit.
+     */
+    public void setMaxRequestsPerSecond(final int maxRequestsPerSecond) {
+        m_maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    /**
+     * Fails the given fraction of all requests with 500 (InternalError).
+     *
+     * @param errorRate the fraction of failing requests, between 0 and 1.
+     */
+    public void setErrorRate(final double errorRate) {
+        m_errorRate = errorRate;
+    }
+
+    /**
+     * Fails the next requests of an operation with the given error.
+     *
+     * @param operation the S3 operation name (e.g. "GetObject"), or {@code null} for any operation.
+     * @param count the number of requests to fail.
+     * @param status the HTTP status code to answer with.
+     * @param errorCode the S3 error code to answer with.
+     */
+    public void injectErrors(final String operation, final int count, final int status, final String errorCode) {
+        injectErrors(operation, 0, count, status, errorCode);
+    }
+
+    /**
+     * Fails requests of an operation with the given error after the given number of them succeeded.
+     *
+     * @param operation the S3 operation name (e.g. "GetObject"), or {@code null} for any operation.
+     * @param skip the number of requests to answer normally first.
+     * @param count the number of requests to fail.
+     * @param status the HTTP status code to answer with.
+     * @param errorCode the S3 error code to answer with.
+     */
+    public void injectErrors(final String operation, final int skip, final int count, final int status,
+        final String errorCode) {
+        injectErrors(operation, skip, count, status, errorCode, "Injected error");
+    }
+
+    /**
+     * Fails requests of an operation with the given error after the given number of them succeeded.
+     *
+     * @param operation the S3 operation name (e.g. "GetObject"), or {@code null} for any operation.
+     * @param skip the number of requests to answer normally first.
+     * @param count the number of requests to fail.
+     * @param status the HTTP status code to answer with.
+     * @param errorCode the S3 error code to answer with.
+     * @param message the error message to answer with.
+     */
+    public void injectErrors(final String operation, final int skip, final int count, final int status,
+        final String errorCode, final String message) {
+        synchronized (m_injectedErrors) {
+            m_injectedErrors.add(new InjectedError(operation, skip, count, status, errorCode, message));
+        }
+    }
+
+    /**
+     * @param operation the S3 operation name (e.g. "HeadObject").
+     * @return the number of requests of the operation received so far, including failed ones.
+     */
+    public long getRequestCount(final String operation) {
+        final var count = m_requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return the number of requests received so far per operation.
+     */
+    public Map<String, Long> getRequestCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        m_requestCounts.forEach((op, count) -> counts.put(op, count.get()));
+        return counts;
+    }
+
+    /**
+     * @return the number of keys and common prefixes returned by list requests so far.
+     */
+    public long getListedEntryCount() {
+        return m_listedEntries.get();
+    }
+
+    /**
+     * Resets all request counters and the listed entry count.
+     */
+    public void resetRequestCounts() {
+        m_requestCounts.clear();
+        m_listedEntries.set(0);
+    }
+
+    @Override
+    public void close() {
+        m_server.stop(0);
+        m_executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final var request = new Request(exchange);
+            m_requestCounts.computeIfAbsent(request.m_operation, op -> new AtomicLong()).incrementAndGet();
+
+            if (m_latencyNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(m_latencyNanos);
+            }
+
+            injectFaults(request);
+            dispatch(request);
+        } catch (InterruptedException ex) { // NOSONAR the server is shutting down
+            Thread.currentThread().interrupt();
+        } catch (S3Error error) {
+            sendError(exchange, error.m_status, error.m_code, error.getMessage());
+        } catch (RuntimeException ex) { // NOSONAR report any bug as server error
+            sendError(exchange, 500, "InternalError", ex.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void injectFaults(final Request request) {
+        synchronized (m_injectedErrors) {
+            for (var iter = m_injectedErrors.iterator(); iter.hasNext();) {
+                final var injected = iter.next();
+                if (injected.m_operation == null || injected.m_operation.equals(request.m_operation)) {
+                    if (injected.m_skip > 0) {
+                        injected.m_skip--;
+                        continue;
+                    }
+                    if (--injected.m_remaining <= 0) {
+                        iter.remove();
+                    }
+                    throw new S3Error(injected.m_status, injected.m_code, injected.m_message);
+                }
+            }
+        }
+
+        if (m_maxRequestsPerSecond > 0 && !acquireRequestSlot()) {
+            throw new S3Error(503, "SlowDown", "Please reduce your request rate.");
+        }
+
+        if (m_errorRate > 0 && ThreadLocalRandom.current().nextDouble() < m_errorRate) {
+            throw new S3Error(500, "InternalError", "We encountered an internal error. Please try again.");
+        }
+    }
+
+    private boolean acquireRequestSlot() {
+        final var now = System.nanoTime();
+        final var windowStart = m_rateWindowStart.get();
+        if (now - windowStart >= TimeUnit.SECONDS.toNanos(1) && m_rateWindowStart.compareAndSet(windowStart, now)) {
+            m_rateWindowCount.set(0);
+        }
+        return m_rateWindowCount.incrementAndGet() <= m_maxRequestsPerSecond;
+    }
+
+    private void dispatch(final Request r) throws IOException {
+        switch (r.m_operation) {
+            case "ListBuckets" -> listBuckets(r);
+            case "CreateBucket" -> createBucket(r);
+            case "DeleteBucket" -> deleteBucket(r);
+            case "HeadBucket" -> {
+                bucket(r.m_bucket);
+                r.sendEmpty(200);
+            }
+            case "GetBucketLocation" -> {
+                bucket(r.m_bucket);
+                r.sendXml(200, "<LocationConstraint xmlns=\"" + S3_NAMESPACE + "\"/>");
+            }
+            case "ListObjectsV2" -> listObjects(r);
+            case "DeleteObjects" -> deleteObjects(r);
+            case "HeadObject", "GetObject" -> getObject(r);
+            case "GetObjectTagging" -> getObjectTagging(r);
+            case "PutObject" -> putObject(r);
+            case "CopyObject" -> copyObject(r);
+            case "DeleteObject" -> {
+                bucket(r.m_bucket).m_objects.remove(r.m_key);
+                r.sendEmpty(204);
+            }
+            case "CreateMultipartUpload" -> createMultipartUpload(r);
+            case "UploadPart", "UploadPartCopy" -> uploadPart(r);
+            case "CompleteMultipartUpload" -> completeMultipartUpload(r);
+            case "AbortMultipartUpload" -> {
+                m_uploads.remove(r.query("uploadId"));
+                r.sendEmpty(204);
+            }
+            default -> throw new S3Error(501, "NotImplemented", r.m_operation + " is not supported.");
+        }
+    }
+
+    private Bucket bucket(final String name) {
+        final var bucket = m_buckets.get(name);
+        if (bucket == null) {
+            throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist.");
+        }
+        return bucket;
+    }
+
+    private StoredObject object(final String bucket, final String key) {
+        final var object = bucket(bucket).m_objects.get(key);
+        if (object == null) {
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        return object;
+    }
+
+    private void listBuckets(final Request r) throws IOException {
+        final var xml = new StringBuilder("<ListAllMyBucketsResult xmlns=\"" + S3_NAMESPACE + "\">")//
+            .append("<Owner><ID>local</ID><DisplayName>local</DisplayName></Owner><Buckets>");
+        new TreeMap<>(m_buckets).forEach((name, bucket) -> xml.append("<Bucket>")//
+            .append(element("Name", name))//
+            .append(element("CreationDate", ISO_FORMAT.format(bucket.m_created)))//
+            .append("</Bucket>"));
+        xml.append("</Buckets></ListAllMyBucketsResult>");
+        r.sendXml(200, xml.toString());
+    }
+
+    private void createBucket(final Request r) throws IOException {
+        if (m_buckets.putIfAbsent(r.m_bucket, new Bucket()) != null) {
+            throw new S3Error(409, "BucketAlreadyOwnedByYou", "The bucket already exists.");
+        }
+        r.exchange().getResponseHeaders().set("Location", "/" + r.m_bucket);
+        r.sendEmpty(200);
+    }
+
+    private void deleteBucket(final Request r) throws IOException {
+        if (!bucket(r.m_bucket).m_objects.isEmpty()) {
+            throw new S3Error(409, "BucketNotEmpty", "The bucket you tried to delete is not empty.");
+        }
+        m_buckets.remove(r.m_bucket);
+        r.sendEmpty(204);
+    }
+
+    private void listObjects(final Request r) throws IOException {
+        final var objects = bucket(r.m_bucket).m_objects;
+        final var prefix = r.queryOrDefault("prefix", "");
+        final var delimiter = r.queryOrDefault("delimiter", "");
+        final var maxKeys = Math.min(MAX_KEYS, Integer.parseInt(r.queryOrDefault("max-keys", "1000")));
+        final var continuationToken = r.query("continuation-token");
+        final var startAfter = r.query("start-after");
+        final var urlEncode = "url".equals(r.query("encoding-type"));
+
+        String marker = startAfter;
+        if (continuationToken != null) {
+            marker = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+        }
+
+        SortedMap<String, StoredObject> candidates = prefix.isEmpty() ? objects : objects.tailMap(prefix);
+        if (marker != null && compareKeys(marker, prefix) >= 0) {
+            candidates = objects.tailMap(marker, false);
+        }
+
+        final var contents = new StringBuilder();
+        final var commonPrefixes = new StringBuilder();
+        var count = 0;
+        String lastReturned = null;
+        var truncated = false;
+        for (final var entry : candidates.entrySet()) {
+            final var key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            final var delimiterIndex = delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            final var commonPrefix =
+                delimiterIndex < 0 ? null : key.substring(0, delimiterIndex + delimiter.length());
+            if (commonPrefix != null && commonPrefix.equals(lastReturned)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                commonPrefixes.append("<CommonPrefixes>")//
+                    .append(element("Prefix", encode(commonPrefix, urlEncode)))//
+                    .append("</CommonPrefixes>");
+                lastReturned = commonPrefix;
+            } else {
+                final var object = entry.getValue();
+                contents.append("<Contents>")//
+                    .append(element("Key", encode(key, urlEncode)))//
+                    .append(element("LastModified", ISO_FORMAT.format(object.m_lastModified)))//
+                    .append(element("ETag", '"' + object.m_etag + '"'))//
+                    .append(element("Size", Long.toString(object.m_size)))//
+                    .append(element("StorageClass", "STANDARD"))//
+                    .append("</Contents>");
+                lastReturned = key;
+            }
+            count++;
+        }
+
+        final var xml = new StringBuilder("<ListBucketResult xmlns=\"" + S3_NAMESPACE + "\">")//
+            .append(element("Name", r.m_bucket))//
+            .append(element("Prefix", encode(prefix, urlEncode)))//
+            .append(element("KeyCount", Integer.toString(count)))//
+            .append(element("MaxKeys", Integer.toString(maxKeys)))//
+            .append(element("IsTruncated", Boolean.toString(truncated)));
+        if (!delimiter.isEmpty()) {
+            xml.append(element("Delimiter", encode(delimiter, urlEncode)));
+        }
+        if (urlEncode) {
+            xml.append(element("EncodingType", "url"));
+        }
+        if (continuationToken != null) {
+            xml.append(element("ContinuationToken", continuationToken));
+        }
+        if (startAfter != null) {
+            xml.append(element("StartAfter", encode(startAfter, urlEncode)));
+        }
+        if (truncated) {
+            // the last returned key or common prefix; everything up to the end of a common prefix is skipped
+            final var next = lastReturned.endsWith(delimiter) && !delimiter.isEmpty()
+                ? (lastReturned + Character.MAX_VALUE) : lastReturned;
+            xml.append(element("NextContinuationToken",
+                Base64.getUrlEncoder().encodeToString(next.getBytes(StandardCharsets.UTF_8))));
+        }
+        xml.append(contents).append(commonPrefixes).append("</ListBucketResult>");
+        m_listedEntries.addAndGet(count);
+        r.sendXml(200, xml.toString());
+    }
+
+    private void deleteObjects(final Request r) throws IOException {
+        final var objects = bucket(r.m_bucket).m_objects;
+        final var document = parseXml(r.readBody());
+        final var quiet = "true".equals(text(document.getDocumentElement(), "Quiet"));
+
+        final var xml = new StringBuilder("<DeleteResult xmlns=\"" + S3_NAMESPACE + "\">");
+        final NodeList toDelete = document.getElementsByTagName("Object");
+        for (var i = 0; i < toDelete.getLength(); i++) {
+            final var key = text((Element)toDelete.item(i), "Key");
+            objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted>").append(element("Key", key)).append("</Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        r.sendXml(200, xml.toString());
+    }
+
+    private void getObject(final Request r) throws IOException {
+        final var object = object(r.m_bucket, r.m_key);
+        final var headers = r.exchange().getResponseHeaders();
+        headers.set("ETag", '"' + object.m_etag + '"');
+        headers.set("Last-Modified", HTTP_DATE_FORMAT.format(object.m_lastModified));
+        headers.set("Content-Type", "application/octet-stream");
+        headers.set("Accept-Ranges", "bytes");
+        object.m_headers.forEach((name, value) -> {
+            if (name.equals(TAGGING_HEADER)) {
+                headers.set("x-amz-tagging-count", Integer.toString(value.split("&").length));
+            } else {
+                headers.set(name, value);
+            }
+        });
+
+        final var length = object.m_size;
+        if (r.m_operation.equals("HeadObject")) {
+            headers.set("Content-Length", Long.toString(length));
+            r.exchange().sendResponseHeaders(200, -1);
+            return;
+        }
+
+        final var range = r.exchange().getRequestHeaders().getFirst("Range");
+        if (range == null) {
+            r.sendObject(200, object, 0, length);
+            return;
+        }
+
+        final long[] bounds = parseRange(range, length);
+        headers.set("Content-Range", "bytes " + bounds[0] + "-" + bounds[1] + "/" + length);
+        r.sendObject(206, object, bounds[0], bounds[1] - bounds[0] + 1);
+    }
+
+    private void getObjectTagging(final Request r) throws IOException {
+        final var tagging = object(r.m_bucket, r.m_key).m_headers.get(TAGGING_HEADER);
+        final var xml = new StringBuilder("<Tagging xmlns=\"" + S3_NAMESPACE + "\"><TagSet>");
+        if (tagging != null) {
+            for (final var tag : tagging.split("&")) {
+                final var eq = tag.indexOf('=');
+                xml.append("<Tag>") //
+                    .append(element("Key", URLDecoder.decode(tag.substring(0, eq), StandardCharsets.UTF_8))) //
+                    .append(element("Value", URLDecoder.decode(tag.substring(eq + 1), StandardCharsets.UTF_8))) //
+                    .append("</Tag>");
+            }
+        }
+        xml.append("</TagSet></Tagging>");
+        r.sendXml(200, xml.toString());
+    }
+
+    private static long[] parseRange(final String range, final long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            throw new S3Error(416, "InvalidRange", "Unsupported range: " + range);
+        }
+        final var spec = range.substring("bytes=".length());
+        final var dash = spec.indexOf('-');
+        long start;
+        long end;
+        if (dash == 0) {
+            start = Math.max(0, length - Long.parseLong(spec.substring(1)));
+            end = length - 1;
+        } else {
+            start = Long.parseLong(spec.substring(0, dash));
+            end = dash == spec.length() - 1 ? (length - 1)
+                : Math.min(length - 1, Long.parseLong(spec.substring(dash + 1)));
+        }
+        if (start >= length || start > end) {
+            throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable.");
+        }
+        return new long[]{start, end};
+    }
+
+    private void putObject(final Request r) throws IOException {
+        final var objects = bucket(r.m_bucket).m_objects;
+        final var object = r.readObject();
+        object.m_headers = r.objectHeaders();
+        objects.put(r.m_key, object);
+        r.exchange().getResponseHeaders().set("ETag", '"' + object.m_etag + '"');
+        r.sendEmpty(200);
+    }
+
+    private void copyObject(final Request r) throws IOException {
+        final var objects = bucket(r.m_bucket).m_objects;
+        final var source = copySource(r);
+        final var copy = source.slice(0, source.m_size);
+        final var requestHeaders = r.exchange().getRequestHeaders();
+        final var headers = new TreeMap<String, String>();
+        if ("REPLACE".equals(requestHeaders.getFirst("x-amz-metadata-directive"))) {
+            headers.putAll(r.objectHeaders());
+            headers.remove(TAGGING_HEADER);
+        } else {
+            headers.putAll(source.m_headers);
+            headers.remove(TAGGING_HEADER);
+        }
+        final var tagging = "REPLACE".equals(requestHeaders.getFirst("x-amz-tagging-directive"))
+            ? r.objectHeaders().get(TAGGING_HEADER) : source.m_headers.get(TAGGING_HEADER);
+        if (tagging != null) {
+            headers.put(TAGGING_HEADER, tagging);
+        }
+        copy.m_headers = headers;
+        objects.put(r.m_key, copy);
+        r.sendXml(200, "<CopyObjectResult xmlns=\"" + S3_NAMESPACE + "\">" //
+            + element("LastModified", ISO_FORMAT.format(copy.m_lastModified)) //
+            + element("ETag", '"' + copy.m_etag + '"') //
+            + "</CopyObjectResult>");
+    }
+
+    private StoredObject copySource(final Request r) {
+        var source = URLDecoder.decode(r.exchange().getRequestHeaders().getFirst("x-amz-copy-source"),
+            StandardCharsets.UTF_8);
+        if (source.startsWith("/")) {
+            source = source.substring(1);
+        }
+        final var versionIndex = source.indexOf("?versionId=");
+        if (versionIndex >= 0) {
+            source = source.substring(0, versionIndex);
+        }
+        final var slash = source.indexOf('/');
+        if (slash <= 0) {
+            throw new S3Error(400, "InvalidArgument", "Invalid copy source: " + source);
+        }
+        return object(source.substring(0, slash), source.substring(slash + 1));
+    }
+
+    private void createMultipartUpload(final Request r) throws IOException {
+        bucket(r.m_bucket);
+        final var uploadId = UUID.randomUUID().toString();
+        m_uploads.put(uploadId, new MultipartUpload(r.m_bucket, r.m_key, r.objectHeaders()));
+        r.sendXml(200, "<InitiateMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\">" //
+            + element("Bucket", r.m_bucket) //
+            + element("Key", r.m_key) //
+            + element("UploadId", uploadId) //
+            + "</InitiateMultipartUploadResult>");
+    }
+
+    private MultipartUpload upload(final Request r) {
+        final var upload = m_uploads.get(r.query("uploadId"));
+        if (upload == null || !upload.m_bucket.equals(r.m_bucket) || !upload.m_key.equals(r.m_key)) {
+            throw new S3Error(404, "NoSuchUpload", "The specified multipart upload does not exist.");
+        }
+        return upload;
+    }
+
+    private void uploadPart(final Request r) throws IOException {
+        final var upload = upload(r);
+        final var partNumber = Integer.parseInt(r.query("partNumber"));
+
+        if (r.m_operation.equals("UploadPart")) {
+            final var part = r.readObject();
+            upload.m_parts.put(partNumber, part);
+            r.exchange().getResponseHeaders().set("ETag", '"' + part.m_etag + '"');
+            r.sendEmpty(200);
+            return;
+        }
+
+        final var source = copySource(r);
+        final var range = r.exchange().getRequestHeaders().getFirst("x-amz-copy-source-range");
+        final long[] bounds = range == null ? new long[]{0, source.m_size - 1} : parseRange(range, source.m_size);
+        final var part = source.slice(bounds[0], bounds[1] - bounds[0] + 1);
+        upload.m_parts.put(partNumber, part);
+        r.sendXml(200, "<CopyPartResult xmlns=\"" + S3_NAMESPACE + "\">" //
+            + element("LastModified", ISO_FORMAT.format(part.m_lastModified)) //
+            + element("ETag", '"' + part.m_etag + '"') //
+            + "</CopyPartResult>");
+    }
+
+    private void completeMultipartUpload(final Request r) throws IOException {
+        final var upload = upload(r);
+        final var document = parseXml(r.readBody());
+        final NodeList parts = document.getElementsByTagName("Part");
+
+        final var content = new ByteArrayOutputStream();
+        final var etagDigest = md5();
+        long size = 0;
+        var generated = false;
+        for (var i = 0; i < parts.getLength(); i++) {
+            final var partNumber = Integer.parseInt(text((Element)parts.item(i), "PartNumber"));
+            final var part = upload.m_parts.get(partNumber);
+            if (part == null) {
+                throw new S3Error(400, "InvalidPart", "Part " + partNumber + " has not been uploaded.");
+            }
+            if (part.m_data == null) {
+                generated = true;
+            } else if (!generated) {
+                content.write(part.m_data);
+            }
+            size += part.m_size;
+            etagDigest.update(HexFormat.of().parseHex(part.m_etag));
+        }
+
+        final var etag = HexFormat.of().formatHex(etagDigest.digest()) + "-" + parts.getLength();
+        final var object =
+            generated ? new StoredObject(null, size, etag) : new StoredObject(content.toByteArray(), etag);
+        object.m_headers = upload.m_headers;
+        bucket(r.m_bucket).m_objects.put(r.m_key, object);
+        m_uploads.remove(r.query("uploadId"));
+        r.sendXml(200, "<CompleteMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\">" //
+            + element("Location", getEndpoint() + "/" + r.m_bucket + "/" + r.m_key) //
+            + element("Bucket", r.m_bucket) //
+            + element("Key", r.m_key) //
+            + element("ETag", '"' + etag + '"') //
+            + "</CompleteMultipartUploadResult>");
+    }
+
+    private static void sendError(final HttpExchange exchange, final int status, final String code,
+        final String message) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        final var body = (XML_HEADER + "<Error>" + element("Code", code) + element("Message", message)
+            + element("RequestId", UUID.randomUUID().toString()) + "</Error>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Document parseXml(final byte[] xml) {
+        try {
+            final var factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            throw new S3Error(400, "MalformedXML", ex.getMessage());
+        }
+    }
+
+    private static String text(final Element parent, final String tagName) {
+        final var elements = parent.getElementsByTagName(tagName);
+        return elements.getLength() == 0 ? null : elements.item(0).getTextContent();
+    }
+
+    private static String element(final String name, final String value) {
+        return "<" + name + ">" + escapeXml(value) + "</" + name + ">";
+    }
+
+    private static String escapeXml(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String encode(final String value, final boolean urlEncode) {
+        return urlEncode ? URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20") : value;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String md5Hex(final byte[] data) {
+        return HexFormat.of().formatHex(md5().digest(data));
+    }
+
+    /**
+     * A parsed request: operation, bucket, key and query parameters.
+     */
+    private final class Request {
+
+        private final HttpExchange m_exchange;
+
+        private final String m_bucket;
+
+        private final String m_key;
+
+        private final Map<String, String> m_query = new HashMap<>();
+
+        private final String m_operation;
+
+        Request(final HttpExchange exchange) {
+            m_exchange = exchange;
+
+            final var rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null) {
+                for (final var param : rawQuery.split("&")) {
+                    final var eq = param.indexOf('=');
+                    final var name = URLDecoder.decode(eq < 0 ? param : param.substring(0, eq), StandardCharsets.UTF_8);
+                    final var value = eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+                    m_query.put(name, value);
+                }
+            }
+
+            final var path = exchange.getRequestURI().getPath();
+            final var slash = path.indexOf('/', 1);
+            m_bucket = path.length() <= 1 ? null : path.substring(1, slash < 0 ? path.length() : slash);
+            m_key = slash < 0 || slash == path.length() - 1 ? null : path.substring(slash + 1);
+            m_operation = operation(exchange.getRequestMethod(), exchange.getRequestHeaders());
+        }
+
+        private String operation(final String method, final Headers headers) {
+            if (m_bucket == null) {
+                return "ListBuckets";
+            }
+            final var copy = headers.containsKey("x-amz-copy-source");
+            if (m_key == null) {
+                return switch (method) {
+                    case "PUT" -> "CreateBucket";
+                    case "DELETE" -> "DeleteBucket";
+                    case "HEAD" -> "HeadBucket";
+                    case "POST" -> m_query.containsKey("delete") ? "DeleteObjects" : "Unknown";
+                    default -> m_query.containsKey("location") ? "GetBucketLocation" : "ListObjectsV2";
+                };
+            }
+            return switch (method) {
+                case "HEAD" -> "HeadObject";
+                case "GET" -> m_query.containsKey("tagging") ? "GetObjectTagging" : "GetObject";
+                case "PUT" -> {
+                    if (m_query.containsKey("uploadId")) {
+                        yield copy ? "UploadPartCopy" : "UploadPart";
+                    }
+                    yield copy ? "CopyObject" : "PutObject";
+                }
+                case "POST" -> m_query.containsKey("uploads") ? "CreateMultipartUpload" : "CompleteMultipartUpload";
+                case "DELETE" -> m_query.containsKey("uploadId") ? "AbortMultipartUpload" : "DeleteObject";
+                default -> "Unknown";
+            };
+        }
+
+        HttpExchange exchange() {
+            return m_exchange;
+        }
+
+        String query(final String name) {
+            return m_query.get(name);
+        }
+
+        String queryOrDefault(final String name, final String defaultValue) {
+            return m_query.getOrDefault(name, defaultValue);
+        }
+
+        /**
+         * @return the headers of the request that are stored with the object, with lower case names.
+         */
+        Map<String, String> objectHeaders() {
+            final var headers = new TreeMap<String, String>();
+            m_exchange.getRequestHeaders().forEach((name, values) -> {
+                final var lowerCaseName = name.toLowerCase(Locale.ROOT);
+                final var value = values.get(0);
+                if (STORED_HEADERS.contains(lowerCaseName) || lowerCaseName.startsWith("x-amz-meta-")) {
+                    headers.put(lowerCaseName, value);
+                } else if (lowerCaseName.equals("content-encoding") && !value.contains("aws-chunked")) {
+                    headers.put(lowerCaseName, value);
+                }
+            });
+            return headers;
+        }
+
+        byte[] readBody() throws IOException {
+            final var out = new ByteArrayOutputStream();
+            readBody(out);
+            return out.toByteArray();
+        }
+
+        /**
+         * Reads the request body as object content, which is only counted if content is discarded.
+         */
+        StoredObject readObject() throws IOException {
+            if (m_discardContent) {
+                // the SDK validates the ETag of uploads, hence the MD5 digest is still needed
+                final var digest = md5();
+                final var size = readBody(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+                return new StoredObject(null, size, HexFormat.of().formatHex(digest.digest()));
+            }
+            final var data = readBody();
+            return new StoredObject(data, md5Hex(data));
+        }
+
+        /**
+         * Reads the request body, decoding aws-chunked content as sent by the SDK for streaming signed uploads.
+         */
+        private long readBody(final OutputStream out) throws IOException {
+            final var headers = m_exchange.getRequestHeaders();
+            final var sha256 = headers.getFirst("x-amz-content-sha256");
+            final var encoding = headers.getFirst("Content-Encoding");
+            final var awsChunked = (sha256 != null && sha256.startsWith("STREAMING-"))
+                || (encoding != null && encoding.contains("aws-chunked"));
+
+            final var in = throttled(m_exchange.getRequestBody());
+            if (!awsChunked) {
+                return in.transferTo(out);
+            }
+
+            final var buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            while (true) {
+                final var header = readLine(in);
+                final var semicolon = header.indexOf(';');
+                final var size = Long.parseLong(semicolon < 0 ? header.trim() : header.substring(0, semicolon), 16);
+                if (size == 0) {
+                    break;
+                }
+                for (long remaining = size; remaining > 0;) {
+                    final var read = in.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new EOFException("Unexpected end of aws-chunked body");
+                    }
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                total += size;
+                readLine(in);
+            }
+            // skip trailing headers (e.g. checksums) until the end of the body
+            in.transferTo(OutputStream.nullOutputStream());
+            return total;
+        }
+
+        void sendEmpty(final int status) throws IOException {
+            m_exchange.sendResponseHeaders(status, -1);
+        }
+
+        void sendXml(final int status, final String xml) throws IOException {
+            final var body = (XML_HEADER + xml).getBytes(StandardCharsets.UTF_8);
+            m_exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            sendBody(status, body, 0, body.length);
+        }
+
+        void sendBody(final int status, final byte[] data, final int offset, final int length) throws IOException {
+            m_exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+            try (final var out = throttled(m_exchange.getResponseBody())) {
+                out.write(data, offset, length);
+            }
+        }
+
+        void sendObject(final int status, final StoredObject object, final long offset, final long length)
+            throws IOException {
+            m_exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+            try (final var out = throttled(m_exchange.getResponseBody())) {
+                object.writeTo(out, offset, length);
+            }
+        }
+
+        private InputStream throttled(final InputStream in) {
+            final var bandwidth = m_bandwidth;
+            if (bandwidth <= 0) {
+                return in;
+            }
+            return new InputStream() {
+                private final Pacer m_pacer = new Pacer(bandwidth);
+
+                @Override
+                public int read() throws IOException {
+                    final var b = in.read();
+                    if (b >= 0) {
+                        m_pacer.transferred(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(final byte[] b, final int off, final int len) throws IOException {
+                    final var read = in.read(b, off, Math.min(len, BUFFER_SIZE));
+                    if (read > 0) {
+                        m_pacer.transferred(read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        private OutputStream throttled(final OutputStream out) {
+            final var bandwidth = m_bandwidth;
+            if (bandwidth <= 0) {
+                return out;
+            }
+            return new OutputStream() {
+                private final Pacer m_pacer = new Pacer(bandwidth);
+
+                @Override
+                public void write(final int b) throws IOException {
+                    out.write(b);
+                    m_pacer.transferred(1);
+                }
+
+                @Override
+                public void write(final byte[] b, final int off, final int len) throws IOException {
+                    for (var pos = off; pos < off + len; pos += BUFFER_SIZE) {
+                        final var chunk = Math.min(BUFFER_SIZE, off + len - pos);
+                        out.write(b, pos, chunk);
+                        m_pacer.transferred(chunk);
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+    }
+
+    private static String readLine(final InputStream in) throws IOException {
+        final var line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("Unexpected end of aws-chunked body");
+            }
+            if (c != '\r') {
+                line.append((char)c);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Sleeps as needed to keep a transfer at the configured bandwidth.
+     */
+    private static final class Pacer {
+
+        private final long m_bytesPerSecond;
+
+        private final long m_start = System.nanoTime();
+
+        private long m_bytes;
+
+        Pacer(final long bytesPerSecond) {
+            m_bytesPerSecond = bytesPerSecond;
+        }
+
+        void transferred(final long bytes) throws IOException {
+            m_bytes += bytes;
+            final var due = m_start + m_bytes * TimeUnit.SECONDS.toNanos(1) / m_bytesPerSecond;
+            final var wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", ex);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        private final Instant m_created = Instant.now();
+
+        // like S3, keys are ordered by their UTF-8 bytes
+        private final NavigableMap<String, StoredObject> m_objects =
+            new ConcurrentSkipListMap<>(LocalS3Server::compareKeys);
+    }
+
+    private static int compareKeys(final String first, final String second) {
+        return Arrays.compareUnsigned(first.getBytes(StandardCharsets.UTF_8), second.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class StoredObject {
+
+        /** Repeated to generate the content of objects whose content is not stored. */
+        private static final byte[] PATTERN = new byte[64 * 1024];
+
+        static {
+            new Random(0).nextBytes(PATTERN);
+        }
+
+        /** The content, or {@code null} if the content is generated. */
+        private final byte[] m_data;
+
+        private final long m_size;
+
+        private final String m_etag;
+
+        private final Instant m_lastModified = Instant.now();
+
+        /** The stored headers, with lower case names. */
+        private Map<String, String> m_headers = Map.of();
+
+        StoredObject(final byte[] data, final String etag) {
+            this(data, data.length, etag);
+        }
+
+        StoredObject(final byte[] data, final long size, final String etag) {
+            m_data = data;
+            m_size = size;
+            m_etag = etag;
+        }
+
+        static StoredObject generated(final long size) {
+            return new StoredObject(null, size, md5Hex(Long.toString(size).getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        StoredObject slice(final long offset, final long length) {
+            if (m_data == null) {
+                return generated(length);
+            }
+            final var data = Arrays.copyOfRange(m_data, (int)offset, (int)(offset + length));
+            return new StoredObject(data, md5Hex(data));
+        }
+
+        void writeTo(final OutputStream out, final long offset, final long length) throws IOException {
+            if (m_data != null) {
+                out.write(m_data, (int)offset, (int)length);
+                return;
+            }
+            for (long position = offset; position < offset + length;) {
+                final var patternOffset = (int)(position % PATTERN.length);
+                final var count = (int)Math.min(PATTERN.length - patternOffset, offset + length - position);
+                out.write(PATTERN, patternOffset, count);
+                position += count;
+            }
+        }
+    }
+
+    private static final class MultipartUpload {
+
+        private final String m_bucket;
+
+        private final String m_key;
+
+        private final Map<String, String> m_headers;
+
+        private final Map<Integer, StoredObject> m_parts = new ConcurrentHashMap<>();
+
+        MultipartUpload(final String bucket, final String key, final Map<String, String> headers) {
+            m_bucket = bucket;
+            m_key = key;
+            m_headers = headers;
+        }
+    }
+
+    private static final class InjectedError {
+
+        private final String m_operation;
+
+        private int m_skip;
+
+        private int m_remaining;
+
+        private final int m_status;
+
+        private final String m_code;
+
+        private final String m_message;
+
+        InjectedError(final String operation, final int skip, final int count, final int status, final String code,
+            final String message) {
+            m_operation = operation;
+            m_skip = skip;
+            m_remaining = count;
+            m_status = status;
+            m_code = code;
+            m_message = message;
+        }
+    }
+
+    /**
+     * An error answered with an S3 error document.
+     */
+    private static final class S3Error extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int m_status;
+
+        private final String m_code;
+
+        S3Error(final int status, final String code, final String message) {
+            super(message);
+            m_status = status;
+            m_code = code;
+        }
+    }
+}
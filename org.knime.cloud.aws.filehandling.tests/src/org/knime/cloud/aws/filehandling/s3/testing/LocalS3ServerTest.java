@@ -0,0 +1,223 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.testing;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.knime.cloud.aws.filehandling.s3.MultiRegionS3Client;
+
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Tests the {@link LocalS3Server} through the S3 file system and the {@link MultiRegionS3Client}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public class LocalS3ServerTest {
+
+    private static final String BUCKET = LocalS3Extension.BUCKET;
+
+    @RegisterExtension
+    final LocalS3Extension m_s3 = new LocalS3Extension();
+
+    private LocalS3Server m_server;
+
+    private MultiRegionS3Client m_client;
+
+    @BeforeEach
+    public void beforeTestCase() {
+        m_server = m_s3.getServer();
+        m_client = m_s3.getFileSystem().getClient();
+    }
+
+    private static byte[] bytes(final String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void test_file_system_roundtrip() throws IOException {
+        final var fs = m_s3.getFileSystem();
+        final Path file = fs.getPath("/" + BUCKET + "/dir/file.txt");
+
+        Files.createDirectories(file.getParent());
+        try (final var out = Files.newOutputStream(file)) {
+            out.write(bytes("hello world"));
+        }
+        try (final var in = Files.newInputStream(file)) {
+            assertArrayEquals(bytes("hello world"), in.readAllBytes());
+        }
+        assertEquals(11, Files.size(file));
+
+        final Path copy = fs.getPath("/" + BUCKET + "/dir/copy.txt");
+        Files.copy(file, copy);
+        assertArrayEquals(bytes("hello world"), m_server.getObject(BUCKET, "dir/copy.txt"));
+
+        final List<Path> children = new ArrayList<>();
+        try (final var stream = Files.newDirectoryStream(file.getParent())) {
+            stream.forEach(children::add);
+        }
+        assertEquals(List.of(copy, file), children);
+
+        Files.delete(copy);
+        assertFalse(Files.exists(copy));
+        assertEquals(List.of("dir/", "dir/file.txt"), m_server.listKeys(BUCKET));
+    }
+
+    @Test
+    public void test_ranged_get_and_multipart_upload() throws IOException {
+        final var uploadId = m_client.createMultipartUpload(BUCKET, "multi", null).uploadId();
+        final var part1 = m_client.uploadPart(BUCKET, "multi", uploadId, 1, RequestBody.fromBytes(bytes("abc")));
+        final var part2 = m_client.uploadPart(BUCKET, "multi", uploadId, 2, RequestBody.fromBytes(bytes("def")));
+        final List<CompletedPart> parts = new ArrayList<>();
+        parts.add(CompletedPart.builder().partNumber(2).eTag(part2.eTag()).build());
+        parts.add(CompletedPart.builder().partNumber(1).eTag(part1.eTag()).build());
+        m_client.completeMultipartUpload(BUCKET, "multi", uploadId, parts);
+
+        assertArrayEquals(bytes("abcdef"), m_server.getObject(BUCKET, "multi"));
+        assertTrue(m_client.headObject(BUCKET, "multi").eTag().endsWith("-2\""));
+
+        try (final var in = m_client.getObject(BUCKET, "multi")) {
+            assertArrayEquals(bytes("abcdef"), in.readAllBytes());
+        }
+        try (final var s3 = S3Client.builder() //
+            .endpointOverride(m_server.getEndpoint()) //
+            .region(Region.of(LocalS3Server.REGION)) //
+            .forcePathStyle(true) //
+            .credentialsProvider(AnonymousCredentialsProvider.create()) //
+            .build()) {
+            final var range = s3.getObjectAsBytes(b -> b.bucket(BUCKET).key("multi").range("bytes=2-4"));
+            assertEquals("cde", range.asUtf8String());
+            assertEquals("bytes 2-4/6", range.response().contentRange());
+        }
+    }
+
+    @Test
+    public void test_paged_listing_with_delimiter() {
+        for (var i = 0; i < 5; i++) {
+            m_server.putObject(BUCKET, "dir" + i + "/file", bytes("x"));
+            m_server.putObject(BUCKET, "dir" + i + "/other", bytes("x"));
+            m_server.putObject(BUCKET, "file" + i, bytes("x"));
+        }
+
+        final List<String> prefixes = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        String token = null;
+        var pages = 0;
+        do {
+            final var response = m_client.listObjects(ListObjectsV2Request.builder() //
+                .bucket(BUCKET) //
+                .delimiter("/") //
+                .maxKeys(3) //
+                .continuationToken(token) //
+                .build());
+            response.commonPrefixes().stream().map(CommonPrefix::prefix).forEach(prefixes::add);
+            response.contents().stream().map(S3Object::key).forEach(keys::add);
+            token = response.nextContinuationToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(4, pages);
+        assertEquals(List.of("dir0/", "dir1/", "dir2/", "dir3/", "dir4/"), prefixes);
+        assertEquals(List.of("file0", "file1", "file2", "file3", "file4"), keys);
+    }
+
+    @Test
+    public void test_injected_throttling_is_retried() {
+        m_server.putObject(BUCKET, "key", bytes("x"));
+        m_server.injectErrors("HeadObject", 2, 503, "SlowDown");
+
+        assertEquals(1L, m_client.headObject(BUCKET, "key").contentLength());
+        assertEquals(3, m_server.getRequestCount("HeadObject"));
+    }
+
+    @Test
+    public void test_injected_error_is_reported() {
+        m_server.injectErrors("DeleteObject", 1, 403, "AccessDenied");
+
+        final var ex = assertThrows(S3Exception.class, () -> m_client.deleteObject(BUCKET, "key"));
+        assertEquals(403, ex.statusCode());
+        assertEquals("AccessDenied", ex.awsErrorDetails().errorCode());
+    }
+
+    @Test
+    public void test_latency_and_bandwidth() throws IOException {
+        m_server.putObject(BUCKET, "key", new byte[64 * 1024]);
+        m_server.setLatency(Duration.ofMillis(100));
+        m_server.setBandwidth(256 * 1024);
+
+        final var start = System.nanoTime();
+        try (final var in = m_client.getObject(BUCKET, "key")) {
+            assertEquals(64 * 1024, in.readAllBytes().length);
+        }
+        m_client.headObject(BUCKET, "key");
+        final var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        // two requests with 100ms latency each plus 250ms transfer time
+        assertTrue(elapsed.toMillis() >= 400, "Latency and bandwidth were not applied: " + elapsed);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.knime.core.node.NodeLogger;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Client-side adaptive rate limiter for S3 requests.
+ *
+ * S3 throttles requests per key prefix by answering with HTTP 503 (SlowDown). Instead of letting every request retry
+ * on its own, the limiter paces all requests (including retries) to a throttled prefix using AIMD: the allowed rate is
+ * halved whenever throttling is observed and increased additively while no throttling happens. Once a prefix has not
+ * been throttled for a while and its limit is well above the actual request rate, pacing is lifted again.
+ *
+ * Only throttled prefixes are tracked: the first throttling response of a prefix starts measuring its request rate,
+ * which is halved when throttling persists. Requests to untracked prefixes only cost a lock-free map lookup, so
+ * unthrottled prefixes are never slowed down. A prefix is forgotten once its pacing has been lifted.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class AdaptiveRateLimiter {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(AdaptiveRateLimiter.class);
+
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    /** Lower bound for the allowed rate (requests per second). */
+    static final double MIN_RATE = 1.0;
+
+    private static final double DECREASE_FACTOR = 0.5;
+
+    /** Additive increase of the allowed rate, in requests per second per second without throttling. */
+    private static final double INCREASE_PER_SECOND = 10.0;
+
+    /** Throttling responses within this time after a decrease belong to the same burst and only count once. */
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Time without throttling after which pacing may be lifted. */
+    private static final long RELEASE_AFTER_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongSupplier m_clock;
+
+    /** The throttled prefixes, see {@link #onThrottled(String)}. */
+    private final Map<String, PrefixState> m_states = new ConcurrentHashMap<>();
+
+    AdaptiveRateLimiter() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param clock Supplies the current time in nanoseconds.
+     */
+    AdaptiveRateLimiter(final LongSupplier clock) {
+        m_clock = clock;
+    }
+
+    /**
+     * Derives the key under which requests are rate limited, i.e. the bucket and the "directory" of the object key.
+     *
+     * @param bucket The bucket name, may be <code>null</code>.
+     * @param key The object key or prefix, may be <code>null</code>.
+     * @return the rate limiting key, or <code>null</code> if the request does not target a bucket.
+     */
+    static String toPrefixKey(final String bucket, final String key) {
+        if (bucket == null) {
+            return null;
+        }
+        return bucket + "/" + (key == null ? "" : S3RequestMetrics.toKeyPrefix(key));
+    }
+
+    /**
+     * Blocks until a request to the given prefix may be sent.
+     *
+     * @param prefixKey The rate limiting key, see {@link #toPrefixKey(String, String)}.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void acquire(final String prefixKey) throws InterruptedException {
+        final long waitNanos = reserve(prefixKey);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves a slot for a request to the given prefix.
+     *
+     * @param prefixKey The rate limiting key.
+     * @return how many nanoseconds to wait before the request may be sent.
+     */
+    long reserve(final String prefixKey) {
+        final PrefixState state = m_states.get(prefixKey);
+        return state == null ? 0 : state.reserve();
+    }
+
+    /**
+     * Notifies the limiter that a request to the given prefix was throttled.
+     *
+     * @param prefixKey The rate limiting key.
+     */
+    void onThrottled(final String prefixKey) {
+        m_states.computeIfAbsent(prefixKey, PrefixState::new).onThrottled();
+    }
+
+    /**
+     * @param prefixKey The rate limiting key.
+     * @return the currently allowed requests per second, or {@link Double#POSITIVE_INFINITY} if not limited.
+     */
+    double getRateLimit(final String prefixKey) {
+        final PrefixState state = m_states.get(prefixKey);
+        return state == null ? Double.POSITIVE_INFINITY : state.getLimit();
+    }
+
+    /**
+     * @return the allowed requests per second of all currently limited prefixes.
+     */
+    Map<String, Double> getRateLimits() {
+        final Map<String, Double> limits = new HashMap<>();
+        m_states.forEach((prefix, state) -> {
+            final double limit = state.getLimit();
+            if (!Double.isInfinite(limit)) {
+                limits.put(prefix, limit);
+            }
+        });
+        return limits;
+    }
+
+    /**
+     * @return the number of prefixes that are currently tracked because they have been throttled.
+     */
+    int getTrackedPrefixCount() {
+        return m_states.size();
+    }
+
+    /**
+     * @return an {@link ExecutionInterceptor} that paces every HTTP attempt and reports throttling to this limiter.
+     */
+    ExecutionInterceptor createInterceptor() {
+        return new Interceptor();
+    }
+
+    private final class PrefixState {
+
+        private final String m_prefixKey;
+
+        /** When the prefix was throttled first, i.e. when measuring its request rate started. */
+        private final long m_trackedSince = m_clock.getAsLong();
+
+        private double m_limit = Double.POSITIVE_INFINITY;
+
+        private long m_windowStart = m_trackedSince;
+
+        private int m_windowCount;
+
+        private double m_lastWindowRate;
+
+        private long m_nextSlot;
+
+        private long m_lastAdjustment;
+
+        private long m_lastThrottle = m_trackedSince;
+
+        PrefixState(final String prefixKey) {
+            m_prefixKey = prefixKey;
+        }
+
+        synchronized long reserve() {
+            final long now = m_clock.getAsLong();
+            countRequest(now);
+
+            if (Double.isInfinite(m_limit)) {
+                // throttling did not persist after the rate started being measured
+                if (now - m_lastThrottle >= RELEASE_AFTER_NANOS) {
+                    m_states.remove(m_prefixKey, this);
+                }
+                return 0;
+            }
+
+            increase(now);
+            if (Double.isInfinite(m_limit)) {
+                m_states.remove(m_prefixKey, this);
+                return 0;
+            }
+
+            final long slot = Math.max(now, m_nextSlot);
+            m_nextSlot = slot + (long)(TimeUnit.SECONDS.toNanos(1) / m_limit);
+            return slot - now;
+        }
+
+        synchronized void onThrottled() {
+            final long now = m_clock.getAsLong();
+            final boolean limited = !Double.isInfinite(m_limit);
+
+            if (limited && now - m_lastThrottle < DECREASE_COOLDOWN_NANOS) {
+                return;
+            }
+            if (!limited && now - m_trackedSince < RATE_WINDOW_NANOS) {
+                // the request rate is not known yet
+                m_lastThrottle = now;
+                return;
+            }
+
+            final double base = limited ? m_limit : Math.max(currentRate(now), MIN_RATE);
+            m_limit = Math.max(MIN_RATE, base * DECREASE_FACTOR);
+            m_lastThrottle = now;
+            m_lastAdjustment = now;
+            LOGGER.debugWithFormat("S3 throttled requests to %s, limiting to %.1f requests/s", m_prefixKey, m_limit);
+        }
+
+        synchronized double getLimit() {
+            return m_limit;
+        }
+
+        private void countRequest(final long now) {
+            final long elapsed = now - m_windowStart;
+            if (elapsed >= RATE_WINDOW_NANOS) {
+                m_lastWindowRate = m_windowCount * (double)TimeUnit.SECONDS.toNanos(1) / elapsed;
+                m_windowStart = now;
+                m_windowCount = 0;
+            }
+            m_windowCount++;
+        }
+
+        private double currentRate(final long now) {
+            final long elapsed = Math.max(now - m_windowStart, RATE_WINDOW_NANOS);
+            final double currentWindowRate = m_windowCount * (double)TimeUnit.SECONDS.toNanos(1) / elapsed;
+            return Math.max(m_lastWindowRate, currentWindowRate);
+        }
+
+        private void increase(final long now) {
+            m_limit += INCREASE_PER_SECOND * (now - m_lastAdjustment) / TimeUnit.SECONDS.toNanos(1);
+            m_lastAdjustment = now;
+
+            if (now - m_lastThrottle >= RELEASE_AFTER_NANOS && m_limit >= 2 * currentRate(now)) {
+                m_limit = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    private final class Interceptor implements ExecutionInterceptor {
+
+        @Override
+        public void beforeTransmission(final Context.BeforeTransmission context,
+            final ExecutionAttributes executionAttributes) {
+            final String prefixKey = toPrefixKey(S3RequestTarget.bucket(context.request()),
+                S3RequestTarget.key(context.request()));
+            if (prefixKey == null) {
+                return;
+            }
+
+            try {
+                acquire(prefixKey);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AbortedException.builder().message("Interrupted while waiting for the S3 rate limit").cause(e)
+                    .build();
+            }
+        }
+
+        @Override
+        public void afterTransmission(final Context.AfterTransmission context,
+            final ExecutionAttributes executionAttributes) {
+            if (context.httpResponse().statusCode() == HTTP_SERVICE_UNAVAILABLE) {
+                final String prefixKey = toPrefixKey(S3RequestTarget.bucket(context.request()),
+                    S3RequestTarget.key(context.request()));
+                if (prefixKey != null) {
+                    onThrottled(prefixKey);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+
+/**
+ * Executes requests with hedging: if a request has not completed after a deadline derived from a percentile of the
+ * recently observed latencies, a duplicate request is started and the first successful response is used. The response
+ * of the slower request is discarded. The share of duplicate requests is capped by a budget.
+ *
+ * Hedging only makes sense for idempotent requests such as HEAD and GET. The number of duplicate requests is reported
+ * by {@link S3RequestMetrics#getHedgedRequestCount()}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class HedgedRequestExecutor {
+
+    private static final int SAMPLE_SIZE = 256;
+
+    /** Until this many latencies have been observed, requests are not hedged. */
+    private static final int MIN_SAMPLES = 32;
+
+    /** The deadline is re-computed after this many samples. */
+    private static final int DEADLINE_UPDATE_INTERVAL = 16;
+
+    private static final long MIN_DEADLINE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /** Hedges that may be issued on top of the budget, so that hedging also works right after startup. */
+    private static final int BUDGET_BURST = 10;
+
+    private final Executor m_executor;
+
+    private final double m_percentile;
+
+    private final double m_budget;
+
+    private final long[] m_samples = new long[SAMPLE_SIZE];
+
+    private int m_sampleCount;
+
+    private int m_nextSample;
+
+    private volatile long m_deadlineNanos = -1;
+
+    private final AtomicLong m_requests = new AtomicLong();
+
+    private final AtomicLong m_hedges = new AtomicLong();
+
+    /**
+     * @param executor Executor to run the requests on.
+     * @param percentile Percentile (between 0 and 1) of the observed latencies after which a request is hedged.
+     * @param budget Maximum share (between 0 and 1) of duplicate requests relative to all requests.
+     */
+    HedgedRequestExecutor(final Executor executor, final double percentile, final double budget) {
+        m_executor = executor;
+        m_percentile = percentile;
+        m_budget = budget;
+    }
+
+    /**
+     * Executes the given request, possibly twice. The response of the slower request is simply dropped.
+     *
+     * @param request The request to execute. Must be idempotent.
+     * @return the response of the request that completed first.
+     */
+    <T> T execute(final Supplier<T> request) {
+        return execute(request, r -> {
+            // nothing to release
+        });
+    }
+
+    /**
+     * Executes the given request, possibly twice.
+     *
+     * @param request The request to execute. Must be idempotent.
+     * @param discard Releases the response of a request that lost the race (e.g. closes a stream). Only invoked for
+     *            non-<code>null</code> responses.
+     * @return the response of the request that completed first.
+     */
+    <T> T execute(final Supplier<T> request, final Consumer<T> discard) {
+        m_requests.incrementAndGet();
+
+        final long deadline = m_deadlineNanos;
+        if (deadline < 0) {
+            return timed(request).get();
+        }
+
+        final CompletableFuture<T> primary = CompletableFuture.supplyAsync(timed(request), m_executor);
+        try {
+            return primary.get(deadline, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) { // NOSONAR the request is hedged below
+            if (!tryAcquireHedge()) {
+                return await(primary, discard);
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            throw interrupted(e, primary, discard);
+        }
+
+        // the latency of the hedge is a regular sample, it has not been selected for being slow
+        final CompletableFuture<T> hedge = CompletableFuture.supplyAsync(timed(request), m_executor);
+        // the loser is discarded by firstSuccessful, the winner by await if the caller is interrupted
+        return await(firstSuccessful(primary, hedge, discard), discard);
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(final CompletableFuture<T> primary,
+        final CompletableFuture<T> hedge, final Consumer<T> discard) {
+
+        final var winner = new CompletableFuture<T>();
+        final var pending = new AtomicInteger(2);
+
+        final BiConsumer<T, Throwable> onComplete = (result, ex) -> {
+            if (ex == null) {
+                if (!winner.complete(result) && result != null) {
+                    discard.accept(result);
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                winner.completeExceptionally(ex);
+            }
+        };
+
+        primary.whenComplete(onComplete);
+        hedge.whenComplete(onComplete);
+        return winner;
+    }
+
+    private <T> Supplier<T> timed(final Supplier<T> request) {
+        return () -> {
+            final long start = System.nanoTime();
+            final T result = request.get();
+            recordLatency(System.nanoTime() - start);
+            return result;
+        };
+    }
+
+    private boolean tryAcquireHedge() {
+        while (true) {
+            final long hedges = m_hedges.get();
+            if (hedges >= m_budget * m_requests.get() + BUDGET_BURST) {
+                return false;
+            }
+            if (m_hedges.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void recordLatency(final long latencyNanos) {
+        m_samples[m_nextSample] = latencyNanos;
+        m_nextSample = (m_nextSample + 1) % SAMPLE_SIZE;
+        m_sampleCount++;
+
+        if (m_sampleCount >= MIN_SAMPLES && m_sampleCount % DEADLINE_UPDATE_INTERVAL == 0) {
+            final long[] sorted = Arrays.copyOf(m_samples, Math.min(m_sampleCount, SAMPLE_SIZE));
+            Arrays.sort(sorted);
+            final var index = Math.min(sorted.length - 1, (int)Math.ceil(m_percentile * sorted.length) - 1);
+            m_deadlineNanos = Math.max(MIN_DEADLINE_NANOS, sorted[Math.max(0, index)]);
+        }
+    }
+
+    /**
+     * @return the number of requests executed so far.
+     */
+    long getRequestCount() {
+        return m_requests.get();
+    }
+
+    /**
+     * @return the number of duplicate requests issued so far.
+     */
+    long getHedgeCount() {
+        return m_hedges.get();
+    }
+
+    private static <T> T await(final CompletableFuture<T> future, final Consumer<T> discard) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            throw interrupted(e, future, discard);
+        }
+    }
+
+    /**
+     * Restores the interrupt flag and makes sure that the response of the abandoned request is released once it
+     * arrives, e.g. so that its pooled connection is returned.
+     */
+    private static <T> AbortedException interrupted(final InterruptedException e, final CompletableFuture<T> pending,
+        final Consumer<T> discard) {
+        Thread.currentThread().interrupt();
+        pending.whenComplete((result, ex) -> {
+            if (result != null) {
+                discard.accept(result);
+            }
+        });
+        return AbortedException.builder().message("Interrupted while waiting for S3 response").cause(e).build();
+    }
+
+    private static RuntimeException unwrap(final Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException)cause;
+        } else if (cause instanceof Error) {
+            throw (Error)cause;
+        } else {
+            return new CompletionException(cause);
+        }
+    }
+}
@@ -51,15 +51,33 @@
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig;
 import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig.SSEMode;
@@ -68,6 +86,8 @@
 
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
@@ -89,21 +109,37 @@
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
 
 /**
  * Class provides access to S3 API with several additional features:
  * <ul>
  * <li>Multiregion support. Additional {@link S3Client} instances are created for accessing buckets from the different
  * regions (when needed). Appropriate client is selected to make calls depending on the bucket region.</li>
+ * <li>Adaptive rate limiting. Requests to a bucket and key prefix that S3 throttles (HTTP 503 SlowDown) are paced on
+ * the client side, see {@link #getRateLimits()}.</li>
+ * <li>Optional request hedging. Slow HEAD and GET requests are duplicated and the first response is used, see
+ * {@link S3FSConnectionConfig#isHedgedRequests()}.</li>
+ * <li>Request coalescing. Concurrent identical HEAD and list requests, e.g. from several threads checking the same
+ * path, share a single request and its response.</li>
  * <li>Server-side encryption. Appropriate headers included when necessary if SSE is enabled in settings</li>
+ * <li>Bulk operations. Large objects are copied in parallel parts and many objects are deleted with concurrent
+ * batched requests, see {@link #copyObject(String, String, String, String, long)} and
+ * {@link #deleteObjects(String, List)}.</li>
  * <li>Workaround for 'list-buckets' permission restrictions. <code>getBucket</code> method is implemented that way that
  * a dummy {@link Bucket} object is returned in case when bucket exists, but cannot be retrieved since user is lacking
- * 'list-buckets' permission</li>
+ * 'list-buckets' permission. Whether the permission is present is probed lazily (or in the background, see
+ * {@link #warmUpAsync(String)}) and only once per client.</li>
  * </ul>
  *
  * @author Alexander Bondaletov
@@ -113,6 +149,25 @@ public class MultiRegionS3Client implements AutoCloseable {
 
     private static final String AES256 = "AES256";
 
+    /** The maximum object size S3 can copy with a single CopyObject request. */
+    private static final long MAX_SINGLE_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
+    private static final long MIN_COPY_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final int MAX_PARTS = 10000;
+
+    /** The maximum number of keys of a DeleteObjects request. */
+    private static final int MAX_DELETE_BATCH_SIZE = 1000;
+
+    /** The maximum number of concurrent DeleteObjects requests of a bulk delete. */
+    private static final int DELETE_PARALLELISM = 4;
+
+    /**
+     * The maximum size of objects whose GET requests are hedged. A hedged GET may download the object twice (until the
+     * slower stream is aborted), which is only acceptable for small objects.
+     */
+    private static final long MAX_HEDGED_GET_SIZE = 1024 * 1024;
+
     private final Duration m_socketTimeout;
 
     private final CloudConnectionInformation m_connectionInfo;
@@ -131,11 +186,15 @@ public class MultiRegionS3Client implements AutoCloseable {
 
     private final Map<OptionalRegion, S3Client> m_clientByRegion;
 
+    private final Map<OptionalRegion, S3Presigner> m_presignerByRegion;
+
+    private final AwsCredentialsProvider m_credentialsProvider;
+
     private final OptionalRegion m_defaultRegion;
 
     private final S3Client m_defaultClient;
 
-    private final S3Client m_pathStyleClient;
+    private S3Client m_pathStyleClient;
 
     private final boolean m_endpointOverride;
 
@@ -143,7 +202,27 @@ public class MultiRegionS3Client implements AutoCloseable {
 
     private final boolean m_pathStyle;
 
-    private final boolean m_hasListBucketPermission;
+    private final AtomicReference<CompletableFuture<Boolean>> m_listBucketPermission;
+
+    private final ExecutorService m_executor;
+
+    private final AdaptiveRateLimiter m_rateLimiter;
+
+    private final S3RequestMetrics m_metrics;
+
+    private final HedgedRequestExecutor m_headHedging;
+
+    private final HedgedRequestExecutor m_getHedging;
+
+    private final SingleFlight<String, HeadObjectResponse> m_headFlights = new SingleFlight<>();
+
+    private final SingleFlight<ListObjectsV2Request, ListObjectsV2Response> m_listFlights = new SingleFlight<>();
+
+    private final long m_multipartCopyThreshold;
+
+    private final long m_multipartCopyPartSize;
+
+    private final int m_multipartCopyParallelism;
 
     /**
      * @param config
@@ -163,16 +242,46 @@ public MultiRegionS3Client(final S3FSConnectionConfig config) throws IOException
 
         m_regionByBucket = new ConcurrentHashMap<>();
         m_clientByRegion = new ConcurrentHashMap<>();
+        m_presignerByRegion = new ConcurrentHashMap<>();
+
+        // shared by all clients and presigners, so that credentials (possibly obtained via STS) are only fetched once
+        m_credentialsProvider = AwsUtils.getCredentialProvider(m_connectionInfo);
 
         m_endpointOverride = config.overrideEndpoint();
         m_endpointURL = config.getEndpointUrl();
         m_pathStyle = config.usePathStyle();
 
+        m_rateLimiter = new AdaptiveRateLimiter();
+        m_metrics = new S3RequestMetrics(m_rateLimiter::getRateLimits, this::getHedgedRequestCount);
+
         m_defaultRegion = OptionalRegion.of(config.getConnectionInfo().getHost());
         m_defaultClient = getClientForRegion(m_defaultRegion);
-        m_pathStyleClient = createClientForRegion(m_defaultRegion, true);
 
-        m_hasListBucketPermission = testListBucketPermissions();
+        m_multipartCopyThreshold = Math.min(config.getMultipartCopyThreshold(), MAX_SINGLE_COPY_SIZE);
+        m_multipartCopyPartSize = Math.max(config.getMultipartCopyPartSize(), MIN_COPY_PART_SIZE);
+        m_multipartCopyParallelism = Math.max(config.getMultipartCopyParallelism(), 1);
+
+        m_listBucketPermission = new AtomicReference<>();
+        m_executor = Executors.newCachedThreadPool(createThreadFactory());
+
+        if (config.isHedgedRequests()) {
+            m_headHedging =
+                new HedgedRequestExecutor(m_executor, config.getHedgingPercentile(), config.getHedgingBudget());
+            m_getHedging =
+                new HedgedRequestExecutor(m_executor, config.getHedgingPercentile(), config.getHedgingBudget());
+        } else {
+            m_headHedging = null;
+            m_getHedging = null;
+        }
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        final var threadCount = new AtomicInteger();
+        return r -> {
+            final var thread = new Thread(r, "KNIME-S3-Client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     private static String computeCustomerKeyMD5(final String customerKey) throws IOException {
@@ -203,8 +312,12 @@ private S3Client createClientForRegion(final OptionalRegion region, final boolea
             .connectionTimeToLive(m_socketTimeout);
 
         final var builder = S3Client.builder()//
-            .credentialsProvider(AwsUtils.getCredentialProvider(m_connectionInfo))//
-            .httpClientBuilder(httpClientBuilder);//
+            .credentialsProvider(m_credentialsProvider)//
+            .httpClientBuilder(httpClientBuilder)//
+            .overrideConfiguration(o -> o.addExecutionInterceptor(m_rateLimiter.createInterceptor())//
+                .addExecutionInterceptor(m_metrics.createInterceptor())//
+                .addExecutionInterceptor(S3RequestEvent.createInterceptor())//
+                .addMetricPublisher(m_metrics));
 
         if (m_endpointOverride) {
             builder.endpointOverride(m_endpointURL);
@@ -221,6 +334,13 @@ private S3Client createClientForRegion(final OptionalRegion region, final boolea
         return builder.build();
     }
 
+    private synchronized S3Client getPathStyleClient() {
+        if (m_pathStyleClient == null) {
+            m_pathStyleClient = createClientForRegion(m_defaultRegion, true);
+        }
+        return m_pathStyleClient;
+    }
+
     private boolean testListBucketPermissions() {
         var canListBucketsInAccount = false;
 
@@ -238,6 +358,156 @@ private boolean testListBucketPermissions() {
         return canListBucketsInAccount;
     }
 
+    /**
+     * Returns whether the credentials allow to list the buckets of the account. The permission is probed on first
+     * access only, later calls (also from other threads) reuse the outcome of the first probe.
+     *
+     * @return <code>true</code> if buckets can be listed, <code>false</code> otherwise.
+     * @throws SdkException if the probe failed for a different reason than missing permissions. In this case the
+     *             probe is repeated on the next call.
+     */
+    public boolean hasListBucketPermission() {
+        final CompletableFuture<Boolean> probe = startListBucketPermissionProbe(false);
+        try {
+            return probe.join();
+        } catch (CompletionException e) {
+            if (m_listBucketPermission.compareAndSet(probe, null)) {
+                throw unwrapProbeFailure(e);
+            }
+            // a failed background probe resets itself, its failure is not reported but the probe is repeated
+            final CompletableFuture<Boolean> retry = startListBucketPermissionProbe(false);
+            try {
+                return retry.join();
+            } catch (CompletionException retryException) {
+                m_listBucketPermission.compareAndSet(retry, null);
+                throw unwrapProbeFailure(retryException);
+            }
+        }
+    }
+
+    private static RuntimeException unwrapProbeFailure(final CompletionException e) {
+        return e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+    }
+
+    private CompletableFuture<Boolean> startListBucketPermissionProbe(final boolean async) {
+        final var newProbe = new CompletableFuture<Boolean>();
+        if (!m_listBucketPermission.compareAndSet(null, newProbe)) {
+            return m_listBucketPermission.get();
+        }
+
+        final Runnable runProbe = () -> {
+            try {
+                newProbe.complete(testListBucketPermissions());
+            } catch (RuntimeException e) { // NOSONAR rethrown by hasListBucketPermission()
+                if (async) {
+                    // the failure must not be seen by the first actual use, see warmUpAsync(String)
+                    m_listBucketPermission.compareAndSet(newProbe, null);
+                }
+                newProbe.completeExceptionally(e);
+            }
+        };
+
+        if (async) {
+            m_executor.execute(runProbe);
+        } else {
+            runProbe.run();
+        }
+        return newProbe;
+    }
+
+    /**
+     * Tests the connection by listing the buckets of the account. In contrast to {@link #listBuckets()} the outcome is
+     * remembered, so that {@link #getBucket(String)} does not need to probe the 'list-buckets' permission again.
+     *
+     * @throws SdkException if listing the buckets failed.
+     */
+    public void testConnection() {
+        try {
+            listBuckets();
+            m_listBucketPermission.compareAndSet(null, CompletableFuture.completedFuture(true));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 403) {
+                m_listBucketPermission.compareAndSet(null, CompletableFuture.completedFuture(false));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Warms up the connection in the background: resolves the credentials, establishes the first connection to the
+     * endpoint (DNS, TLS) while probing the 'list-buckets' permission, and resolves the region of the given bucket.
+     * Failures are only logged, the respective steps are simply repeated once the client is actually used.
+     *
+     * @param bucket The bucket whose region should be resolved, may be <code>null</code>.
+     * @return a future that completes once the warm-up is done. It never completes exceptionally.
+     */
+    public CompletableFuture<Void> warmUpAsync(final String bucket) {
+        final CompletableFuture<Void> permissionProbe = startListBucketPermissionProbe(true)//
+            .handle((canList, ex) -> {
+                if (ex != null) {
+                    LOGGER.debug("Could not probe list-buckets permission in the background", ex);
+                }
+                return null;
+            });
+
+        if (bucket == null) {
+            return permissionProbe;
+        }
+
+        final CompletableFuture<Void> regionLookup = CompletableFuture.runAsync(() -> {
+            try {
+                getRegionForBucket(bucket);
+            } catch (SdkException e) {
+                LOGGER.debug("Could not resolve region of bucket " + bucket + " in the background", e);
+            }
+        }, m_executor);
+
+        return CompletableFuture.allOf(permissionProbe, regionLookup);
+    }
+
+    /**
+     * Returns the request rates to which the client currently limits itself because S3 throttled requests. Keys are of
+     * the form <code>bucket/prefix/</code>, values are in requests per second. Prefixes that are not throttled are not
+     * contained.
+     *
+     * @return the current rate limits.
+     */
+    public Map<String, Double> getRateLimits() {
+        return m_rateLimiter.getRateLimits();
+    }
+
+    /**
+     * @return the request metrics of this client.
+     */
+    public S3RequestMetrics getMetrics() {
+        return m_metrics;
+    }
+
+    /**
+     * @return the executor of this client for blocking requests in the background. It has no bound on the number of
+     *         threads, so callers have to limit how many tasks they run concurrently.
+     */
+    public Executor getExecutor() {
+        return m_executor;
+    }
+
+    /**
+     * @return the number of duplicate HEAD and GET requests sent by request hedging.
+     */
+    public long getHedgedRequestCount() {
+        if (m_headHedging == null) {
+            return 0;
+        }
+        return m_headHedging.getHedgeCount() + m_getHedging.getHedgeCount();
+    }
+
+    /**
+     * @return the number of HEAD and list requests that were not sent because an identical request was in flight.
+     */
+    public long getCoalescedRequestCount() {
+        return m_headFlights.getCoalescedCount() + m_listFlights.getCoalescedCount();
+    }
+
     /**
      * List buckets.
      *
@@ -253,7 +523,7 @@ public ListBucketsResponse listBuckets() {
      */
     @SuppressWarnings("resource")
     public ListObjectsV2Response listObjects(final ListObjectsV2Request request) {
-        return getClientForBucket(request.bucket()).listObjectsV2(request);
+        return m_listFlights.execute(request, () -> getClientForBucket(request.bucket()).listObjectsV2(request));
     }
 
     /**
@@ -264,7 +534,7 @@ public ListObjectsV2Response listObjects(final ListObjectsV2Request request) {
      * @return The {@link Bucket} object.
      */
     public Bucket getBucket(final String bucket) {
-        if (m_hasListBucketPermission) {
+        if (hasListBucketPermission()) {
             return fetchBucket(bucket);
         } else {
             return doesBucketExist(bucket) ? Bucket.builder().build() : null;
@@ -295,7 +565,15 @@ private boolean doesBucketExist(final String bucket) {
      * @return The head object response.
      */
     public HeadObjectResponse headObject(final String bucket, final String key) {
+        return m_headFlights.execute(bucket + '/' + key, () -> {
+            if (m_headHedging != null) {
+                return m_headHedging.execute(() -> headObjectWithSseCFallback(bucket, key));
+            }
+            return headObjectWithSseCFallback(bucket, key);
+        });
+    }
 
+    private HeadObjectResponse headObjectWithSseCFallback(final String bucket, final String key) {
         final boolean sseCEnabled = m_sseEnabled && m_sseMode == SSEMode.CUSTOMER_PROVIDED;
 
         try {
@@ -362,8 +640,29 @@ public boolean doesObjectExist(final String bucket, final String key) {
      * @param key The object key.
      * @return The input stream for the object.
      */
-    @SuppressWarnings("resource")
     public ResponseInputStream<GetObjectResponse> getObject(final String bucket, final String key) {
+        return getObject(bucket, key, -1);
+    }
+
+    /**
+     * Gets an object like {@link #getObject(String, String)}. If hedged requests are enabled and the object is known to
+     * be small (at most 1 MB), a slow GET request is hedged.
+     *
+     * @param bucket The bucket name.
+     * @param key The object key.
+     * @param size The size of the object in bytes if known, -1 otherwise.
+     * @return The input stream for the object.
+     */
+    public ResponseInputStream<GetObjectResponse> getObject(final String bucket, final String key, final long size) {
+        if (m_getHedging != null && size >= 0 && size <= MAX_HEDGED_GET_SIZE) {
+            // hedges the time to first byte, the stream of the slower request is aborted
+            return m_getHedging.execute(() -> getObjectWithSseCFallback(bucket, key), ResponseInputStream::abort);
+        }
+        return getObjectWithSseCFallback(bucket, key);
+    }
+
+    @SuppressWarnings("resource")
+    private ResponseInputStream<GetObjectResponse> getObjectWithSseCFallback(final String bucket, final String key) {
         final var builder = GetObjectRequest.builder()//
             .bucket(bucket)//
             .key(key);
@@ -393,11 +692,6 @@ public ResponseInputStream<GetObjectResponse> getObject(final String bucket, fin
         return client.getObject(builder.build()); // rerun request without SSE-C params
     }
 
-    private boolean checkCustomerEncryption(final String bucket, final String blob) {
-        final var metadata = headObject(bucket, blob);
-        return metadata.sseCustomerAlgorithm() != null;
-    }
-
     /**
      * Creates a bucket.
      *
@@ -450,7 +744,11 @@ public void putObject(final String bucket, final String key, final RequestBody b
             }
         }
 
-        getClientForBucket(bucket).putObject(builder.build(), body);
+        try {
+            getClientForBucket(bucket).putObject(builder.build(), body);
+        } finally {
+            forgetFlights(bucket, Set.of(key));
+        }
     }
 
     /**
@@ -464,11 +762,15 @@ public void putObject(final String bucket, final String key, final RequestBody b
     @SuppressWarnings("resource")
     public CreateMultipartUploadResponse createMultipartUpload(final String bucket, final String key,
         final String mimeType) {
-        var builder = CreateMultipartUploadRequest.builder()//
+        return createMultipartUpload(bucket, CreateMultipartUploadRequest.builder()//
             .bucket(bucket)//
             .key(key)//
-            .contentType(mimeType);
+            .contentType(mimeType));
+    }
 
+    @SuppressWarnings("resource")
+    private CreateMultipartUploadResponse createMultipartUpload(final String bucket,
+        final CreateMultipartUploadRequest.Builder builder) {
         if (m_sseEnabled) {
             if (m_sseMode == SSEMode.S3 || m_sseMode == SSEMode.KMS) {
                 builder.serverSideEncryption(m_sseMode.getEncryption());
@@ -535,7 +837,11 @@ public void completeMultipartUpload(final String bucket, final String key, final
             .uploadId(uploadId)//
             .multipartUpload(b -> b.parts(parts));
 
-        getClientForBucket(bucket).completeMultipartUpload(builder.build());
+        try {
+            getClientForBucket(bucket).completeMultipartUpload(builder.build());
+        } finally {
+            forgetFlights(bucket, Set.of(key));
+        }
     }
 
     /**
@@ -580,19 +886,218 @@ public void copyObject(final String srcBucket, final String srcKey, final String
             }
 
             if (m_sseMode == SSEMode.CUSTOMER_PROVIDED) {
-                if (checkCustomerEncryption(srcBucket, srcKey)) {
-                    builder.copySourceSSECustomerAlgorithm(AES256);
-                    builder.copySourceSSECustomerKey(m_customerKey);
-                    builder.copySourceSSECustomerKeyMD5(m_customerKeyMD5);
-                }
-
                 builder.sseCustomerAlgorithm(AES256);
                 builder.sseCustomerKey(m_customerKey);
                 builder.sseCustomerKeyMD5(m_customerKeyMD5);
             }
         }
 
-        getClientForBucket(dstBucket).copyObject(builder.build());
+        try {
+            copyObject(getClientForBucket(dstBucket), builder, srcBucket, srcKey);
+        } finally {
+            forgetFlights(dstBucket, Set.of(dstKey));
+        }
+    }
+
+    private void copyObject(final S3Client client, final CopyObjectRequest.Builder builder, final String srcBucket,
+        final String srcKey) {
+        if (m_sseEnabled && m_sseMode == SSEMode.CUSTOMER_PROVIDED) {
+            // usually the source is encrypted with the same key, so try that instead of checking it with a HEAD request
+            final var sseCRequest = builder.copy()//
+                .copySourceSSECustomerAlgorithm(AES256)//
+                .copySourceSSECustomerKey(m_customerKey)//
+                .copySourceSSECustomerKeyMD5(m_customerKeyMD5)//
+                .build();
+            try {
+                client.copyObject(sseCRequest);
+                return;
+            } catch (S3Exception ex) {
+                if (!isSourceNotEncrypted(ex)) {
+                    throw ex;
+                }
+                // the source is not encrypted, retry without SSE-C params for the source
+                LOGGER.debugWithFormat("Failed to copy /%s/%s using SSE-C params for the source. Retrying without.",
+                    srcBucket, srcKey);
+            }
+        }
+
+        client.copyObject(builder.build());
+    }
+
+    /**
+     * S3 rejects copy-source SSE-C params for an unencrypted source with an {@code InvalidRequest} error stating that
+     * the encryption parameters are not applicable. Other errors with status 400, e.g. an invalid key or argument, must
+     * not be hidden by a retry.
+     */
+    private static boolean isSourceNotEncrypted(final S3Exception ex) {
+        final var details = ex.awsErrorDetails();
+        return ex.statusCode() == 400 && details != null && "InvalidRequest".equals(details.errorCode())
+            && details.errorMessage() != null
+            && details.errorMessage().toLowerCase(Locale.ROOT).contains("encryption parameters are not applicable");
+    }
+
+    /**
+     * Performs copy of the object. Objects larger than the multipart copy threshold (see
+     * {@link S3FSConnectionConfig#getMultipartCopyThreshold()}) are copied with {@code UploadPartCopy} requests for
+     * byte ranges of the source, which are run in parallel. This is faster for large objects and the only way to copy
+     * objects larger than 5 GB.
+     *
+     * @param srcBucket The bucket name of the source object.
+     * @param srcKey The object key of the source object.
+     * @param dstBucket The bucket name of the destination object.
+     * @param dstKey The object key of the destination object.
+     * @param size The size of the source object in bytes.
+     */
+    public void copyObject(final String srcBucket, final String srcKey, final String dstBucket, final String dstKey,
+        final long size) {
+        if (size > m_multipartCopyThreshold) {
+            multipartCopy(srcBucket, srcKey, dstBucket, dstKey, null);
+        } else {
+            copyObject(srcBucket, srcKey, dstBucket, dstKey);
+        }
+    }
+
+    /**
+     * Performs copy of the object like {@link #copyObject(String, String, String, String, long)}, with the metadata of
+     * the source object from a previous {@link #headObject(String, String)} call. This saves the HEAD request that a
+     * multipart copy otherwise needs to read the metadata.
+     *
+     * @param srcBucket The bucket name of the source object.
+     * @param srcKey The object key of the source object.
+     * @param dstBucket The bucket name of the destination object.
+     * @param dstKey The object key of the destination object.
+     * @param source The metadata of the source object.
+     */
+    public void copyObject(final String srcBucket, final String srcKey, final String dstBucket, final String dstKey,
+        final HeadObjectResponse source) {
+        if (source.contentLength() > m_multipartCopyThreshold) {
+            multipartCopy(srcBucket, srcKey, dstBucket, dstKey, source);
+        } else {
+            copyObject(srcBucket, srcKey, dstBucket, dstKey);
+        }
+    }
+
+    private void multipartCopy(final String srcBucket, final String srcKey, final String dstBucket,
+        final String dstKey, final HeadObjectResponse knownSource) {
+        // unlike CopyObject, a multipart upload does not take the metadata and encryption from the source
+        final var source = knownSource != null ? knownSource : headObject(srcBucket, srcKey);
+        if (source == null) {
+            throw NoSuchKeyException.builder().message(String.format("Object %s/%s does not exist", srcBucket, srcKey))
+                .build();
+        }
+        final long size = source.contentLength();
+        final boolean sourceSseC = source.sseCustomerAlgorithm() != null;
+        final long partSize = Math.max(m_multipartCopyPartSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+        final var partCount = (int)Math.max(1, (size + partSize - 1) / partSize);
+
+        final var uploadId = createMultipartUpload(dstBucket, CreateMultipartUploadRequest.builder()//
+            .bucket(dstBucket)//
+            .key(dstKey)//
+            .contentType(source.contentType())//
+            .cacheControl(source.cacheControl())//
+            .contentDisposition(source.contentDisposition())//
+            .contentEncoding(source.contentEncoding())//
+            .contentLanguage(source.contentLanguage())//
+            .expires(source.expires())//
+            .metadata(source.metadata())//
+            .tagging(getTagging(srcBucket, srcKey)))//
+            .uploadId();
+        final var parts = new CompletedPart[partCount];
+        final var nextPart = new AtomicInteger();
+        final var failed = new AtomicBoolean();
+        final Runnable worker = () -> {
+            for (var i = nextPart.getAndIncrement(); i < partCount && !failed.get(); i = nextPart.getAndIncrement()) {
+                final long first = i * partSize;
+                final long last = Math.min(size, first + partSize) - 1;
+                parts[i] = copyPart(srcBucket, srcKey, dstBucket, dstKey, uploadId, i + 1,
+                    "bytes=" + first + "-" + last, sourceSseC);
+            }
+        };
+
+        final var workers = new CompletableFuture<?>[Math.min(m_multipartCopyParallelism, partCount)];
+        for (var i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(worker, m_executor).whenComplete((r, e) -> {
+                if (e != null) {
+                    failed.set(true);
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.allOf(workers).get();
+            completeMultipartUpload(dstBucket, dstKey, uploadId, new ArrayList<>(Arrays.asList(parts)));
+        } catch (InterruptedException e) { // NOSONAR interrupt flag is restored
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            abortMultipartCopy(dstBucket, dstKey, uploadId);
+            throw AbortedException.builder().message("Multipart copy was interrupted").cause(e).build();
+        } catch (ExecutionException e) {
+            abortMultipartCopy(dstBucket, dstKey, uploadId);
+            if (e.getCause() instanceof SdkException) {
+                throw (SdkException)e.getCause();
+            }
+            throw SdkClientException.create("Multipart copy failed", e.getCause());
+        } catch (SdkException e) {
+            abortMultipartCopy(dstBucket, dstKey, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the tags of the source object, URL-encoded as expected by CreateMultipartUpload, or {@code null} if it
+     *         has no tags or they cannot be read (e.g. missing permission, or not supported by a custom endpoint).
+     */
+    @SuppressWarnings("resource")
+    private String getTagging(final String bucket, final String key) {
+        try {
+            final var tags = getClientForBucket(bucket).getObjectTagging(b -> b.bucket(bucket).key(key)).tagSet();
+            return tags.isEmpty() ? null : tags.stream()//
+                .map(tag -> SdkHttpUtils.urlEncode(tag.key()) + '=' + SdkHttpUtils.urlEncode(tag.value()))//
+                .collect(Collectors.joining("&"));
+        } catch (S3Exception e) {
+            LOGGER.debug(String.format("Could not read the tags of /%s/%s, copying it without tags", bucket, key), e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("resource")
+    private CompletedPart copyPart(final String srcBucket, final String srcKey, final String dstBucket,
+        final String dstKey, final String uploadId, final int partNumber, final String range,
+        final boolean sourceSseC) {
+        final var builder = UploadPartCopyRequest.builder()//
+            .sourceBucket(srcBucket)//
+            .sourceKey(srcKey)//
+            .destinationBucket(dstBucket)//
+            .destinationKey(dstKey)//
+            .uploadId(uploadId)//
+            .partNumber(partNumber)//
+            .copySourceRange(range);
+
+        if (m_sseEnabled && m_sseMode == SSEMode.CUSTOMER_PROVIDED) {
+            if (sourceSseC) {
+                builder.copySourceSSECustomerAlgorithm(AES256);
+                builder.copySourceSSECustomerKey(m_customerKey);
+                builder.copySourceSSECustomerKeyMD5(m_customerKeyMD5);
+            }
+
+            builder.sseCustomerAlgorithm(AES256);
+            builder.sseCustomerKey(m_customerKey);
+            builder.sseCustomerKeyMD5(m_customerKeyMD5);
+        }
+
+        final var response = getClientForBucket(dstBucket).uploadPartCopy(builder.build());
+        return CompletedPart.builder()//
+            .partNumber(partNumber)//
+            .eTag(response.copyPartResult().eTag())//
+            .build();
+    }
+
+    private void abortMultipartCopy(final String bucket, final String key, final String uploadId) {
+        try {
+            abortMultipartUpload(bucket, key, uploadId);
+        } catch (SdkException e) { // NOSONAR the original failure is more relevant
+            LOGGER.debug("Could not abort multipart copy to " + bucket + "/" + key, e);
+        }
     }
 
     private static String encodeCopySource(final String bucket, final String blob) {
@@ -612,7 +1117,124 @@ private static String encodeCopySource(final String bucket, final String blob) {
      */
     @SuppressWarnings("resource")
     public void deleteObject(final String bucket, final String key) {
-        getClientForBucket(bucket).deleteObject(b -> b.bucket(bucket).key(key));
+        try {
+            getClientForBucket(bucket).deleteObject(b -> b.bucket(bucket).key(key));
+        } finally {
+            forgetFlights(bucket, Set.of(key));
+        }
+    }
+
+    /**
+     * Deletes the objects with DeleteObjects requests of up to 1000 keys each, several of which are sent
+     * concurrently.
+     *
+     * @param bucket The bucket name.
+     * @param keys The keys of the objects to delete.
+     * @return The errors for the objects that could not be deleted, empty if all objects have been deleted.
+     */
+    public List<S3Error> deleteObjects(final String bucket, final List<String> keys) {
+        final var deletion = new BatchDeletion(bucket);
+        for (var i = 0; i < keys.size(); i += MAX_DELETE_BATCH_SIZE) {
+            deletion.submit(keys.subList(i, Math.min(keys.size(), i + MAX_DELETE_BATCH_SIZE)));
+        }
+        return deletion.await();
+    }
+
+    /**
+     * Deletes all objects whose key starts with the given prefix. Each listed page of keys is deleted with a
+     * DeleteObjects request while the next page is listed.
+     *
+     * @param bucket The bucket name.
+     * @param prefix The key prefix, e.g. a directory key ending with a slash.
+     * @return The errors for the objects that could not be deleted, empty if all objects have been deleted.
+     */
+    public List<S3Error> deleteObjectsWithPrefix(final String bucket, final String prefix) {
+        final var deletion = new BatchDeletion(bucket);
+        String continuationToken = null;
+        try {
+            do {
+                final var response = listObjects(ListObjectsV2Request.builder()//
+                    .bucket(bucket)//
+                    .prefix(prefix)//
+                    .encodingType("url")//
+                    .continuationToken(continuationToken)//
+                    .build());
+                deletion.submit(response.contents().stream().map(S3Object::key).collect(Collectors.toList()));
+                continuationToken = response.nextContinuationToken();
+            } while (continuationToken != null);
+        } catch (SdkException e) {
+            deletion.awaitQuietly();
+            throw e;
+        }
+        return deletion.await();
+    }
+
+    @SuppressWarnings("resource")
+    private List<S3Error> deleteBatch(final String bucket, final List<String> keys) {
+        final List<ObjectIdentifier> objects = keys.stream()//
+            .map(key -> ObjectIdentifier.builder().key(key).build())//
+            .collect(Collectors.toList());
+        try {
+            return getClientForBucket(bucket)
+                .deleteObjects(b -> b.bucket(bucket).delete(d -> d.objects(objects).quiet(true)))//
+                .errors();
+        } finally {
+            forgetFlights(bucket, new HashSet<>(keys));
+        }
+    }
+
+    /**
+     * Runs DeleteObjects requests on the executor, at most {@link #DELETE_PARALLELISM} at a time.
+     */
+    private final class BatchDeletion {
+
+        private final String m_bucket;
+
+        private final Semaphore m_permits = new Semaphore(DELETE_PARALLELISM);
+
+        private final List<CompletableFuture<List<S3Error>>> m_batches = new ArrayList<>();
+
+        BatchDeletion(final String bucket) {
+            m_bucket = bucket;
+        }
+
+        void submit(final List<String> keys) {
+            if (keys.isEmpty()) {
+                return;
+            }
+            try {
+                m_permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                awaitQuietly();
+                throw AbortedException.builder().message("Deleting objects was interrupted").cause(e).build();
+            }
+            m_batches.add(CompletableFuture.supplyAsync(() -> deleteBatch(m_bucket, keys), m_executor)
+                .whenComplete((errors, e) -> m_permits.release()));
+        }
+
+        List<S3Error> await() {
+            final List<S3Error> errors = new ArrayList<>();
+            SdkException failure = null;
+            for (final var batch : m_batches) {
+                try {
+                    errors.addAll(batch.join());
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SdkException ? (SdkException)e.getCause()
+                            : SdkClientException.create("Deleting objects failed", e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return errors;
+        }
+
+        void awaitQuietly() {
+            CompletableFuture.allOf(m_batches.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        }
     }
 
     /**
@@ -625,6 +1247,18 @@ public void deleteBucket(final String bucket) {
         getClientForBucket(bucket).deleteBucket(b -> b.bucket(bucket));
     }
 
+    /**
+     * Detaches the HEAD and list requests in flight that may not reflect a write of the given keys, so that requests
+     * issued after the write do not receive a result from before the write.
+     */
+    private void forgetFlights(final String bucket, final Set<String> keys) {
+        final var bucketPrefix = bucket + '/';
+        m_headFlights.forget(
+            flight -> flight.startsWith(bucketPrefix) && keys.contains(flight.substring(bucketPrefix.length())));
+        m_listFlights.forget(request -> request.bucket().equals(bucket)
+            && (request.prefix() == null || keys.stream().anyMatch(key -> key.startsWith(request.prefix()))));
+    }
+
     private S3Client getClientForBucket(final String bucket) {
         if (bucket == null) {
             return m_defaultClient;
@@ -668,7 +1302,7 @@ private OptionalRegion fetchRegionWithGetBucketLocation(final String bucket) {
 
         try {
             // requires s3:GetBucketLocation permission
-            final var location = m_pathStyleClient.getBucketLocation(b -> b.bucket(bucket)).locationConstraintAsString();
+            final var location = getPathStyleClient().getBucketLocation(b -> b.bucket(bucket)).locationConstraintAsString();
 
             // Javadoc for getBucketLocation states that
             // 'Buckets in Region us-east-1 have a LocationConstraint of null.'
@@ -711,15 +1345,23 @@ private OptionalRegion fetchRegionWithHeadBucket(final String bucket) {
 
     @Override
     public void close() {
+        m_executor.shutdownNow();
         for (S3Client client : m_clientByRegion.values()) {
             client.close();
         }
-        m_pathStyleClient.close();
+        for (S3Presigner presigner : m_presignerByRegion.values()) {
+            presigner.close();
+        }
+        synchronized (this) {
+            if (m_pathStyleClient != null) {
+                m_pathStyleClient.close();
+            }
+        }
     }
 
     /**
-     * Return an object for S3Presigner for request S3 bucket. The bucket name is required because the S3Presigner
-     * depends on S3 Region information
+     * Returns the {@link S3Presigner} for the region of the given bucket. Presigners are created once per region and
+     * are owned by this client, hence the returned instance must not be closed by the caller.
      *
      * @param bucketName Name of the S3 against which the presigner should be issued
      *
@@ -731,8 +1373,11 @@ public S3Presigner getS3Presigner(final String bucketName) {
             throw NoSuchBucketException.builder().message("The specified bucket does not exist").build();
         }
 
-        final AwsCredentialsProvider awsCreds = AwsUtils.getCredentialProvider(m_connectionInfo);
-        final var builder = S3Presigner.builder().credentialsProvider(awsCreds);
+        return m_presignerByRegion.computeIfAbsent(region, this::createPresignerForRegion);
+    }
+
+    private S3Presigner createPresignerForRegion(final OptionalRegion region) {
+        final var builder = S3Presigner.builder().credentialsProvider(m_credentialsProvider);
 
         if (!region.isEmpty()) {
             builder.region(region.get());
@@ -744,4 +1389,23 @@ public S3Presigner getS3Presigner(final String bucketName) {
 
         return builder.build();
     }
+
+    /**
+     * Generates a pre-signed URL to download the given object.
+     *
+     * @param bucket The bucket name.
+     * @param key The object key.
+     * @param validity How long the URL should be valid.
+     * @return The pre-signed URL.
+     */
+    @SuppressWarnings("resource")
+    public URL presignGetObject(final String bucket, final String key, final Duration validity) {
+        final var getObjectRequest = GetObjectRequest.builder().bucket(bucket).key(key).build();
+        final var presignRequest = GetObjectPresignRequest.builder()//
+            .signatureDuration(validity)//
+            .getObjectRequest(getObjectRequest)//
+            .build();
+
+        return getS3Presigner(bucket).presignGetObject(presignRequest).url();
+    }
 }
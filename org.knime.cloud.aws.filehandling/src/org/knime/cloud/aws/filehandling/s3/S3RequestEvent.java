@@ -0,0 +1,184 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import java.util.Optional;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * Java Flight Recorder event for a single HTTP attempt of an S3 request. Events are emitted by the interceptor
+ * returned by {@link #createInterceptor()}; when recording is off, the event fields are not populated and nothing is
+ * committed.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+@Name("org.knime.cloud.aws.S3Request")
+@Label("S3 Request")
+@Category({"KNIME", "Amazon S3"})
+@Description("A single HTTP attempt of a request to S3")
+final class S3RequestEvent extends Event {
+
+    private static final ExecutionAttribute<PendingEvent> PENDING_EVENT =
+        new ExecutionAttribute<>("KnimeS3PendingRequestEvent");
+
+    private static final ExecutionAttribute<Integer> ATTEMPT = new ExecutionAttribute<>("KnimeS3RequestAttempt");
+
+    @Name("operation")
+    @Label("Operation")
+    String m_operation;
+
+    @Name("bucket")
+    @Label("Bucket")
+    String m_bucket;
+
+    @Name("keyPrefix")
+    @Label("Key Prefix")
+    @Description("The directory part of the object key, or the listed prefix")
+    String m_keyPrefix;
+
+    @Name("bytesSent")
+    @Label("Bytes Sent")
+    @DataAmount
+    long m_bytesSent;
+
+    @Name("bytesReceived")
+    @Label("Bytes Received")
+    @DataAmount
+    long m_bytesReceived;
+
+    @Name("status")
+    @Label("HTTP Status")
+    @Description("The HTTP status code, or 0 if no response was received")
+    int m_status;
+
+    @Name("attempt")
+    @Label("Attempt")
+    @Description("The attempt number, starting at 1")
+    int m_attempt;
+
+    /**
+     * @return an {@link ExecutionInterceptor} that emits one event per HTTP attempt.
+     */
+    static ExecutionInterceptor createInterceptor() {
+        return new Interceptor();
+    }
+
+    /** Mutable holder, since execution attributes cannot be removed. */
+    private static final class PendingEvent {
+        private S3RequestEvent m_event;
+    }
+
+    private static final class Interceptor implements ExecutionInterceptor {
+
+        @Override
+        public void beforeTransmission(final Context.BeforeTransmission context,
+            final ExecutionAttributes executionAttributes) {
+
+            final int attempt = Optional.ofNullable(executionAttributes.getAttribute(ATTEMPT)).orElse(0) + 1;
+            executionAttributes.putAttribute(ATTEMPT, attempt);
+
+            // a previous attempt without response (e.g. I/O error) has not been committed yet
+            commitPending(executionAttributes, 0, 0);
+
+            final var event = new S3RequestEvent();
+            if (!event.isEnabled()) {
+                return;
+            }
+
+            event.m_operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+            event.m_bucket = S3RequestTarget.bucket(context.request());
+            event.m_keyPrefix = S3RequestMetrics.toKeyPrefix(S3RequestTarget.key(context.request()));
+            event.m_bytesSent = S3RequestMetrics.payloadLength(context.httpRequest());
+            event.m_attempt = attempt;
+            event.begin();
+
+            final var pending = new PendingEvent();
+            pending.m_event = event;
+            executionAttributes.putAttribute(PENDING_EVENT, pending);
+        }
+
+        @Override
+        public void afterTransmission(final Context.AfterTransmission context,
+            final ExecutionAttributes executionAttributes) {
+            commitPending(executionAttributes, context.httpResponse().statusCode(),
+                S3RequestMetrics.payloadLength(context.httpResponse()));
+        }
+
+        @Override
+        public void onExecutionFailure(final Context.FailedExecution context,
+            final ExecutionAttributes executionAttributes) {
+            commitPending(executionAttributes, 0, 0);
+        }
+
+        private static void commitPending(final ExecutionAttributes executionAttributes, final int status,
+            final long bytesReceived) {
+            final PendingEvent pending = executionAttributes.getAttribute(PENDING_EVENT);
+            if (pending == null || pending.m_event == null) {
+                return;
+            }
+
+            final S3RequestEvent event = pending.m_event;
+            pending.m_event = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.m_status = status;
+                event.m_bytesReceived = bytesReceived;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.knime.core.node.NodeLogger;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.http.SdkHttpHeaders;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * Collects request metrics of a {@link MultiRegionS3Client}: per-operation latency histograms, retries, throttling,
+ * payload bytes and connection pool usage. Latencies, retries and pool usage are taken from the metrics published by
+ * the AWS SDK, payload bytes are recorded by an {@link ExecutionInterceptor} (see {@link #createInterceptor()}).
+ *
+ * The metrics can be exposed through JMX (see {@link #registerMBean(String)}) and summarized in the log (see
+ * {@link #getSummary()}).
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class S3RequestMetrics implements MetricPublisher, S3RequestMetricsMXBean {
+
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(S3RequestMetrics.class);
+
+    private static final String JMX_DOMAIN = "org.knime.cloud.aws.filehandling";
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    private static final String THROTTLING_ERROR_TYPE = "Throttling";
+
+    private final Map<String, OperationStatistics> m_operations = new ConcurrentHashMap<>();
+
+    private final Supplier<Map<String, Double>> m_rateLimits;
+
+    private final LongSupplier m_hedgedRequests;
+
+    private volatile Supplier<Map<String, Long>> m_transferMemory = Map::of;
+
+    private final AtomicLong m_leasedConnections = new AtomicLong();
+
+    private final AtomicLong m_pendingConnectionAcquires = new AtomicLong();
+
+    private ObjectName m_objectName;
+
+    /**
+     * @param rateLimits Supplies the current client-side rate limits.
+     * @param hedgedRequests Supplies the number of duplicate requests sent by request hedging.
+     */
+    S3RequestMetrics(final Supplier<Map<String, Double>> rateLimits, final LongSupplier hedgedRequests) {
+        m_rateLimits = rateLimits;
+        m_hedgedRequests = hedgedRequests;
+    }
+
+    @Override
+    public void publish(final MetricCollection metricCollection) {
+        final String operation = first(metricCollection, CoreMetric.OPERATION_NAME).orElse("Unknown");
+        final OperationStatistics stats = getStatistics(operation);
+
+        final long durationMillis =
+            first(metricCollection, CoreMetric.API_CALL_DURATION).map(Duration::toMillis).orElse(0L);
+        final boolean successful = first(metricCollection, CoreMetric.API_CALL_SUCCESSFUL).orElse(true);
+        final int retries = first(metricCollection, CoreMetric.RETRY_COUNT).orElse(0);
+
+        var throttles = 0;
+        for (final Integer status : collect(metricCollection, HttpMetric.HTTP_STATUS_CODE)) {
+            if (status == HTTP_SERVICE_UNAVAILABLE) {
+                throttles++;
+            }
+        }
+        if (throttles == 0) {
+            throttles = (int)collect(metricCollection, CoreMetric.ERROR_TYPE).stream()//
+                .filter(THROTTLING_ERROR_TYPE::equals)//
+                .count();
+        }
+
+        stats.recordCall(durationMillis, successful, retries, throttles);
+
+        collect(metricCollection, HttpMetric.LEASED_CONCURRENCY).stream().reduce((a, b) -> b)
+            .ifPresent(m_leasedConnections::set);
+        collect(metricCollection, HttpMetric.PENDING_CONCURRENCY_ACQUIRES).stream().reduce((a, b) -> b)
+            .ifPresent(m_pendingConnectionAcquires::set);
+    }
+
+    private static <T> Optional<T> first(final MetricCollection collection, final SdkMetric<T> metric) {
+        final List<T> values = collection.metricValues(metric);
+        return values.isEmpty() ? Optional.empty() : Optional.ofNullable(values.get(0));
+    }
+
+    /**
+     * Collects the values of the given metric from the collection and all nested collections (attempts, HTTP client).
+     */
+    private static <T> List<T> collect(final MetricCollection collection, final SdkMetric<T> metric) {
+        final List<T> values = new ArrayList<>(collection.metricValues(metric));
+        for (final MetricCollection child : collection.children()) {
+            values.addAll(collect(child, metric));
+        }
+        return values;
+    }
+
+    private OperationStatistics getStatistics(final String operation) {
+        return m_operations.computeIfAbsent(operation, k -> new OperationStatistics());
+    }
+
+    /**
+     * @return an {@link ExecutionInterceptor} that records the payload bytes of each HTTP attempt.
+     */
+    ExecutionInterceptor createInterceptor() {
+        return new ExecutionInterceptor() {
+            @Override
+            public void afterTransmission(final Context.AfterTransmission context,
+                final ExecutionAttributes executionAttributes) {
+                final String operation = Optional
+                    .ofNullable(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME))
+                    .orElse("Unknown");
+                getStatistics(operation).recordBytes(payloadLength(context.httpRequest()),
+                    payloadLength(context.httpResponse()));
+            }
+        };
+    }
+
+    /**
+     * Derives the key prefix that requests are grouped by, i.e. the object key up to (and including) the last
+     * separator.
+     *
+     * @param key The object key or listed prefix, may be <code>null</code>.
+     * @return the key prefix or <code>null</code>.
+     */
+    public static String toKeyPrefix(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final int lastSeparator = key.lastIndexOf('/');
+        return lastSeparator < 0 ? "" : key.substring(0, lastSeparator + 1);
+    }
+
+    /**
+     * @param headers The headers of an HTTP request or response.
+     * @return the payload length in bytes, 0 if unknown.
+     */
+    static long payloadLength(final SdkHttpHeaders headers) {
+        // for aws-chunked uploads, Content-Length includes the chunk signatures
+        final Optional<String> length = headers.firstMatchingHeader("x-amz-decoded-content-length")
+            .or(() -> headers.firstMatchingHeader("Content-Length"));
+        try {
+            return length.map(Long::parseLong).orElse(0L);
+        } catch (NumberFormatException e) { // NOSONAR malformed header, nothing to count
+            return 0;
+        }
+    }
+
+    @Override
+    public long getRequestCount() {
+        return m_operations.values().stream().mapToLong(s -> s.m_calls.get()).sum();
+    }
+
+    @Override
+    public long getFailedRequestCount() {
+        return m_operations.values().stream().mapToLong(s -> s.m_failures.get()).sum();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return m_operations.values().stream().mapToLong(s -> s.m_retries.get()).sum();
+    }
+
+    @Override
+    public long getThrottleCount() {
+        return m_operations.values().stream().mapToLong(s -> s.m_throttles.get()).sum();
+    }
+
+    @Override
+    public long getTotalRequestTimeMillis() {
+        return m_operations.values().stream().mapToLong(s -> s.m_totalMillis.get()).sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return m_operations.values().stream().mapToLong(s -> s.m_bytesSent.get()).sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return m_operations.values().stream().mapToLong(s -> s.m_bytesReceived.get()).sum();
+    }
+
+    @Override
+    public long getLeasedConnections() {
+        return m_leasedConnections.get();
+    }
+
+    @Override
+    public long getPendingConnectionAcquires() {
+        return m_pendingConnectionAcquires.get();
+    }
+
+    @Override
+    public String[] getOperationSummaries() {
+        return new TreeMap<>(m_operations).entrySet().stream()//
+            .map(e -> e.getKey() + ": " + e.getValue())//
+            .toArray(String[]::new);
+    }
+
+    @Override
+    public Map<String, Double> getRateLimits() {
+        return m_rateLimits.get();
+    }
+
+    @Override
+    public long getHedgedRequestCount() {
+        return m_hedgedRequests.getAsLong();
+    }
+
+    @Override
+    public Map<String, Long> getTransferMemory() {
+        return m_transferMemory.get();
+    }
+
+    /**
+     * @param transferMemory Supplies the metrics of the transfer memory budget of the file system, see
+     *            {@link #getTransferMemory()}.
+     */
+    public void setTransferMemory(final Supplier<Map<String, Long>> transferMemory) {
+        m_transferMemory = transferMemory;
+    }
+
+    /**
+     * @return a multi-line, human readable summary of all metrics.
+     */
+    public String getSummary() {
+        final var sb = new StringBuilder();
+        sb.append(String.format(
+            "%d S3 requests (%d failed, %d retries, %d throttled, %d hedged) in %d ms, %d bytes sent, "
+                + "%d bytes received",
+            getRequestCount(), getFailedRequestCount(), getRetryCount(), getThrottleCount(), getHedgedRequestCount(),
+            getTotalRequestTimeMillis(), getBytesSent(), getBytesReceived()));
+        for (final String operation : getOperationSummaries()) {
+            sb.append(System.lineSeparator()).append("  ").append(operation);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Registers these metrics as MXBean with the platform MBean server. Failures are only logged.
+     *
+     * @param fileSystemName A name that identifies the file system, becomes part of the object name.
+     */
+    public synchronized void registerMBean(final String fileSystemName) {
+        try {
+            m_objectName = new ObjectName(String.format("%s:type=S3FileSystem,name=%s,id=%d", JMX_DOMAIN,
+                ObjectName.quote(fileSystemName), INSTANCE_COUNTER.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, m_objectName);
+        } catch (JMException e) {
+            LOGGER.debug("Could not register S3 request metrics with JMX", e);
+            m_objectName = null;
+        }
+    }
+
+    /**
+     * Unregisters the MXBean, if it has been registered.
+     */
+    public synchronized void unregisterMBean() {
+        if (m_objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(m_objectName);
+            } catch (JMException e) {
+                LOGGER.debug("Could not unregister S3 request metrics from JMX", e);
+            }
+            m_objectName = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        unregisterMBean();
+    }
+
+    /**
+     * Statistics of one S3 operation, with a latency histogram of power-of-two millisecond buckets.
+     */
+    private static final class OperationStatistics {
+
+        private static final int BUCKETS = 32;
+
+        private final AtomicLong m_calls = new AtomicLong();
+
+        private final AtomicLong m_failures = new AtomicLong();
+
+        private final AtomicLong m_retries = new AtomicLong();
+
+        private final AtomicLong m_throttles = new AtomicLong();
+
+        private final AtomicLong m_totalMillis = new AtomicLong();
+
+        private final AtomicLong m_bytesSent = new AtomicLong();
+
+        private final AtomicLong m_bytesReceived = new AtomicLong();
+
+        private final long[] m_latencyHistogram = new long[BUCKETS];
+
+        void recordCall(final long millis, final boolean successful, final int retries, final int throttles) {
+            m_calls.incrementAndGet();
+            if (!successful) {
+                m_failures.incrementAndGet();
+            }
+            m_retries.addAndGet(retries);
+            m_throttles.addAndGet(throttles);
+            m_totalMillis.addAndGet(millis);
+
+            // bucket i holds latencies in [2^(i-1), 2^i) ms, bucket 0 holds latencies below 1 ms
+            final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, millis)));
+            synchronized (m_latencyHistogram) {
+                m_latencyHistogram[bucket]++;
+            }
+        }
+
+        void recordBytes(final long sent, final long received) {
+            m_bytesSent.addAndGet(sent);
+            m_bytesReceived.addAndGet(received);
+        }
+
+        /**
+         * @return the upper bound of the histogram bucket containing the given percentile, in milliseconds.
+         */
+        long percentileMillis(final double percentile) {
+            synchronized (m_latencyHistogram) {
+                long total = 0;
+                for (final long count : m_latencyHistogram) {
+                    total += count;
+                }
+                final long rank = (long)Math.ceil(percentile * total);
+                long seen = 0;
+                for (var i = 0; i < BUCKETS; i++) {
+                    seen += m_latencyHistogram[i];
+                    if (seen >= rank && seen > 0) {
+                        return 1L << i;
+                    }
+                }
+                return 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long calls = m_calls.get();
+            return String.format(
+                "%d calls, avg %d ms, p50 <%d ms, p99 <%d ms, %d failed, %d retries, %d throttled, %d B sent, %d B received",
+                calls, calls == 0 ? 0 : m_totalMillis.get() / calls, percentileMillis(0.5), percentileMillis(0.99),
+                m_failures.get(), m_retries.get(), m_throttles.get(), m_bytesSent.get(), m_bytesReceived.get());
+        }
+    }
+}
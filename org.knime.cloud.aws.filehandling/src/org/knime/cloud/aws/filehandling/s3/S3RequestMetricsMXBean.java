@@ -0,0 +1,123 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import java.util.Map;
+
+/**
+ * JMX view on the request metrics of an S3 file system, see {@link S3RequestMetrics}.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public interface S3RequestMetricsMXBean {
+
+    /**
+     * @return the number of API calls (including failed ones, excluding retries).
+     */
+    long getRequestCount();
+
+    /**
+     * @return the number of API calls that failed after all retries.
+     */
+    long getFailedRequestCount();
+
+    /**
+     * @return the number of retries.
+     */
+    long getRetryCount();
+
+    /**
+     * @return the number of throttled attempts (HTTP 503 SlowDown).
+     */
+    long getThrottleCount();
+
+    /**
+     * @return the total time spent in API calls, in milliseconds.
+     */
+    long getTotalRequestTimeMillis();
+
+    /**
+     * @return the number of request payload bytes sent.
+     */
+    long getBytesSent();
+
+    /**
+     * @return the number of response payload bytes received.
+     */
+    long getBytesReceived();
+
+    /**
+     * @return the number of pooled HTTP connections leased by the most recent request.
+     */
+    long getLeasedConnections();
+
+    /**
+     * @return the number of requests that waited for a pooled HTTP connection at the time of the most recent request.
+     */
+    long getPendingConnectionAcquires();
+
+    /**
+     * @return one line per operation with call count, latency percentiles, retries, throttles and bytes.
+     */
+    String[] getOperationSummaries();
+
+    /**
+     * @return the client-side rate limits (requests per second) of throttled bucket prefixes.
+     */
+    Map<String, Double> getRateLimits();
+
+    /**
+     * @return the number of duplicate HEAD and GET requests sent by request hedging.
+     */
+    long getHedgedRequestCount();
+
+    /**
+     * @return the metrics of the memory budget for buffered transfers: limit, currently and peak reserved bytes,
+     *         number of reservations that had to wait or were denied, total wait time and the bytes reserved by all
+     *         file systems.
+     */
+    Map<String, Long> getTransferMemory();
+}
@@ -0,0 +1,140 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+
+/**
+ * Coalesces concurrent identical requests: while a request for a key is in flight, further callers asking for the same
+ * key do not send their own request but wait for the running one and receive its result (or its exception). Results
+ * are not cached, a request that is started after the previous one completed is sent again.
+ *
+ * Coalescing only makes sense for idempotent requests such as HEAD and list requests. A request that is in flight may
+ * have been sent before a write of the same key, so writers have to {@link #forget(Predicate) detach} the requests
+ * for the keys they have written. Waiting callers can be interrupted, which aborts their wait but not the request.
+ *
+ * @param <K> the type of the request key.
+ * @param <V> the type of the result.
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> m_inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong m_coalesced = new AtomicLong();
+
+    /**
+     * Executes the given request unless an identical one is already in flight, in which case its result is awaited.
+     *
+     * @param key the key identifying the request.
+     * @param request the request to execute. May return <code>null</code>.
+     * @return the result of the request.
+     */
+    V execute(final K key, final Supplier<V> request) {
+        final var flight = new CompletableFuture<V>();
+        final var running = m_inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            m_coalesced.incrementAndGet();
+            return await(running);
+        }
+
+        try {
+            final V result = request.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) { // NOSONAR rethrown
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            m_inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(final CompletableFuture<V> flight) {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) { // NOSONAR interrupt flag is restored
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Waiting for a coalesced request was interrupted").cause(e)
+                .build();
+        } catch (ExecutionException e) {
+            final var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * Detaches the requests in flight whose keys match, so that later callers send a new request instead of joining
+     * one that may have been sent before a write of the key. Callers that already wait for a detached request still
+     * receive its result.
+     *
+     * @param keys the keys of the requests to detach.
+     */
+    void forget(final Predicate<K> keys) {
+        m_inFlight.keySet().removeIf(keys);
+    }
+
+    /**
+     * @return the number of requests that have not been sent because an identical request was in flight.
+     */
+    long getCoalescedCount() {
+        return m_coalesced.get();
+    }
+}
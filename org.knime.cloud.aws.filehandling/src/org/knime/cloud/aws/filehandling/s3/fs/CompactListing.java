@@ -0,0 +1,252 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A compact, append-only list of the files of a directory listing. S3 lists keys in ascending order of their UTF-8
+ * bytes, so consecutive names share long prefixes. The names are front coded: each name is stored as the number of
+ * bytes it shares with the previous name plus the remaining bytes, in one byte array. Every
+ * {@value #RESTART_INTERVAL}th name is stored completely, which allows a binary search. Sizes and timestamps are kept
+ * in primitive arrays. No object is allocated per entry, names are only decoded (and paths only created) on demand.
+ *
+ * This class is not thread-safe.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class CompactListing {
+
+    /** Every this many entries, a name is stored without sharing a prefix with the previous one. */
+    static final int RESTART_INTERVAL = 16;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] m_suffixes = new byte[INITIAL_CAPACITY * 16];
+
+    private int m_suffixesLength;
+
+    /** The end offset of the suffix of each entry in {@link #m_suffixes}. */
+    private int[] m_suffixEnds = new int[INITIAL_CAPACITY];
+
+    /** The number of bytes each entry shares with the previous one. Keys have at most 1024 bytes. */
+    private short[] m_shared = new short[INITIAL_CAPACITY];
+
+    private long[] m_sizes = new long[INITIAL_CAPACITY];
+
+    private long[] m_lastModified = new long[INITIAL_CAPACITY];
+
+    private BitSet m_removed;
+
+    private int m_count;
+
+    private byte[] m_last = new byte[0];
+
+    /**
+     * Appends a file. Names must be appended in ascending order of their UTF-8 bytes, as returned by S3.
+     *
+     * @param name the file name.
+     * @param size the size in bytes.
+     * @param lastModifiedMillis the last modified time.
+     * @return <code>false</code> if the name has not been appended because it is not greater than the previous one.
+     */
+    boolean add(final String name, final long size, final long lastModifiedMillis) {
+        final var bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (m_count > 0 && Arrays.compareUnsigned(bytes, m_last) <= 0) {
+            return false;
+        }
+
+        final var shared = m_count % RESTART_INTERVAL == 0 ? 0 : sharedPrefixLength(m_last, bytes);
+        ensureCapacity(bytes.length - shared);
+        System.arraycopy(bytes, shared, m_suffixes, m_suffixesLength, bytes.length - shared);
+        m_suffixesLength += bytes.length - shared;
+        m_suffixEnds[m_count] = m_suffixesLength;
+        m_shared[m_count] = (short)shared;
+        m_sizes[m_count] = size;
+        m_lastModified[m_count] = lastModifiedMillis;
+        m_count++;
+        m_last = bytes;
+        return true;
+    }
+
+    /**
+     * @return the number of entries, including removed ones.
+     */
+    int size() {
+        return m_count;
+    }
+
+    /**
+     * @param index the index of the entry.
+     * @return the name of the entry.
+     */
+    String getName(final int index) {
+        return new String(decode(index), StandardCharsets.UTF_8);
+    }
+
+    long getSize(final int index) {
+        return m_sizes[index];
+    }
+
+    long getLastModifiedMillis(final int index) {
+        return m_lastModified[index];
+    }
+
+    /**
+     * Marks an entry as removed, e.g. because the file has been deleted.
+     *
+     * @param index the index of the entry.
+     */
+    void remove(final int index) {
+        if (m_removed == null) {
+            m_removed = new BitSet();
+        }
+        m_removed.set(index);
+    }
+
+    /**
+     * @param name the file name.
+     * @return the index of the entry with the given name, or -1 if there is none or it has been removed.
+     */
+    int indexOf(final String name) {
+        if (m_count == 0) {
+            return -1;
+        }
+        final var bytes = name.getBytes(StandardCharsets.UTF_8);
+
+        // binary search for the last restart point that is not greater than the name
+        var low = 0;
+        var high = (m_count - 1) / RESTART_INTERVAL;
+        var block = -1;
+        while (low <= high) {
+            final var mid = (low + high) >>> 1;
+            final var restart = mid * RESTART_INTERVAL;
+            final var cmp = Arrays.compareUnsigned(m_suffixes, suffixStart(restart), m_suffixEnds[restart], bytes, 0,
+                bytes.length);
+            if (cmp == 0) {
+                return isRemoved(restart) ? -1 : restart;
+            } else if (cmp < 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return -1;
+        }
+
+        // scan the block, the names of which are decoded one after the other
+        var current = new byte[0];
+        final var end = Math.min(m_count, (block + 1) * RESTART_INTERVAL);
+        for (var i = block * RESTART_INTERVAL; i < end; i++) {
+            current = next(current, i);
+            final var cmp = Arrays.compareUnsigned(current, bytes);
+            if (cmp == 0) {
+                return isRemoved(i) ? -1 : i;
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Releases the unused capacity, e.g. after the listing is complete.
+     */
+    void trimToSize() {
+        m_suffixes = Arrays.copyOf(m_suffixes, m_suffixesLength);
+        m_suffixEnds = Arrays.copyOf(m_suffixEnds, m_count);
+        m_shared = Arrays.copyOf(m_shared, m_count);
+        m_sizes = Arrays.copyOf(m_sizes, m_count);
+        m_lastModified = Arrays.copyOf(m_lastModified, m_count);
+    }
+
+    private boolean isRemoved(final int index) {
+        return m_removed != null && m_removed.get(index);
+    }
+
+    private byte[] decode(final int index) {
+        var name = new byte[0];
+        for (var i = index - index % RESTART_INTERVAL; i <= index; i++) {
+            name = next(name, i);
+        }
+        return name;
+    }
+
+    /** Decodes the name of an entry, given the name of the previous entry. */
+    private byte[] next(final byte[] previous, final int index) {
+        final var shared = m_shared[index];
+        final var start = suffixStart(index);
+        final var name = Arrays.copyOf(previous, shared + m_suffixEnds[index] - start);
+        System.arraycopy(m_suffixes, start, name, shared, m_suffixEnds[index] - start);
+        return name;
+    }
+
+    private int suffixStart(final int index) {
+        return index == 0 ? 0 : m_suffixEnds[index - 1];
+    }
+
+    private void ensureCapacity(final int suffixLength) {
+        if (m_suffixesLength + suffixLength > m_suffixes.length) {
+            m_suffixes = Arrays.copyOf(m_suffixes, Math.max(m_suffixes.length * 2, m_suffixesLength + suffixLength));
+        }
+        if (m_count == m_suffixEnds.length) {
+            final var capacity = m_count * 2;
+            m_suffixEnds = Arrays.copyOf(m_suffixEnds, capacity);
+            m_shared = Arrays.copyOf(m_shared, capacity);
+            m_sizes = Arrays.copyOf(m_sizes, capacity);
+            m_lastModified = Arrays.copyOf(m_lastModified, capacity);
+        }
+    }
+
+    private static int sharedPrefixLength(final byte[] a, final byte[] b) {
+        final var mismatch = Arrays.mismatch(a, b);
+        return Math.min(mismatch < 0 ? a.length : mismatch, Short.MAX_VALUE);
+    }
+}
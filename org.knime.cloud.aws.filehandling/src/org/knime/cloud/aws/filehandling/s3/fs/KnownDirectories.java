@@ -0,0 +1,170 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the directories (key prefixes) of a file system that are known to exist, because they have been created,
+ * listed or written into. Knowing that a directory exists implies that all its ancestors exist, so creating many files
+ * below the same parents does not check or create these parents again and again.
+ *
+ * Entries expire after the same time to live as the attribute cache. Deleting a path forgets the directory itself, all
+ * its descendants and all its ancestors (an ancestor that is only a common prefix vanishes with its last object).
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class KnownDirectories {
+
+    /** When more directories are known, the cache is cleared instead of growing further. */
+    static final int MAX_ENTRIES = 100_000;
+
+    private static final char SEPARATOR = '/';
+
+    /** Maps "bucket/prefix/" to the time (in nanos) at which the entry expires. */
+    private final NavigableMap<String, Long> m_expiryByDirectory = new ConcurrentSkipListMap<>();
+
+    private final long m_ttlNanos;
+
+    private final LongSupplier m_clock;
+
+    /**
+     * @param ttlMillis the time to live of the entries in milliseconds.
+     */
+    KnownDirectories(final long ttlMillis) {
+        this(ttlMillis, System::nanoTime);
+    }
+
+    KnownDirectories(final long ttlMillis, final LongSupplier clock) {
+        m_ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        m_clock = clock;
+    }
+
+    /**
+     * Remembers that the given directory and all its ancestors exist.
+     *
+     * @param bucket the bucket name.
+     * @param dirKey the key of the directory, ending with a slash.
+     */
+    void add(final String bucket, final String dirKey) {
+        if (m_ttlNanos <= 0) {
+            return;
+        }
+        if (m_expiryByDirectory.size() >= MAX_ENTRIES) {
+            m_expiryByDirectory.clear();
+        }
+
+        final var expiry = m_clock.getAsLong() + m_ttlNanos;
+        final var entry = toEntry(bucket, dirKey);
+        // the bucket itself is not cached, the first separator ends the bucket name
+        for (var end = entry.lastIndexOf(SEPARATOR); end > bucket.length(); end =
+            entry.lastIndexOf(SEPARATOR, end - 1)) {
+            m_expiryByDirectory.put(entry.substring(0, end + 1), expiry);
+        }
+    }
+
+    /**
+     * Remembers that the parent directories of the given object exist.
+     *
+     * @param bucket the bucket name.
+     * @param key the key of an existing object.
+     */
+    void addParentsOf(final String bucket, final String key) {
+        final var trimmed = key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+        final var end = trimmed.lastIndexOf(SEPARATOR);
+        if (end > 0) {
+            add(bucket, trimmed.substring(0, end + 1));
+        }
+    }
+
+    /**
+     * @param bucket the bucket name.
+     * @param dirKey the key of the directory, ending with a slash.
+     * @return whether the directory is known to exist.
+     */
+    boolean contains(final String bucket, final String dirKey) {
+        final var entry = toEntry(bucket, dirKey);
+        final var expiry = m_expiryByDirectory.get(entry);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry - m_clock.getAsLong() <= 0) {
+            m_expiryByDirectory.remove(entry, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the given path, all its descendants and its ancestors.
+     *
+     * @param bucket the bucket name.
+     * @param key the key of the deleted file or directory.
+     */
+    void invalidate(final String bucket, final String key) {
+        final var dirKey = key.endsWith("/") ? key : (key + SEPARATOR);
+        final var entry = toEntry(bucket, dirKey);
+        m_expiryByDirectory.subMap(entry, true, entry + Character.MAX_VALUE, false).clear();
+        for (var end = entry.lastIndexOf(SEPARATOR, entry.length() - 2); end > bucket.length(); end =
+            entry.lastIndexOf(SEPARATOR, end - 1)) {
+            m_expiryByDirectory.remove(entry.substring(0, end + 1));
+        }
+    }
+
+    /**
+     * Forgets all directories.
+     */
+    void clear() {
+        m_expiryByDirectory.clear();
+    }
+
+    private static String toEntry(final String bucket, final String dirKey) {
+        return bucket + SEPARATOR + dirKey;
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A prefix tree of the paths returned by directory listings. Once all pages of a directory listing have been fetched,
+ * every child of the directory is known, so whether a child or a grandchild in an already listed subtree exists, and
+ * whether it is a file or a directory, can be answered without a request.
+ *
+ * <p>
+ * Freshness: an entry is used for the configured time to live after it has been listed or written, a complete listing
+ * answers that a child does not exist for the same time. Our own writes, directory creations and deletes update the
+ * index, changes made by others become visible after the time to live.
+ * </p>
+ *
+ * <p>
+ * Memory: directories and files written by us are nodes of the tree. The (usually far more numerous) listed files of
+ * a directory are kept in a {@link CompactListing}, without any object per file. When the number of entries exceeds
+ * the configured maximum, the listings of other directories are dropped, oldest first. A dropped listing is never
+ * marked complete, so it cannot report a path as missing that it did not get to list. Only if there are no listings
+ * left to drop, the index is cleared.
+ * </p>
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class ListingIndex {
+
+    /**
+     * The answer of the index for a path.
+     */
+    enum State {
+            /** The index knows nothing about the path. */
+            UNKNOWN,
+            /** The path is known not to exist. */
+            NOT_FOUND,
+            /** The path is a file, see {@link Lookup#getSize()} and {@link Lookup#getLastModifiedMillis()}. */
+            FILE,
+            /** The path is a directory. */
+            DIRECTORY;
+    }
+
+    /**
+     * The result of a lookup.
+     */
+    static final class Lookup {
+
+        private static final Lookup UNKNOWN = new Lookup(State.UNKNOWN, 0, 0);
+
+        private static final Lookup NOT_FOUND = new Lookup(State.NOT_FOUND, 0, 0);
+
+        private static final Lookup DIRECTORY = new Lookup(State.DIRECTORY, 0, 0);
+
+        private final State m_state;
+
+        private final long m_size;
+
+        private final long m_lastModifiedMillis;
+
+        private Lookup(final State state, final long size, final long lastModifiedMillis) {
+            m_state = state;
+            m_size = size;
+            m_lastModifiedMillis = lastModifiedMillis;
+        }
+
+        State getState() {
+            return m_state;
+        }
+
+        long getSize() {
+            return m_size;
+        }
+
+        long getLastModifiedMillis() {
+            return m_lastModifiedMillis;
+        }
+    }
+
+    private static final char SEPARATOR = '/';
+
+    private static final byte FILE = 1;
+
+    private static final byte DIRECTORY = 2;
+
+    /** A descendant has been deleted, the directory might have vanished with it. */
+    private static final byte MAYBE_GONE = 4;
+
+    private static final class Node {
+
+        private Map<String, Node> m_children;
+
+        /** The files of the current listing of the directory, or <code>null</code>. */
+        private CompactListing m_files;
+
+        /** When the listing in {@link #m_files} was started (nanos). */
+        private long m_filesListedAt;
+
+        private byte m_flags;
+
+        private long m_size;
+
+        private long m_lastModifiedMillis;
+
+        /** When the node was last listed or written (nanos). */
+        private long m_seenAt;
+
+        /** When the last complete listing of the directory was started (nanos), or 0. */
+        private long m_listedAt;
+
+        private boolean is(final byte flag) {
+            return (m_flags & flag) != 0;
+        }
+
+        private Node child(final String name) {
+            return m_children == null ? null : m_children.get(name);
+        }
+    }
+
+    /**
+     * A listing of a directory that is being fetched. The files and subdirectories added to it are visible in the
+     * index right away, the files that are not part of the listing are only reported as missing once the listing is
+     * complete.
+     */
+    final class Listing {
+
+        private final Node m_node;
+
+        private final CompactListing m_listedFiles;
+
+        private final long m_start;
+
+        private final int m_generation;
+
+        private Listing(final Node node, final long start) {
+            m_node = node;
+            m_listedFiles = new CompactListing();
+            m_start = start;
+            m_generation = m_clearCount;
+        }
+
+        /**
+         * @return whether the listing is still part of the index, i.e. has not been replaced by a newer listing of the
+         *         same directory or dropped because the index has been cleared or the directory has been deleted.
+         */
+        boolean isActive() {
+            synchronized (ListingIndex.this) {
+                return m_generation == m_clearCount && m_node.m_files == m_listedFiles;
+            }
+        }
+
+        /**
+         * Adds a file of the directory. Files must be added in ascending order of their UTF-8 bytes, as returned by
+         * AWS. If a name is out of order (e.g. because an S3-compatible endpoint sorts differently) or the listing
+         * does not fit into the index, the listing is dropped, as it could otherwise not answer whether a file exists.
+         *
+         * @param name the name of the file within the directory.
+         * @param size the size in bytes.
+         * @param lastModifiedMillis the last modified time.
+         * @return whether the listing is still active, i.e. the file has been added.
+         */
+        boolean addFile(final String name, final long size, final long lastModifiedMillis) {
+            synchronized (ListingIndex.this) {
+                if (!isActive()) {
+                    return false;
+                }
+                if ((m_entries >= m_maxEntries && !makeRoom(m_node))
+                    || !m_listedFiles.add(name, size, lastModifiedMillis)) {
+                    dropListing(m_node);
+                    return false;
+                }
+                markDirectory(m_node);
+                m_entries++;
+                return true;
+            }
+        }
+
+        /**
+         * Adds a subdirectory of the directory.
+         *
+         * @param name the name of the subdirectory within the directory, with or without trailing slash.
+         */
+        void addDirectory(final String name) {
+            synchronized (ListingIndex.this) {
+                if (isActive()) {
+                    markDirectory(m_node);
+                    markDirectory(getOrCreateChild(m_node, trimSeparator(name)));
+                }
+            }
+        }
+
+        /**
+         * Records that all children of the directory have been added, i.e. that all pages have been fetched.
+         */
+        void complete() {
+            synchronized (ListingIndex.this) {
+                if (isActive()) {
+                    m_listedFiles.trimToSize();
+                    m_node.m_listedAt = m_start;
+                }
+            }
+        }
+    }
+
+    /** The children of the root are the buckets. */
+    private final Node m_root = new Node();
+
+    /** The nodes that have a listing, in the order in which the listings were started. */
+    private final Set<Node> m_listedNodes = Collections.newSetFromMap(new LinkedHashMap<>());
+
+    private final long m_ttlNanos;
+
+    private final int m_maxEntries;
+
+    private final LongSupplier m_clock;
+
+    private int m_entries;
+
+    /** Incremented whenever the index is cleared, so that running listings can tell that they have been dropped. */
+    private int m_clearCount;
+
+    /**
+     * @param ttlMillis for how long listed entries are used, in milliseconds. Zero disables the index.
+     * @param maxEntries the maximum number of paths kept in the index.
+     */
+    ListingIndex(final long ttlMillis, final int maxEntries) {
+        this(ttlMillis, maxEntries, System::nanoTime);
+    }
+
+    ListingIndex(final long ttlMillis, final int maxEntries, final LongSupplier clock) {
+        m_ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        m_maxEntries = maxEntries;
+        m_clock = clock;
+    }
+
+    /**
+     * Starts a new listing of a directory, which replaces the previous listing of the directory.
+     *
+     * @param bucket the bucket name.
+     * @param dirKey the key of the listed directory, or <code>null</code> for the bucket itself.
+     * @return the listing to add the listed files and subdirectories to, or <code>null</code> if the index is
+     *         disabled.
+     */
+    synchronized Listing startListing(final String bucket, final String dirKey) {
+        final var node = getOrCreate(bucket, dirKey);
+        if (node == null) {
+            return null;
+        }
+        if (node.m_files != null) {
+            dropListing(node);
+        }
+        final var listing = new Listing(node, m_clock.getAsLong());
+        m_listedNodes.add(node);
+        node.m_files = listing.m_listedFiles;
+        node.m_filesListedAt = listing.m_start;
+        node.m_listedAt = 0;
+        return listing;
+    }
+
+    /**
+     * Adds a file that has been written.
+     *
+     * @param bucket the bucket name.
+     * @param key the key of the file.
+     * @param size the size of the file in bytes.
+     * @param lastModifiedMillis the last modified time of the file.
+     */
+    synchronized void addFile(final String bucket, final String key, final long size,
+        final long lastModifiedMillis) {
+        final var node = getOrCreate(bucket, key);
+        if (node != null) {
+            node.m_flags |= FILE;
+            node.m_size = size;
+            node.m_lastModifiedMillis = lastModifiedMillis;
+            node.m_seenAt = m_clock.getAsLong();
+        }
+    }
+
+    /**
+     * Adds a directory.
+     *
+     * @param bucket the bucket name.
+     * @param dirKey the key of the directory, with or without trailing slash.
+     */
+    synchronized void addDirectory(final String bucket, final String dirKey) {
+        final var node = getOrCreate(bucket, dirKey);
+        if (node != null) {
+            markDirectory(node);
+        }
+    }
+
+    /**
+     * Looks up a path.
+     *
+     * @param bucket the bucket name.
+     * @param key the key of the path.
+     * @param directory whether the path has the directory form (trailing slash).
+     * @return what the index knows about the path.
+     */
+    synchronized Lookup lookup(final String bucket, final String key, final boolean directory) {
+        if (m_ttlNanos <= 0) {
+            return Lookup.UNKNOWN;
+        }
+
+        final var trimmed = trimSeparator(key);
+        final var nameStart = trimmed.lastIndexOf(SEPARATOR) + 1;
+        final var parent = find(bucket, trimmed.substring(0, nameStart));
+        if (parent == null) {
+            return Lookup.UNKNOWN;
+        }
+
+        final var now = m_clock.getAsLong();
+        final var name = trimmed.substring(nameStart);
+        final var child = parent.child(name);
+        final var freshChild = child != null && isFresh(child.m_seenAt, now) ? child : null;
+        if (freshChild != null) {
+            if (!directory && freshChild.is(FILE)) {
+                return new Lookup(State.FILE, freshChild.m_size, freshChild.m_lastModifiedMillis);
+            }
+            if (freshChild.is(DIRECTORY) && freshChild.is(MAYBE_GONE)) {
+                return Lookup.UNKNOWN;
+            }
+        }
+        if (!directory && parent.m_files != null && isFresh(parent.m_filesListedAt, now)) {
+            final var index = parent.m_files.indexOf(name);
+            if (index >= 0) {
+                return new Lookup(State.FILE, parent.m_files.getSize(index),
+                    parent.m_files.getLastModifiedMillis(index));
+            }
+        }
+
+        final var parentListed = parent.m_listedAt != 0 && isFresh(parent.m_listedAt, now);
+        // without a complete listing of the parent, an object with the name of the directory might exist
+        if (freshChild != null && freshChild.is(DIRECTORY) && (directory || parentListed)) {
+            return Lookup.DIRECTORY;
+        }
+        if (parentListed) {
+            // the complete listing of the parent does not contain the path
+            return Lookup.NOT_FOUND;
+        }
+        return Lookup.UNKNOWN;
+    }
+
+    /**
+     * Removes a deleted path together with all its descendants. The ancestors might have vanished with the path (if
+     * they were only common prefixes), hence their existence is not answered anymore until they are seen again.
+     *
+     * @param bucket the bucket name.
+     * @param key the key of the deleted path, or <code>null</code> for the whole bucket.
+     */
+    synchronized void remove(final String bucket, final String key) {
+        if (bucket == null) {
+            clear();
+            return;
+        }
+        if (key == null) {
+            removeChild(m_root, bucket);
+            return;
+        }
+
+        final var trimmed = trimSeparator(key);
+        final var nameStart = trimmed.lastIndexOf(SEPARATOR) + 1;
+        final var parent = find(bucket, trimmed.substring(0, nameStart));
+        if (parent == null) {
+            return;
+        }
+        final var name = trimmed.substring(nameStart);
+        removeChild(parent, name);
+        if (parent.m_files != null) {
+            final var index = parent.m_files.indexOf(name);
+            if (index >= 0) {
+                parent.m_files.remove(index);
+            }
+        }
+
+        // mark the ancestors (but not the bucket)
+        var node = m_root.child(bucket);
+        var start = 0;
+        for (var end = trimmed.indexOf(SEPARATOR); node != null && end >= 0; end = trimmed.indexOf(SEPARATOR, start)) {
+            node = node.child(trimmed.substring(start, end));
+            if (node != null) {
+                node.m_flags |= MAYBE_GONE;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        m_root.m_children = null;
+        m_listedNodes.clear();
+        m_entries = 0;
+        m_clearCount++;
+    }
+
+    /**
+     * @return the number of paths in the index.
+     */
+    synchronized int size() {
+        return m_entries;
+    }
+
+    private boolean isFresh(final long time, final long now) {
+        return now - time < m_ttlNanos;
+    }
+
+    private void removeChild(final Node parent, final String name) {
+        if (parent.m_children != null) {
+            final var removed = parent.m_children.remove(name);
+            if (removed != null) {
+                m_entries -= detach(removed);
+            }
+        }
+    }
+
+    /**
+     * Drops the listing of a directory, so that a running listing of it becomes inactive and a complete one does not
+     * answer anymore.
+     */
+    private void dropListing(final Node node) {
+        releaseFiles(node);
+        m_listedNodes.remove(node);
+    }
+
+    private void releaseFiles(final Node node) {
+        m_entries -= node.m_files.size();
+        node.m_files = null;
+        node.m_listedAt = 0;
+    }
+
+    /**
+     * Drops the oldest listings of directories other than the given one until there is room for another entry. If
+     * that is not enough, the index is cleared.
+     *
+     * @param keep the node whose listing must not be dropped, or <code>null</code>.
+     * @return whether there is room for another entry without clearing the index.
+     */
+    private boolean makeRoom(final Node keep) {
+        for (final var iter = m_listedNodes.iterator(); m_entries >= m_maxEntries && iter.hasNext();) {
+            final var node = iter.next();
+            if (node != keep) {
+                releaseFiles(node);
+                iter.remove();
+            }
+        }
+        return m_entries < m_maxEntries;
+    }
+
+    /**
+     * Drops the listings of a removed subtree, so that running listings of it become inactive.
+     *
+     * @return the number of entries of the subtree.
+     */
+    private int detach(final Node node) {
+        var count = 1;
+        if (node.m_files != null) {
+            count += node.m_files.size();
+            node.m_files = null;
+            m_listedNodes.remove(node);
+        }
+        if (node.m_children != null) {
+            for (final var child : node.m_children.values()) {
+                count += detach(child);
+            }
+        }
+        return count;
+    }
+
+    private Node find(final String bucket, final String key) {
+        var node = m_root.child(bucket);
+        var start = 0;
+        for (var end = key.indexOf(SEPARATOR); node != null && end >= 0; end = key.indexOf(SEPARATOR, start)) {
+            node = node.child(key.substring(start, end));
+            start = end + 1;
+        }
+        if (node != null && start < key.length()) {
+            node = node.child(key.substring(start));
+        }
+        return node;
+    }
+
+    private Node getOrCreate(final String bucket, final String key) {
+        if (m_ttlNanos <= 0) {
+            return null;
+        }
+        if (m_entries >= m_maxEntries && !makeRoom(null)) {
+            clear();
+        }
+
+        var node = getOrCreateChild(m_root, bucket);
+        if (key == null) {
+            return node;
+        }
+        final var trimmed = trimSeparator(key);
+        var start = 0;
+        for (var end = trimmed.indexOf(SEPARATOR); end >= 0; end = trimmed.indexOf(SEPARATOR, start)) {
+            node = getOrCreateChild(node, trimmed.substring(start, end));
+            // the ancestors of an existing path exist
+            markDirectory(node);
+            start = end + 1;
+        }
+        return start < trimmed.length() ? getOrCreateChild(node, trimmed.substring(start)) : node;
+    }
+
+    private void markDirectory(final Node node) {
+        node.m_flags = (byte)((node.m_flags | DIRECTORY) & ~MAYBE_GONE);
+        node.m_seenAt = m_clock.getAsLong();
+    }
+
+    private Node getOrCreateChild(final Node parent, final String name) {
+        if (parent.m_children == null) {
+            parent.m_children = new HashMap<>(4);
+        }
+        return parent.m_children.computeIfAbsent(name, n -> {
+            m_entries++;
+            return new Node();
+        });
+    }
+
+    private static String trimSeparator(final String key) {
+        return key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+    }
+}
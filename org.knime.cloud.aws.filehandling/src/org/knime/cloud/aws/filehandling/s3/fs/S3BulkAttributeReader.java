@@ -0,0 +1,335 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.knime.cloud.aws.filehandling.s3.AwsUtils;
+import org.knime.filehandling.core.connections.base.attributes.BaseFileAttributes;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Reads the attributes of many paths at once, see {@link S3FileSystem#readAttributes(Collection)}.
+ *
+ * Paths whose attributes are cached or known from the listing index are answered directly. The remaining paths are
+ * grouped by their parent directory. For a group with enough paths, the parent is listed instead of sending one HEAD
+ * request per path: a list request costs about as much as {@value #LIST_COST_IN_HEADS} HEAD requests and returns up to
+ * 1000 entries, so at most one page per {@value #LIST_COST_IN_HEADS} paths of the group is listed. The listing stops
+ * as soon as it has passed the last requested name. Paths that are not answered within the page budget, and the paths
+ * of small groups, are read with concurrent HEAD requests.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class S3BulkAttributeReader {
+
+    /** The price of a list request in relation to a HEAD request. */
+    static final int LIST_COST_IN_HEADS = 12;
+
+    /** The number of concurrent HEAD requests. */
+    static final int HEAD_PARALLELISM = 16;
+
+    private final S3FileSystem m_fs;
+
+    private final Map<S3Path, BasicFileAttributes> m_result = new ConcurrentHashMap<>();
+
+    private final List<S3Path> m_headPaths = new ArrayList<>();
+
+    S3BulkAttributeReader(final S3FileSystem fs) {
+        m_fs = fs;
+    }
+
+    Map<S3Path, BasicFileAttributes> read(final Collection<S3Path> paths) throws IOException {
+        final Map<S3Path, List<S3Path>> pathsByParent = new LinkedHashMap<>();
+        for (final S3Path path : paths) {
+            final var absolute = (S3Path)path.toAbsolutePath().normalize();
+            if (absolute.getBlobName() == null || !resolveLocally(path, absolute)) {
+                final var parent = absolute.getBlobName() == null ? null : (S3Path)absolute.getParent();
+                if (parent == null) {
+                    m_headPaths.add(path);
+                } else {
+                    pathsByParent.computeIfAbsent(parent.toDirectoryPath(), p -> new ArrayList<>()).add(path);
+                }
+            }
+        }
+
+        for (final var group : pathsByParent.entrySet()) {
+            if (group.getValue().size() >= LIST_COST_IN_HEADS) {
+                m_headPaths.addAll(listParent(group.getKey(), group.getValue()));
+            } else {
+                m_headPaths.addAll(group.getValue());
+            }
+        }
+
+        readWithHeadRequests();
+
+        // keep the order of the given paths
+        final Map<S3Path, BasicFileAttributes> ordered = new LinkedHashMap<>();
+        for (final S3Path path : paths) {
+            final var attributes = m_result.get(path);
+            if (attributes != null) {
+                ordered.put(path, attributes);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return whether the path has been answered from the attribute cache or the listing index.
+     */
+    private boolean resolveLocally(final S3Path path, final S3Path absolute) {
+        final var cached = m_fs.getCachedAttributes(absolute);
+        if (cached.isPresent()) {
+            m_result.put(path, cached.get());
+            return true;
+        }
+
+        final var indexed =
+            m_fs.getListingIndex().lookup(absolute.getBucketName(), absolute.getBlobName(), absolute.isDirectory());
+        switch (indexed.getState()) {
+            case FILE:
+                m_result.put(path, createFileAttributes(absolute, indexed.getSize(),
+                    FileTime.fromMillis(indexed.getLastModifiedMillis())));
+                return true;
+            case DIRECTORY:
+                m_result.put(path, createDirectoryAttributes(absolute));
+                return true;
+            case NOT_FOUND:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Lists the parent directory until all given paths are answered or the page budget is spent.
+     *
+     * @return the paths that have not been answered.
+     */
+    private List<S3Path> listParent(final S3Path parent, final List<S3Path> paths) throws IOException {
+        final var bucket = parent.getBucketName();
+        final var prefix = parent.getBlobName() == null ? "" : parent.getBlobName();
+
+        final Map<String, List<S3Path>> pathsByName = new HashMap<>();
+        String lastName = "";
+        for (final S3Path path : paths) {
+            final var absolute = (S3Path)path.toAbsolutePath().normalize();
+            final var name = trimSeparator(absolute.getBlobName().substring(prefix.length()));
+            pathsByName.computeIfAbsent(name, n -> new ArrayList<>()).add(path);
+            lastName = compareKeys(name, lastName) > 0 ? name : lastName;
+        }
+        // with a delimiter, all entries for the last name (file and common prefix) come before this key
+        final var endKey = prefix + lastName + m_fs.getSeparator();
+
+        final var indexedListing = m_fs.getListingIndex().startListing(bucket, parent.getBlobName());
+        var pageBudget = Math.max(1, paths.size() / LIST_COST_IN_HEADS);
+        String continuationToken = null;
+        var passedEnd = false;
+        try {
+            do {
+                final var response = m_fs.getClient().listObjects(ListObjectsV2Request.builder()//
+                    .bucket(bucket)//
+                    .prefix(prefix)//
+                    .delimiter(m_fs.getSeparator())//
+                    .encodingType("url")//
+                    .startAfter(prefix.isEmpty() ? null : prefix)//
+                    .continuationToken(continuationToken)//
+                    .build());
+                pageBudget--;
+
+                for (final S3Object object : response.contents()) {
+                    final var path = new S3Path(m_fs, bucket, object.key());
+                    final var lastModified = FileTime.from(object.lastModified());
+                    final var attributes = createFileAttributes(path, object.size(), lastModified);
+                    m_fs.addToAttributeCache(path, attributes);
+                    if (indexedListing != null && !path.isDirectory()) {
+                        indexedListing.addFile(object.key().substring(prefix.length()), object.size(),
+                            lastModified.toMillis());
+                    }
+                    passedEnd |= compareKeys(object.key(), endKey) >= 0;
+
+                    for (final S3Path requested : pathsByName.getOrDefault(trimSeparator(object.key()
+                        .substring(prefix.length())), List.of())) {
+                        if (!requested.isDirectory()) {
+                            m_result.put(requested, attributes);
+                        }
+                    }
+                }
+
+                for (final CommonPrefix commonPrefix : response.commonPrefixes()) {
+                    final var dir = new S3Path(m_fs, bucket, commonPrefix.prefix());
+                    m_fs.addKnownDirectory(dir);
+                    if (indexedListing != null) {
+                        indexedListing.addDirectory(commonPrefix.prefix().substring(prefix.length()));
+                    }
+                    passedEnd |= compareKeys(commonPrefix.prefix(), endKey) >= 0;
+
+                    for (final S3Path requested : pathsByName.getOrDefault(trimSeparator(commonPrefix.prefix()
+                        .substring(prefix.length())), List.of())) {
+                        // an object "name" takes precedence over the directory "name/"
+                        m_result.putIfAbsent(requested, createDirectoryAttributes(dir));
+                    }
+                }
+
+                continuationToken = response.nextContinuationToken();
+            } while (continuationToken != null && !passedEnd && pageBudget > 0);
+        } catch (SdkException e) {
+            throw AwsUtils.toIOE(e, parent);
+        }
+
+        if (continuationToken == null) {
+            if (indexedListing != null) {
+                indexedListing.complete();
+            }
+        } else if (!passedEnd) {
+            // out of budget, the paths not seen yet are read with HEAD requests
+            final List<S3Path> unanswered = new ArrayList<>();
+            for (final S3Path path : paths) {
+                if (!m_result.containsKey(path)) {
+                    unanswered.add(path);
+                }
+            }
+            return unanswered;
+        }
+        // the listing has passed all requested names, paths that have not been seen do not exist
+        return List.of();
+    }
+
+    private void readWithHeadRequests() throws IOException {
+        if (m_headPaths.size() <= 1) {
+            for (final S3Path path : m_headPaths) {
+                readWithHeadRequest(path);
+            }
+            return;
+        }
+
+        // a fixed number of workers on the shared executor of the client bounds the concurrent HEAD requests
+        final var pathCount = m_headPaths.size();
+        final var nextPath = new AtomicInteger();
+        final var failed = new AtomicBoolean();
+        final Runnable worker = () -> {
+            for (var i = nextPath.getAndIncrement(); i < pathCount && !failed.get(); i = nextPath.getAndIncrement()) {
+                try {
+                    readWithHeadRequest(m_headPaths.get(i));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        final var workers = new CompletableFuture<?>[Math.min(HEAD_PARALLELISM, pathCount)];
+        for (var i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(worker, m_fs.getClient().getExecutor()).whenComplete((r, e) -> {
+                if (e != null) {
+                    failed.set(true);
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.allOf(workers).get();
+        } catch (InterruptedException e) { // NOSONAR interrupt flag is restored
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reading attributes was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException)e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void readWithHeadRequest(final S3Path path) throws IOException {
+        try {
+            m_result.put(path, m_fs.provider().readAttributes(path, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) { // NOSONAR missing paths are not part of the result
+        }
+    }
+
+    private static BaseFileAttributes createFileAttributes(final S3Path path, final long size,
+        final FileTime lastModified) {
+        return new BaseFileAttributes(!path.isDirectory(), path, lastModified, lastModified, lastModified, size, false,
+            false, null);
+    }
+
+    private static BaseFileAttributes createDirectoryAttributes(final S3Path path) {
+        final var zero = FileTime.fromMillis(0);
+        return new BaseFileAttributes(false, path, zero, zero, zero, 0L, false, false, null);
+    }
+
+    /**
+     * Compares keys in the order of S3 listings, which is the binary order of their UTF-8 bytes.
+     */
+    private static int compareKeys(final String first, final String second) {
+        return Arrays.compareUnsigned(first.getBytes(StandardCharsets.UTF_8), second.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String trimSeparator(final String name) {
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+}
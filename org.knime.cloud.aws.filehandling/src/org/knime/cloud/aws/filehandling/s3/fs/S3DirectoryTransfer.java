@@ -0,0 +1,284 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.knime.cloud.aws.filehandling.s3.AwsUtils;
+import org.knime.cloud.aws.filehandling.s3.MultiRegionS3Client;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Copies or moves a directory with all its contents using server-side copies.
+ *
+ * The source objects are listed page by page (without delimiter) and each object is copied as soon as it has been
+ * listed, by a bounded number of concurrent copy requests. When moving, the source objects are deleted with batched
+ * DeleteObjects requests once all objects have been copied, so a failed or cancelled move leaves the source intact.
+ *
+ * A transfer can be cancelled with {@link #cancel()} or by interrupting the thread that runs it. In both cases the
+ * copies that are in progress are finished and an {@link InterruptedIOException} is thrown.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class S3DirectoryTransfer {
+
+    /**
+     * Default number of concurrent copy requests.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Listener that is notified about the progress of a transfer.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after each copied object, possibly concurrently from several threads.
+         *
+         * @param objects the number of objects copied so far
+         * @param bytes the number of bytes copied so far
+         */
+        void progress(long objects, long bytes);
+    }
+
+    private final S3Path m_source;
+
+    private final S3Path m_target;
+
+    private final boolean m_move;
+
+    private int m_parallelism = DEFAULT_PARALLELISM;
+
+    private ProgressListener m_progressListener = (objects, bytes) -> {
+    };
+
+    private volatile boolean m_cancelled;
+
+    private final AtomicLong m_copiedObjects = new AtomicLong();
+
+    private final AtomicLong m_copiedBytes = new AtomicLong();
+
+    /**
+     * @param source the source directory
+     * @param target the target directory
+     * @param move {@code true} if the source should be deleted after it has been copied
+     */
+    public S3DirectoryTransfer(final S3Path source, final S3Path target, final boolean move) {
+        m_source = source.toDirectoryPath();
+        m_target = target.toDirectoryPath();
+        m_move = move;
+    }
+
+    /**
+     * @param parallelism the number of concurrent copy requests
+     */
+    public void setParallelism(final int parallelism) {
+        m_parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param progressListener the listener to notify about the progress
+     */
+    public void setProgressListener(final ProgressListener progressListener) {
+        m_progressListener = progressListener;
+    }
+
+    /**
+     * Cancels the transfer. Copies that are in progress are finished, no further copies are started.
+     */
+    public void cancel() {
+        m_cancelled = true;
+    }
+
+    /**
+     * @return the number of objects copied so far
+     */
+    public long getCopiedObjects() {
+        return m_copiedObjects.get();
+    }
+
+    /**
+     * @return the number of bytes copied so far
+     */
+    public long getCopiedBytes() {
+        return m_copiedBytes.get();
+    }
+
+    private static String prefixOf(final S3Path dir) {
+        return dir.getBlobName() == null ? "" : dir.getBlobName();
+    }
+
+    /**
+     * Runs the transfer.
+     *
+     * @throws InterruptedIOException if the transfer has been cancelled
+     * @throws IOException if listing, copying or deleting failed
+     */
+    @SuppressWarnings("resource")
+    public void run() throws IOException {
+        final String sourceBucket = m_source.getBucketName();
+        final String sourcePrefix = prefixOf(m_source);
+        final String targetBucket = m_target.getBucketName();
+        final String targetPrefix = prefixOf(m_target);
+        if (sourceBucket.equals(targetBucket) && targetPrefix.startsWith(sourcePrefix)) {
+            throw new IOException(String.format("Cannot copy %s into itself (%s)", m_source, m_target));
+        }
+
+        final MultiRegionS3Client client = m_source.getFileSystem().getClient();
+        // only the keys of successfully copied objects are deleted when moving
+        final List<String> copiedKeys = Collections.synchronizedList(new ArrayList<>());
+        final var failure = new AtomicReference<RuntimeException>();
+        final var permits = new Semaphore(m_parallelism);
+        final ExecutorService executor = Executors.newFixedThreadPool(m_parallelism, r -> {
+            final var thread = new Thread(r, "KNIME-S3-Transfer-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            String continuationToken = null;
+            do {
+                final var response = client.listObjects(ListObjectsV2Request.builder()//
+                    .bucket(sourceBucket)//
+                    .prefix(sourcePrefix)//
+                    .encodingType("url")//
+                    .continuationToken(continuationToken)//
+                    .build());
+
+                for (final S3Object object : response.contents()) {
+                    permits.acquire();
+                    if (m_cancelled || failure.get() != null) {
+                        permits.release();
+                        break;
+                    }
+                    final String targetKey = targetPrefix + object.key().substring(sourcePrefix.length());
+                    executor.execute(() -> {
+                        try {
+                            client.copyObject(sourceBucket, object.key(), targetBucket, targetKey, object.size());
+                            copiedKeys.add(object.key());
+                            m_progressListener.progress(m_copiedObjects.incrementAndGet(),
+                                m_copiedBytes.addAndGet(object.size()));
+                        } catch (RuntimeException e) { // NOSONAR any failure must stop the transfer
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+                continuationToken = response.nextContinuationToken();
+            } while (continuationToken != null && !m_cancelled && failure.get() == null);
+        } catch (InterruptedException e) {
+            m_cancelled = true;
+            Thread.currentThread().interrupt();
+        } catch (SdkException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            awaitCopies(executor);
+        }
+
+        final var error = failure.get();
+        if (error instanceof SdkException) {
+            throw AwsUtils.toIOE((SdkException)error, m_source, m_target);
+        } else if (error != null) {
+            throw new IOException(String.format("Transfer of %s to %s failed", m_source, m_target), error);
+        }
+        if (m_cancelled) {
+            throw new InterruptedIOException(String.format("Transfer of %s was cancelled", m_source));
+        }
+
+        if (m_move) {
+            deleteSources(client, sourceBucket, copiedKeys);
+        }
+    }
+
+    private void awaitCopies(final ExecutorService executor) {
+        executor.shutdown();
+        var interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) { // NOSONAR interrupt flag is restored below
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            m_cancelled = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deleteSources(final MultiRegionS3Client client, final String bucket, final List<String> keys)
+        throws IOException {
+        try {
+            final var errors = client.deleteObjects(bucket, keys);
+            if (!errors.isEmpty()) {
+                final var error = errors.get(0);
+                throw new IOException(String.format("Could not delete %d of %d objects of %s after copying (%s: %s)",
+                    errors.size(), keys.size(), m_source, error.key(), error.message()));
+            }
+        } catch (SdkException e) {
+            throw AwsUtils.toIOE(e, m_source);
+        }
+    }
+}
@@ -49,13 +49,27 @@
 package org.knime.cloud.aws.filehandling.s3.fs;
 
 import java.io.IOException;
+import java.net.URL;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import org.knime.cloud.aws.filehandling.s3.AwsUtils;
 import org.knime.cloud.aws.filehandling.s3.MultiRegionS3Client;
 import org.knime.cloud.aws.filehandling.s3.fs.api.S3FSConnectionConfig;
+import org.knime.core.node.NodeLogger;
 import org.knime.filehandling.core.connections.base.BaseFileSystem;
+import org.knime.filehandling.core.connections.base.attributes.BaseFileAttributes;
+
+import software.amazon.awssdk.core.exception.SdkException;
 
 /**
  * The Amazon S3 implementation of the {@link FileSystem} interface.
@@ -69,12 +83,24 @@ public class S3FileSystem extends BaseFileSystem<S3Path> {
      */
     public static final String PATH_SEPARATOR = "/";
 
+    private static final NodeLogger LOGGER = NodeLogger.getLogger(S3FileSystem.class);
+
     private final MultiRegionS3Client m_client;
 
     private final boolean m_normalizePaths;
 
     private final int m_multipartUploadPartSize;
 
+    private final KnownDirectories m_knownDirectories;
+
+    private final ListingIndex m_listingIndex;
+
+    private final boolean m_streamingUpload;
+
+    private final TransferMemoryBudget m_transferMemoryBudget;
+
+    private final UploadBufferPool m_uploadBufferPool;
+
     /**
      * Constructs an S3FileSystem for the given URI
      *
@@ -83,6 +109,18 @@ public class S3FileSystem extends BaseFileSystem<S3Path> {
      * @throws IOException
      */
     public S3FileSystem(final S3FSConnectionConfig config, final long cacheTTL) throws IOException {
+        this(config, cacheTTL, new MultiRegionS3Client(config));
+    }
+
+    /**
+     * Constructs an S3FileSystem that uses the given client, e.g. one that replays prepared responses in tests and
+     * benchmarks.
+     *
+     * @param config
+     * @param cacheTTL The time to live for cache entries in the attributes cache
+     * @param client the client to use, which is closed together with the file system
+     */
+    S3FileSystem(final S3FSConnectionConfig config, final long cacheTTL, final MultiRegionS3Client client) {
         super(new S3FileSystemProvider(), //
             cacheTTL, //
             config.getWorkingDirectory(), //
@@ -90,7 +128,21 @@ public S3FileSystem(final S3FSConnectionConfig config, final long cacheTTL) thro
 
         m_normalizePaths = config.isNormalizePath();
         m_multipartUploadPartSize = config.getMultipartUploadPartSize();
-        m_client = new MultiRegionS3Client(config);
+        m_streamingUpload = config.isStreamingUpload();
+        m_transferMemoryBudget = new TransferMemoryBudget(config.getTransferMemoryLimit());
+        m_uploadBufferPool = new UploadBufferPool(m_transferMemoryBudget);
+        m_knownDirectories = new KnownDirectories(cacheTTL);
+        m_listingIndex =
+            new ListingIndex(config.getListingIndexTTL() != null ? config.getListingIndexTTL().toMillis() : cacheTTL,
+                config.getListingIndexMaxEntries());
+        m_client = client;
+        m_client.getMetrics().setTransferMemory(m_transferMemoryBudget::getMetrics);
+        m_client.getMetrics().registerMBean(config.createFSLocationSpec().getFileSystemSpecifier()
+            .orElse(S3FSDescriptorProvider.FS_TYPE.getTypeId()));
+
+        if (config.isAsyncStartup()) {
+            m_client.warmUpAsync(getPath(config.getWorkingDirectory()).getBucketName());
+        }
     }
 
     @Override
@@ -110,6 +162,153 @@ public MultiRegionS3Client getClient() {
         return m_client;
     }
 
+    /**
+     * Generates pre-signed URLs for many paths at once. The presigners and credentials are cached by the
+     * {@link MultiRegionS3Client}, so only the first URL for a region may block, e.g. to look up the region of the
+     * bucket or to fetch credentials. The remaining URLs are signed locally.
+     *
+     * @param paths The paths to generate URLs for.
+     * @param expirationDuration How long the URLs should be valid.
+     * @return the pre-signed URLs, in the same order as the given paths.
+     */
+    public List<URL> getPreSignedUrls(final List<S3Path> paths, final Duration expirationDuration) {
+        final List<URL> urls = new ArrayList<>(paths.size());
+        for (final S3Path path : paths) {
+            urls.add(path.getPreSignedUrl(expirationDuration));
+        }
+        return urls;
+    }
+
+    /**
+     * Reads the attributes of many paths at once. Instead of one HEAD request per path, the parent directories of paths
+     * that share a parent are listed when this is cheaper, see {@link S3BulkAttributeReader}. The attribute cache is
+     * filled with the results.
+     *
+     * @param paths The paths to read the attributes of.
+     * @return the attributes of the existing paths, in the order of the given paths. Paths that do not exist are not
+     *         contained.
+     * @throws IOException if reading the attributes failed.
+     */
+    public Map<S3Path, BasicFileAttributes> readAttributes(final Collection<S3Path> paths) throws IOException {
+        return new S3BulkAttributeReader(this).read(paths);
+    }
+
+    /**
+     * Deletes a directory with all its contents. Instead of one DeleteObject request per object (as when walking the
+     * directory), the objects are listed without delimiter and deleted with concurrent DeleteObjects requests of up to
+     * 1000 keys each.
+     *
+     * @param dir The directory (or bucket, whose contents are deleted) to delete.
+     * @throws IOException if listing or deleting failed, or if some objects could not be deleted.
+     */
+    public void deleteRecursively(final S3Path dir) throws IOException {
+        if (dir.getBucketName() == null) {
+            throw new IOException("Cannot delete the root directory " + dir);
+        }
+
+        final var prefix = dir.getBlobName() == null ? "" : dir.toDirectoryPath().getBlobName();
+        try {
+            final var errors = m_client.deleteObjectsWithPrefix(dir.getBucketName(), prefix);
+            if (!errors.isEmpty()) {
+                final var error = errors.get(0);
+                throw new IOException(String.format("Could not delete %d objects of %s (%s: %s)", errors.size(), dir,
+                    error.key(), error.message()));
+            }
+        } catch (SdkException e) {
+            throw AwsUtils.toIOE(e, dir);
+        } finally {
+            // the attributes of all deleted objects are outdated
+            invalidateDirectoryTree(dir);
+        }
+    }
+
+    /**
+     * Caches the attributes of an object that has just been written or copied, so that checking its existence or
+     * size right afterwards does not need a HEAD request. The last modified time is the local time of the write.
+     *
+     * @param file The written file.
+     * @param size The size of the file in bytes.
+     */
+    void cacheWrittenFile(final S3Path file, final long size) {
+        final var now = FileTime.from(Instant.now());
+        addToAttributeCache(file, new BaseFileAttributes(true, file, now, now, now, size, false, false, null));
+        m_knownDirectories.addParentsOf(file.getBucketName(), file.getBlobName());
+        m_listingIndex.addFile(file.getBucketName(), file.getBlobName(), size, now.toMillis());
+    }
+
+    /**
+     * Caches the attributes of a directory that has just been created and remembers that it and its ancestors exist.
+     *
+     * @param dir The created directory.
+     */
+    void cacheCreatedDirectory(final S3Path dir) {
+        final var now = FileTime.from(Instant.now());
+        addToAttributeCache(dir, new BaseFileAttributes(false, dir, now, now, now, 0L, false, false, null));
+        m_knownDirectories.add(dir.getBucketName(), dir.toDirectoryPath().getBlobName());
+        m_listingIndex.addDirectory(dir.getBucketName(), dir.getBlobName());
+    }
+
+    /**
+     * Remembers that a directory and its ancestors exist, e.g. because it has been returned by a listing.
+     *
+     * @param dir The existing directory.
+     */
+    void addKnownDirectory(final S3Path dir) {
+        if (dir.getBlobName() != null) {
+            m_knownDirectories.add(dir.getBucketName(), dir.toDirectoryPath().getBlobName());
+            m_listingIndex.addDirectory(dir.getBucketName(), dir.getBlobName());
+        }
+    }
+
+    /**
+     * @param path The path to check.
+     * @return whether the path is a directory that is known to exist, because it has recently been created, listed or
+     *         written into.
+     */
+    boolean isKnownDirectory(final S3Path path) {
+        return path.getBlobName() != null
+            && m_knownDirectories.contains(path.getBucketName(), path.toDirectoryPath().getBlobName());
+    }
+
+    /**
+     * Forgets everything cached about a directory tree whose objects have been deleted or moved.
+     *
+     * @param dir The root of the deleted or moved tree.
+     */
+    void invalidateDirectoryTree(final S3Path dir) {
+        clearAttributeCache();
+        m_listingIndex.remove(dir.getBucketName(), dir.getBlobName());
+        if (dir.getBlobName() != null) {
+            m_knownDirectories.invalidate(dir.getBucketName(), dir.getBlobName());
+        } else {
+            m_knownDirectories.clear();
+        }
+    }
+
+    /**
+     * @return the index of listed paths, see {@link ListingIndex}.
+     */
+    ListingIndex getListingIndex() {
+        return m_listingIndex;
+    }
+
+    /**
+     * Removes the cached attributes of a deleted path, both with and without trailing slash, and forgets it and its
+     * ancestors as known directories.
+     *
+     * @param path The deleted path.
+     */
+    void invalidateDeletedPath(final S3Path path) {
+        removeFromAttributeCache(path);
+        if (path.getBlobName() != null) {
+            removeFromAttributeCache(path.toDirectoryPath());
+            m_knownDirectories.invalidate(path.getBucketName(), path.getBlobName());
+        } else {
+            m_knownDirectories.clear();
+        }
+        m_listingIndex.remove(path.getBucketName(), path.getBlobName());
+    }
+
     @Override
     public S3Path getPath(final String first, final String... more) {
         return new S3Path(this, first, more);
@@ -117,6 +316,15 @@ public S3Path getPath(final String first, final String... more) {
 
     @Override
     public void prepareClose() {
+        final var metrics = m_client.getMetrics();
+        if (metrics.getRequestCount() > 0) {
+            LOGGER.info("Closing S3 file system. " + metrics.getSummary());
+        }
+        if (m_transferMemoryBudget.getPeakReservedBytes() > 0) {
+            LOGGER.info(m_transferMemoryBudget.getSummary());
+        }
+        metrics.unregisterMBean();
+        m_uploadBufferPool.clear();
         m_client.close();
     }
 
@@ -133,4 +341,25 @@ public boolean normalizePaths() {
     public int getMultipartUploadPartSize() {
         return m_multipartUploadPartSize;
     }
+
+    /**
+     * @return whether {@link S3OutputStream}s buffer parts in memory instead of temporary files.
+     */
+    boolean isStreamingUpload() {
+        return m_streamingUpload;
+    }
+
+    /**
+     * @return the budget from which all transfer buffers of this file system are reserved, with its metrics.
+     */
+    public TransferMemoryBudget getTransferMemoryBudget() {
+        return m_transferMemoryBudget;
+    }
+
+    /**
+     * @return the pool of memory chunks used by streaming uploads.
+     */
+    UploadBufferPool getUploadBufferPool() {
+        return m_uploadBufferPool;
+    }
 }
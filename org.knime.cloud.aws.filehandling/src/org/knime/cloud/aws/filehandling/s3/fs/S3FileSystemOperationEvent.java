@@ -0,0 +1,132 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import org.knime.cloud.aws.filehandling.s3.S3RequestMetrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for an operation of the S3 file system (list, head, get, put, copy, delete, ...). One
+ * operation may consist of several S3 requests, which are recorded as separate <code>S3 Request</code> events.
+ *
+ * Usage: {@link #start(String, S3Path)} before the operation, {@link #finish(long, Throwable)} afterwards. When
+ * recording is off, the event fields are not populated and nothing is committed.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+@Name("org.knime.cloud.aws.S3FileSystemOperation")
+@Label("S3 File System Operation")
+@Category({"KNIME", "Amazon S3"})
+@Description("An operation of the Amazon S3 file system")
+final class S3FileSystemOperationEvent extends Event {
+
+    @Name("operation")
+    @Label("Operation")
+    String m_operation;
+
+    @Name("bucket")
+    @Label("Bucket")
+    String m_bucket;
+
+    @Name("keyPrefix")
+    @Label("Key Prefix")
+    @Description("The directory part of the object key")
+    String m_keyPrefix;
+
+    @Name("bytes")
+    @Label("Bytes")
+    @DataAmount
+    long m_bytes;
+
+    @Name("status")
+    @Label("Status")
+    @Description("OK, or the simple name of the exception that made the operation fail")
+    String m_status;
+
+    /**
+     * Starts timing an operation.
+     *
+     * @param operation The operation name.
+     * @param path The path the operation is performed on.
+     * @return the started event.
+     */
+    static S3FileSystemOperationEvent start(final String operation, final S3Path path) {
+        final var event = new S3FileSystemOperationEvent();
+        if (event.isEnabled()) {
+            event.m_operation = operation;
+            event.m_bucket = path.getBucketName();
+            final String key = path.getBlobName();
+            if (key != null) {
+                // the prefix of a directory is the one of its parent
+                final var name = key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+                event.m_keyPrefix = S3RequestMetrics.toKeyPrefix(name);
+            }
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Ends the operation and commits the event if it is recorded.
+     *
+     * @param bytes The number of transferred bytes, if applicable.
+     * @param failure The exception that made the operation fail, or <code>null</code> on success.
+     */
+    void finish(final long bytes, final Throwable failure) {
+        end();
+        if (shouldCommit()) {
+            m_bytes = bytes;
+            m_status = failure == null ? "OK" : failure.getClass().getSimpleName();
+            commit();
+        }
+    }
+}
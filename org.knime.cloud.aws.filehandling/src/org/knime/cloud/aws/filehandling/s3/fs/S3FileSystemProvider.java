@@ -49,22 +49,29 @@
 package org.knime.cloud.aws.filehandling.s3.fs;
 
 import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.AccessMode;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream.Filter;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -103,6 +110,17 @@ protected SeekableByteChannel newByteChannelInternal(final S3Path path, final Se
     @SuppressWarnings("resource")
     @Override
     protected void createDirectoryInternal(final S3Path dir, final FileAttribute<?>... attrs) throws IOException {
+        recorded("createDirectory", dir, () -> {
+            createDirectoryOrBucket(dir);
+            if (dir.getBlobName() != null) {
+                dir.getFileSystem().cacheCreatedDirectory(dir);
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("resource")
+    private static void createDirectoryOrBucket(final S3Path dir) throws IOException {
         final String bucketName = dir.getBucketName();
 
         try {
@@ -117,15 +135,37 @@ protected void createDirectoryInternal(final S3Path dir, final FileAttribute<?>.
         }
     }
 
-    @SuppressWarnings("resource")
     @Override
     protected void copyInternal(final S3Path source, final S3Path target, final CopyOption... options) throws IOException {
+        recorded("copy", source, () -> {
+            copyObjectOrDirectory(source, target);
+            return null;
+        });
+    }
+
+    @SuppressWarnings("resource")
+    private void copyObjectOrDirectory(final S3Path source, final S3Path target) throws IOException {
         final MultiRegionS3Client client = source.getFileSystem().getClient();
 
         if (!source.isDirectory()) {
             try {
-                client.copyObject(source.getBucketName(), source.getBlobName(), target.getBucketName(),
-                    target.getBlobName());
+                // usually cached, since the source has been checked before. Otherwise the HEAD response is passed on,
+                // so that a multipart copy does not need another HEAD request for the metadata
+                final var cached = source.getFileSystem().getCachedAttributes(source);
+                final HeadObjectResponse head =
+                    cached.isPresent() ? null : client.headObject(source.getBucketName(), source.getBlobName());
+                final long size;
+                if (head != null) {
+                    size = head.contentLength();
+                    client.copyObject(source.getBucketName(), source.getBlobName(), target.getBucketName(),
+                        target.getBlobName(), head);
+                } else {
+                    size = cached.isPresent() ? cached.get().size()
+                        : readAttributes(source, BasicFileAttributes.class).size();
+                    client.copyObject(source.getBucketName(), source.getBlobName(), target.getBucketName(),
+                        target.getBlobName(), size);
+                }
+                target.getFileSystem().cacheWrittenFile(target, size);
             } catch (final SdkException ex) {
                 throw AwsUtils.toIOE(ex, source, target);
             }
@@ -138,6 +178,50 @@ protected void copyInternal(final S3Path source, final S3Path target, final Copy
         }
     }
 
+    @Override
+    protected void moveInternal(final S3Path source, final S3Path target, final CopyOption... options)
+        throws IOException {
+        if (!readAttributes(source, BasicFileAttributes.class).isDirectory()) {
+            super.moveInternal(source, target, options);
+            return;
+        }
+
+        final var optionList = Arrays.asList(options);
+        if (optionList.contains(StandardCopyOption.ATOMIC_MOVE)) {
+            throw new AtomicMoveNotSupportedException(source.toString(), target.toString(),
+                "Directories cannot be moved atomically in S3");
+        }
+
+        recorded("move", source, () -> {
+            final var targetAttributes = readAttributesIfExists(target);
+            if (targetAttributes != null && !optionList.contains(StandardCopyOption.REPLACE_EXISTING)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            if (!dirIsEmpty(target.toDirectoryPath())) {
+                throw new DirectoryNotEmptyException(
+                    String.format("Target directory %s exists and is not empty", target.toString()));
+            }
+            if (targetAttributes != null && targetAttributes.isRegularFile()) {
+                // replaced by the directory
+                delete(target);
+            }
+            new S3DirectoryTransfer(source, target, true).run();
+            // the attributes of all moved objects are outdated, and what is known about the target as well
+            source.getFileSystem().invalidateDirectoryTree(source);
+            target.getFileSystem().invalidateDirectoryTree(target);
+            target.getFileSystem().cacheCreatedDirectory(target);
+            return null;
+        });
+    }
+
+    private BasicFileAttributes readAttributesIfExists(final S3Path path) throws IOException {
+        try {
+            return readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) { // NOSONAR a missing path has no attributes
+            return null;
+        }
+    }
+
     @SuppressWarnings("resource")
     private static boolean dirIsEmpty(final S3Path dir) throws IOException {
         final MultiRegionS3Client client = dir.getFileSystem().getClient();
@@ -166,10 +250,86 @@ protected void checkAccessInternal(final S3Path s3Path, final AccessMode... mode
     /**
      * {@inheritDoc}
      */
-    @SuppressWarnings("resource")
     @Override
     protected InputStream newInputStreamInternal(final S3Path path, final OpenOption... options) throws IOException {
+        // recorded until the stream is closed, with the number of bytes read
+        final var event = S3FileSystemOperationEvent.start("get", path);
+        try {
+            return new RecordedInputStream(openInputStream(path), event);
+        } catch (IOException | RuntimeException e) {
+            event.finish(0, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Finishes the {@link S3FileSystemOperationEvent} of a read when the stream is closed.
+     */
+    private static final class RecordedInputStream extends FilterInputStream {
 
+        private final S3FileSystemOperationEvent m_event;
+
+        private long m_bytesRead;
+
+        private IOException m_failure;
+
+        private boolean m_closed;
+
+        RecordedInputStream(final InputStream in, final S3FileSystemOperationEvent event) {
+            super(in);
+            m_event = event;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final var b = trackFailure(super::read);
+            if (b >= 0) {
+                m_bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final var read = trackFailure(() -> super.read(b, off, len));
+            if (read > 0) {
+                m_bytesRead += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final var skipped = in.skip(n);
+            m_bytesRead += skipped;
+            return skipped;
+        }
+
+        private int trackFailure(final IOOperation<Integer> read) throws IOException {
+            try {
+                return read.run();
+            } catch (IOException e) {
+                m_failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (m_closed) {
+                return;
+            }
+            m_closed = true;
+            try {
+                super.close();
+            } finally {
+                m_event.finish(m_bytesRead, m_failure);
+            }
+        }
+    }
+
+    @SuppressWarnings("resource")
+    private static InputStream openInputStream(final S3Path path) throws IOException {
         final ResponseInputStream<GetObjectResponse> inputStream;
 
         if (path.getBlobName() == null) {
@@ -178,7 +338,9 @@ protected InputStream newInputStreamInternal(final S3Path path, final OpenOption
 
         try {
 
-            inputStream = path.getFileSystem().getClient().getObject(path.getBucketName(), path.getBlobName());
+            // the size is usually cached, since the path has been checked before
+            final long size = path.getFileSystem().getCachedAttributes(path).map(BaseFileAttributes::size).orElse(-1L);
+            inputStream = path.getFileSystem().getClient().getObject(path.getBucketName(), path.getBlobName(), size);
 
             if (inputStream == null) {
                 throw new IOException(String.format("Could not read path %s", path));
@@ -229,11 +391,16 @@ protected OutputStream newOutputStreamInternal(final S3Path path, final OpenOpti
 
     @Override
     protected Iterator<S3Path> createPathIterator(final S3Path dir, final Filter<? super Path> filter) throws IOException {
-        return S3PathIteratorFactory.create(dir.toDirectoryPath(), filter);
+        // records the first page only, further pages are recorded as S3 Request events
+        return recorded("list", dir, () -> S3PathIteratorFactory.create(dir.toDirectoryPath(), filter));
     }
 
     @Override
     protected BaseFileAttributes fetchAttributesInternal(final S3Path path, final Class<?> type) throws IOException {
+        return recorded("head", path, () -> fetchAttributes(path));
+    }
+
+    private static BaseFileAttributes fetchAttributes(final S3Path path) throws IOException {
         if (path.getBlobName() != null) {
             return fetchAttributesForObjectPath(path);
         } else if (path.getBucketName() != null) {
@@ -255,10 +422,34 @@ private static BaseFileAttributes fetchAttributesForBucket(final S3Path path) th
         return createBucketFileAttributes(getBucket(path), path);
     }
 
+    @SuppressWarnings("resource")
     private static BaseFileAttributes fetchAttributesForObjectPath(final S3Path path) throws IOException {
+        // the children of a recently listed directory are known
+        final var indexed = path.getFileSystem().getListingIndex().lookup(path.getBucketName(), path.getBlobName(),
+            path.isDirectory());
+        switch (indexed.getState()) {
+            case FILE:
+                return createIndexedFileAttributes(path, indexed);
+            case DIRECTORY:
+                return createPrefixAttributes(path);
+            case NOT_FOUND:
+                throw new NoSuchFileException(path.toString());
+            default:
+                break;
+        }
+
+        // directories that have recently been created, listed or written into are known to exist
+        final var knownDirectory = path.getFileSystem().isKnownDirectory(path);
+        if (knownDirectory && path.isDirectory()) {
+            return createPrefixAttributes(path);
+        }
+
         // first we try whether there is an object for the given path
-        // (whether path.isDirectory() or not)
+        // (whether path.isDirectory() or not). "/path" may be an object even if "/path/" is a known directory
         BaseFileAttributes attributes = fetchAttributesForObject(path);
+        if (attributes == null && knownDirectory) {
+            return createPrefixAttributes(path);
+        }
 
         // directory case (1): when given "/path", but it does not exist, then we check for /path/
         if (attributes == null && !path.isDirectory()) {
@@ -272,6 +463,9 @@ private static BaseFileAttributes fetchAttributesForObjectPath(final S3Path path
         }
 
         if (attributes != null) {
+            if (attributes.isDirectory()) {
+                path.getFileSystem().addKnownDirectory(path);
+            }
             return attributes;
         } else {
             throw new NoSuchFileException(path.toString());
@@ -309,15 +503,7 @@ private static BaseFileAttributes fetchAttributesForPrefix(final S3Path path) th
             final ListObjectsV2Response result = path.getFileSystem().getClient().listObjects(request);
 
             if (!result.contents().isEmpty() || !result.commonPrefixes().isEmpty()) {
-                return new BaseFileAttributes(false, //
-                    path, //
-                    FileTime.fromMillis(0), //
-                    FileTime.fromMillis(0), //
-                    FileTime.fromMillis(0), //
-                    0L, //
-                    false, //
-                    false, //
-                    null);
+                return createPrefixAttributes(path);
             } else {
                 return null;
             }
@@ -326,6 +512,30 @@ private static BaseFileAttributes fetchAttributesForPrefix(final S3Path path) th
         }
     }
 
+    private static BaseFileAttributes createIndexedFileAttributes(final S3Path path, final ListingIndex.Lookup file) {
+        final FileTime lastMod = FileTime.fromMillis(file.getLastModifiedMillis());
+        return new BaseFileAttributes(true, path, //
+            lastMod, //
+            lastMod, //
+            lastMod, //
+            file.getSize(), //
+            false, //
+            false, //
+            null);
+    }
+
+    private static BaseFileAttributes createPrefixAttributes(final S3Path path) {
+        return new BaseFileAttributes(false, //
+            path, //
+            FileTime.fromMillis(0), //
+            FileTime.fromMillis(0), //
+            FileTime.fromMillis(0), //
+            0L, //
+            false, //
+            false, //
+            null);
+    }
+
     private static BaseFileAttributes convertMetaDataToFileAttributes(final S3Path path,
         final HeadObjectResponse objectMetadata) throws IOException {
         final FileTime lastMod = determineObjectLastModificationTime(path, objectMetadata);
@@ -386,11 +596,51 @@ private static Bucket getBucket(final S3Path path) throws IOException {
     @SuppressWarnings("resource")
     @Override
     protected void deleteInternal(final S3Path path) throws IOException {
+        recorded("delete", path, () -> {
+            deleteObjectOrFolder(path);
+            path.getFileSystem().invalidateDeletedPath(path);
+            return null;
+        });
+    }
+
+    /**
+     * Deletes a file, or a directory with all its contents. Unlike walking the directory and deleting each path, which
+     * sends one DeleteObject request per object, the contents of a directory are deleted with bulk DeleteObjects
+     * requests (see {@link S3FileSystem#deleteRecursively(S3Path)}).
+     *
+     * @param path The file or directory to delete.
+     * @throws NoSuchFileException if the path does not exist.
+     * @throws IOException if deleting failed, or if some objects could not be deleted.
+     */
+    @SuppressWarnings("resource")
+    public void deleteRecursively(final Path path) throws IOException {
+        if (!(path instanceof S3Path)) {
+            throw new ProviderMismatchException();
+        }
+        final var s3Path = (S3Path)path;
+
+        recorded("deleteRecursively", s3Path, () -> {
+            final var isDirectory = readAttributes(s3Path, BasicFileAttributes.class).isDirectory();
+            if (isDirectory) {
+                s3Path.getFileSystem().deleteRecursively(s3Path);
+            }
+            if (!isDirectory || s3Path.getBlobName() == null) {
+                // the file, or the now empty bucket
+                deleteObjectOrFolder(s3Path);
+            }
+            s3Path.getFileSystem().invalidateDeletedPath(s3Path);
+            return null;
+        });
+    }
+
+    @SuppressWarnings("resource")
+    private static void deleteObjectOrFolder(final S3Path path) throws IOException {
         try {
             final MultiRegionS3Client client = path.getFileSystem().getClient();
 
             if (path.getBlobName() != null) {
-                if (!path.isDirectory() && client.doesObjectExist(path.getBucketName(), path.getBlobName())) {
+                if (!path.isDirectory() && (isCachedAsFile(path)
+                    || client.doesObjectExist(path.getBucketName(), path.getBlobName()))) {
                     // regular file. deleteObject does not fail if the object has been deleted in the meantime
                     client.deleteObject(path.getBucketName(), path.getBlobName());
                 } else {
@@ -404,6 +654,15 @@ protected void deleteInternal(final S3Path path) throws IOException {
         }
     }
 
+    /**
+     * Checks whether the path is known to be an object from a previous HEAD request or listing (usually the existence
+     * check right before the deletion), in which case the HEAD request before deleting it can be skipped.
+     */
+    @SuppressWarnings("resource")
+    private static boolean isCachedAsFile(final S3Path path) {
+        return path.getFileSystem().getCachedAttributes(path).map(BaseFileAttributes::isRegularFile).orElse(false);
+    }
+
     @SuppressWarnings("resource")
     private static void deleteFolder(final S3Path origPath) throws IOException {
         final S3Path dirPath = origPath.toDirectoryPath();
@@ -420,6 +679,27 @@ private static void deleteFolder(final S3Path origPath) throws IOException {
         }
     }
 
+    @FunctionalInterface
+    private interface IOOperation<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Runs the given operation and records it as {@link S3FileSystemOperationEvent}.
+     */
+    private static <T> T recorded(final String operation, final S3Path path, final IOOperation<T> op)
+        throws IOException {
+        final var event = S3FileSystemOperationEvent.start(operation, path);
+        try {
+            final T result = op.run();
+            event.finish(0, null);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            event.finish(0, e);
+            throw e;
+        }
+    }
+
     static BaseFileAttributes createBucketFileAttributes(final Bucket bucket, final S3Path bucketPath) {
         Instant bucketCreationTime = bucket.creationDate();
         if (bucketCreationTime == null) {
@@ -48,14 +48,19 @@
  */
 package org.knime.cloud.aws.filehandling.s3.fs;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -79,7 +84,10 @@
 
 /**
  * {@link OutputStream} implementation for the S3 storage. Uses Multipart upload for files larger than
- * multipartUploadPartSize specified in the {@link S3FSConnectionConfig}.
+ * multipartUploadPartSize specified in the {@link S3FSConnectionConfig}. The parts are buffered in temporary files, or
+ * in pooled memory chunks if streaming uploads are enabled (see {@link S3FSConnectionConfig#isStreamingUpload()}). In
+ * streaming mode the first part has the minimum size of 5 MB so that the upload starts early, and each following part
+ * doubles in size until the configured part size is reached.
  *
  * @author Alexander Bondaletov
  */
@@ -89,6 +97,11 @@ public class S3OutputStream extends OutputStream {
 
     private static final int MINIMUM_PART_SIZE = 5 * 1024 * 1024; // 5 MB
 
+    /**
+     * How long a streaming upload waits for transfer memory before it buffers the rest of the part in a temporary file.
+     */
+    private static final Duration MEMORY_WAIT_TIMEOUT = Duration.ofSeconds(5);
+
     private final S3Path m_path;
 
     private final String m_mimeType;
@@ -99,20 +112,24 @@ public class S3OutputStream extends OutputStream {
 
     private final int m_maxPartSize;
 
-    private final Path[] m_tempFiles;
+    private int m_partSize;
+
+    private final PartBuffer[] m_buffers;
 
     private final List<Future<CompletedPart>> m_uploadedParts;
 
     private boolean m_isOpen;
 
-    private int m_currentTempFileIdx;
+    private int m_currentBufferIdx;
 
-    private SeekableByteChannel m_currentChannel;
-
-    private int m_currentChannelBytesWritten;
+    private int m_currentPartBytesWritten;
 
     private String m_uploadId;
 
+    private long m_bytesWritten;
+
+    private final S3FileSystemOperationEvent m_event;
+
     /**
      * @param path The file path.
      * @throws IOException
@@ -131,15 +148,23 @@ public S3OutputStream(final S3Path path) throws IOException {
 
         m_isOpen = true;
 
-        m_tempFiles = new Path[2];
-        m_tempFiles[0] = FileUtil.createTempFile("s3-upload", "").toPath();
-        m_tempFiles[1] = FileUtil.createTempFile("s3-upload", "").toPath();
+        m_buffers = new PartBuffer[2];
+        if (path.getFileSystem().isStreamingUpload()) {
+            m_partSize = MINIMUM_PART_SIZE;
+            final var pool = path.getFileSystem().getUploadBufferPool();
+            m_buffers[0] = new MemoryPartBuffer(pool);
+            m_buffers[1] = new MemoryPartBuffer(pool);
+        } else {
+            m_partSize = m_maxPartSize;
+            m_buffers[0] = new TempFilePartBuffer();
+            m_buffers[1] = new TempFilePartBuffer();
+        }
 
-        m_currentTempFileIdx = 0;
-        m_currentChannel = Files.newByteChannel(m_tempFiles[m_currentTempFileIdx], StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-        m_currentChannelBytesWritten = 0;
+        m_currentBufferIdx = 0;
+        m_currentPartBytesWritten = 0;
 
         m_uploadedParts = new ArrayList<>();
+        m_event = S3FileSystemOperationEvent.start("put", path);
     }
 
     @Override
@@ -163,45 +188,39 @@ public void write(final byte[] src, final int off, final int len) throws IOExcep
 
         while (byteBuffer.remaining() > 0) {
             submitPartIfNecessary(false);
-            int bytesToWrite = Math.min(byteBuffer.remaining(), m_maxPartSize - m_currentChannelBytesWritten);
+            int bytesToWrite = Math.min(byteBuffer.remaining(), m_partSize - m_currentPartBytesWritten);
 
             // potentially lower the limit of the byte buffer to respect part size
             byteBuffer.limit(byteBuffer.position() + bytesToWrite);
 
-            writeByteBuffer(byteBuffer);
-            m_currentChannelBytesWritten += bytesToWrite;
+            m_buffers[m_currentBufferIdx].write(byteBuffer);
+            m_currentPartBytesWritten += bytesToWrite;
+            m_bytesWritten += bytesToWrite;
             byteBuffer.limit(off + len);
         }
     }
 
-    private void writeByteBuffer(final ByteBuffer bb) throws IOException {
-        while (bb.remaining() > 0) {
-            m_currentChannel.write(bb);
-        }
-    }
-
     private void submitPartIfNecessary(final boolean flush) throws IOException {
-        if (m_currentChannelBytesWritten == m_maxPartSize || (flush && m_currentChannelBytesWritten > 0)) {
+        if (m_currentPartBytesWritten == m_partSize || (flush && m_currentPartBytesWritten > 0)) {
 
-            m_currentChannel.close();
-            uploadPartFromCurrentTempFile();
+            uploadPartFromCurrentBuffer();
 
             if (m_uploadedParts.size() > 1) {
-                // wait until previous file is available for writing
+                // wait until previous buffer is available for writing
                 retrieveResult(m_uploadedParts.size() - 2);
             }
-            switchCurrentTempFile();
+            switchCurrentBuffer();
         }
     }
 
-    private void switchCurrentTempFile() throws IOException {
-        m_currentTempFileIdx = m_currentTempFileIdx == 0 ? 1 : 0;
-        m_currentChannel = Files.newByteChannel(m_tempFiles[m_currentTempFileIdx], StandardOpenOption.TRUNCATE_EXISTING,
-            StandardOpenOption.WRITE);
-        m_currentChannelBytesWritten = 0;
+    private void switchCurrentBuffer() throws IOException {
+        m_currentBufferIdx = m_currentBufferIdx == 0 ? 1 : 0;
+        m_buffers[m_currentBufferIdx].clear();
+        m_currentPartBytesWritten = 0;
+        m_partSize = (int)Math.min(2L * m_partSize, m_maxPartSize);
     }
 
-    private void uploadPartFromCurrentTempFile() throws IOException {
+    private void uploadPartFromCurrentBuffer() throws IOException {
         if (m_uploadId == null) {
             initializeMultipartUpload();
         }
@@ -219,8 +238,8 @@ private void uploadPartFromCurrentTempFile() throws IOException {
         m_uploadedParts.add(partFuture);
     }
 
-    private RequestBody createRequestBody() {
-        return RequestBody.fromFile(m_tempFiles[m_currentTempFileIdx]);
+    private RequestBody createRequestBody() throws IOException {
+        return m_buffers[m_currentBufferIdx].toRequestBody();
     }
 
     private void initializeMultipartUpload() throws IOException {
@@ -234,7 +253,7 @@ private void initializeMultipartUpload() throws IOException {
 
     @Override
     public void flush() throws IOException {
-        if (m_isOpen && m_currentChannelBytesWritten > MINIMUM_PART_SIZE && m_uploadId != null) {
+        if (m_isOpen && m_currentPartBytesWritten > MINIMUM_PART_SIZE && m_uploadId != null) {
             submitPartIfNecessary(true);
         }
     }
@@ -245,29 +264,28 @@ public void close() throws IOException {
             return;
         }
 
+        Throwable failure = null;
         try {
             if (m_uploadId != null) {
                 completeMultipartUpload();
             } else {
                 uploadAsSingleRequest();
             }
+            m_path.getFileSystem().cacheWrittenFile(m_path, m_bytesWritten);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
         } finally {
             m_isOpen = false;
             cleanup();
+            m_event.finish(m_bytesWritten, failure);
         }
     }
 
     private void cleanup() {
-        try {
-            m_currentChannel.close();
-        } catch (IOException e) { // NOSONAR can be ignored
-        } finally {
-            m_currentChannel = null;
-        }
-
         m_executor.shutdownNow();
-        FSFiles.deleteSafely(m_tempFiles[0]);
-        FSFiles.deleteSafely(m_tempFiles[1]);
+        m_buffers[0].close();
+        m_buffers[1].close();
     }
 
     private void completeMultipartUpload() throws IOException {
@@ -333,4 +351,161 @@ private void abortMutipartUploadSafely() {
             }
         }
     }
+
+    /**
+     * Holds the bytes of one part until it has been uploaded.
+     */
+    private interface PartBuffer {
+
+        /**
+         * Appends the remaining bytes of the given buffer.
+         */
+        void write(ByteBuffer src) throws IOException;
+
+        /**
+         * @return a request body with the bytes written so far, which can be read repeatedly (for retries) until the
+         *         buffer is cleared.
+         */
+        RequestBody toRequestBody() throws IOException;
+
+        /**
+         * Discards the bytes so that the next part can be written.
+         */
+        void clear() throws IOException;
+
+        /**
+         * Releases the resources of the buffer, without throwing.
+         */
+        void close();
+    }
+
+    /**
+     * Buffers a part in a temporary file.
+     */
+    private static final class TempFilePartBuffer implements PartBuffer {
+
+        private final Path m_file;
+
+        private SeekableByteChannel m_channel;
+
+        TempFilePartBuffer() throws IOException {
+            m_file = FileUtil.createTempFile("s3-upload", "").toPath();
+            clear();
+        }
+
+        @Override
+        public void write(final ByteBuffer src) throws IOException {
+            while (src.remaining() > 0) {
+                m_channel.write(src);
+            }
+        }
+
+        @Override
+        public RequestBody toRequestBody() throws IOException {
+            m_channel.close();
+            return RequestBody.fromFile(m_file);
+        }
+
+        @Override
+        public void clear() throws IOException {
+            m_channel = Files.newByteChannel(m_file, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public void close() {
+            try {
+                m_channel.close();
+            } catch (IOException e) { // NOSONAR can be ignored
+            }
+            FSFiles.deleteSafely(m_file);
+        }
+    }
+
+    /**
+     * Buffers a part in memory chunks from the {@link UploadBufferPool} of the file system, so that no local disk
+     * space is needed. If the transfer memory budget is exhausted, the part continues in a temporary file.
+     */
+    private static final class MemoryPartBuffer implements PartBuffer {
+
+        private final UploadBufferPool m_pool;
+
+        private final List<byte[]> m_chunks = new ArrayList<>();
+
+        private int m_size;
+
+        private TempFilePartBuffer m_overflow;
+
+        MemoryPartBuffer(final UploadBufferPool pool) {
+            m_pool = pool;
+        }
+
+        @Override
+        public void write(final ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                if (m_overflow != null) {
+                    m_overflow.write(src);
+                    return;
+                }
+                final var offset = m_size % UploadBufferPool.CHUNK_SIZE;
+                if (offset == 0 && m_size / UploadBufferPool.CHUNK_SIZE == m_chunks.size()) {
+                    final var chunk = m_pool.acquire(MEMORY_WAIT_TIMEOUT);
+                    if (chunk == null) {
+                        overflowToTempFile();
+                        continue;
+                    }
+                    m_chunks.add(chunk);
+                }
+                final var length = Math.min(src.remaining(), UploadBufferPool.CHUNK_SIZE - offset);
+                src.get(m_chunks.get(m_size / UploadBufferPool.CHUNK_SIZE), offset, length);
+                m_size += length;
+            }
+        }
+
+        private void overflowToTempFile() throws IOException {
+            LOG.debug("Transfer memory exhausted, buffering the part in a temporary file");
+            m_overflow = new TempFilePartBuffer();
+            for (var i = 0; i < m_chunks.size(); i++) {
+                final var length = Math.min(UploadBufferPool.CHUNK_SIZE, m_size - i * UploadBufferPool.CHUNK_SIZE);
+                m_overflow.write(ByteBuffer.wrap(m_chunks.get(i), 0, length));
+            }
+            releaseChunks();
+        }
+
+        @Override
+        public RequestBody toRequestBody() throws IOException {
+            if (m_overflow != null) {
+                return m_overflow.toRequestBody();
+            }
+            final var chunks = List.copyOf(m_chunks);
+            final var size = m_size;
+            return RequestBody.fromContentProvider(() -> {
+                final List<InputStream> streams = new ArrayList<>(chunks.size());
+                for (var i = 0; i < chunks.size(); i++) {
+                    final var length = Math.min(UploadBufferPool.CHUNK_SIZE, size - i * UploadBufferPool.CHUNK_SIZE);
+                    streams.add(new ByteArrayInputStream(chunks.get(i), 0, length));
+                }
+                return new SequenceInputStream(Collections.enumeration(streams));
+            }, size, Mimetype.MIMETYPE_OCTET_STREAM);
+        }
+
+        @Override
+        public void clear() {
+            if (m_overflow != null) {
+                m_overflow.close();
+                m_overflow = null;
+            }
+            releaseChunks();
+        }
+
+        private void releaseChunks() {
+            m_chunks.forEach(m_pool::release);
+            m_chunks.clear();
+            m_size = 0;
+        }
+
+        @Override
+        public void close() {
+            clear();
+        }
+    }
 }
@@ -55,11 +55,6 @@
 
 import org.knime.filehandling.core.connections.base.BlobStorePath;
 
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
-
 /**
  * {@link Path} implementation for {@link S3FileSystem}
  *
@@ -161,20 +156,9 @@ public S3Path toDirectoryPath() {
      *
      * @return A Presigned URL
      */
+    @SuppressWarnings("resource")
     public URL getPreSignedUrl(final Duration expirationDuration) {
-
-        //Retrieve the S3Presigner Object from MultiRegionS3Client instance
-        try (S3Presigner presigner = getFileSystem().getClient().getS3Presigner(getBucketName())) {
-            GetObjectRequest getObjectRequest =
-                GetObjectRequest.builder().bucket(getBucketName()).key(getBlobName()).build();
-            GetObjectPresignRequest getObjectPresignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(expirationDuration).getObjectRequest(getObjectRequest).build();
-
-            // Generate the presigned request
-            PresignedGetObjectRequest presignedGetObjectRequest = presigner.presignGetObject(getObjectPresignRequest);
-
-            return presignedGetObjectRequest.url();
-        }
+        return getFileSystem().getClient().presignGetObject(getBucketName(), getBlobName(), expirationDuration);
     }
 
 }
@@ -58,6 +58,7 @@
 import java.util.List;
 
 import org.knime.cloud.aws.filehandling.s3.AwsUtils;
+import org.knime.cloud.aws.filehandling.s3.fs.api.S3NameFilter;
 import org.knime.filehandling.core.connections.base.BasePathIterator;
 import org.knime.filehandling.core.connections.base.PagedPathIterator;
 import org.knime.filehandling.core.connections.base.attributes.BaseFileAttributes;
@@ -81,7 +82,9 @@ private S3PathIteratorFactory() {
     }
 
     /**
-     * Creates a new iterator instance.
+     * Creates a new iterator instance. If the filter is an {@link S3NameFilter}, only the keys starting with its literal
+     * name prefix are listed. Any other filter, including the one created by
+     * {@link java.nio.file.Files#newDirectoryStream(Path, String)} for a glob, is applied to all keys of the directory.
      *
      * @param path path to iterate.
      * @param filter {@link Filter} instance.
@@ -92,7 +95,8 @@ public static Iterator<S3Path> create(final S3Path path, final Filter<? super Pa
         if (path.isRoot()) {
             return new BucketIterator(path, filter);
         } else {
-            return new BlobIterator(path, filter);
+            final var namePrefix = filter instanceof S3NameFilter ? ((S3NameFilter)filter).getNamePrefix() : "";
+            return new BlobIterator(path, filter, namePrefix);
         }
     }
 
@@ -134,16 +138,30 @@ private static class BlobIterator extends PagedPathIterator<S3Path> {
 
         private String m_continuationToken;
 
+        private final String m_namePrefix;
+
+        /**
+         * The listing in the listing index, <code>null</code> if the index is disabled or the listing was dropped. In
+         * that case, the attributes of the listed objects are put into the attribute cache instead.
+         */
+        private ListingIndex.Listing m_indexedListing;
+
         /**
          * Creates new instance.
          *
          * @param path The path to create an iterator for.
          * @param filter Filter to apply on the returned paths.
+         * @param namePrefix Only names starting with this prefix are listed, may be empty.
          * @throws IOException When something went wrong while fetching a page of paths.
          */
-        protected BlobIterator(final S3Path path, final Filter<? super Path> filter) throws IOException {
+        protected BlobIterator(final S3Path path, final Filter<? super Path> filter, final String namePrefix)
+            throws IOException {
             super(path, filter);
             m_continuationToken = null;
+            m_namePrefix = namePrefix;
+            // a listing that is narrowed by a prefix does not contain all children
+            m_indexedListing = namePrefix.isEmpty()
+                ? path.getFileSystem().getListingIndex().startListing(path.getBucketName(), path.getBlobName()) : null;
             setFirstPage(loadNextPage()); // NOSONAR by design
         }
 
@@ -158,9 +176,10 @@ protected Iterator<S3Path> loadNextPage() throws IOException {
 
             final S3FileSystem fs = m_path.getFileSystem();
 
+            final var dirPrefix = m_path.getBlobName() == null ? "" : m_path.getBlobName();
             final ListObjectsV2Request listRequest = ListObjectsV2Request.builder() //
                 .bucket(m_path.getBucketName()) //
-                .prefix(m_path.getBlobName()) //
+                .prefix(dirPrefix + m_namePrefix) //
                 .delimiter(fs.getSeparator()) //
                 .encodingType("url") //
                 .startAfter(m_path.getBlobName()) //
@@ -168,18 +187,44 @@ protected Iterator<S3Path> loadNextPage() throws IOException {
 
             try {
                 final ListObjectsV2Response objectsListing = fs.getClient().listObjects(listRequest);
-                final List<S3Path> nextPage = new ArrayList<>();
+                if (m_indexedListing != null && !m_indexedListing.isActive()) {
+                    m_indexedListing = null;
+                }
 
                 for (final S3Object objSummary : objectsListing.contents()) {
-                    nextPage.add(getPathFromSummary(objSummary));
+                    indexSummary(objSummary, dirPrefix);
                 }
 
+                final List<S3Path> dirs = new ArrayList<>();
                 for (final CommonPrefix commonPrefix : objectsListing.commonPrefixes()) {
-                    nextPage.add(getPathFromPrefix(commonPrefix.prefix()));
+                    final S3Path dir = getPathFromPrefix(commonPrefix.prefix());
+                    fs.addKnownDirectory(dir);
+                    if (m_indexedListing != null) {
+                        m_indexedListing.addDirectory(commonPrefix.prefix().substring(dirPrefix.length()));
+                    }
+                    dirs.add(dir);
                 }
 
                 m_continuationToken = objectsListing.nextContinuationToken();
-                return nextPage.iterator();
+                if (m_continuationToken == null && m_indexedListing != null) {
+                    // all children of the directory are known now
+                    m_indexedListing.complete();
+                }
+
+                // the paths of the objects are only created while iterating
+                final var objects = objectsListing.contents().iterator();
+                final var dirIterator = dirs.iterator();
+                return new Iterator<S3Path>() {
+                    @Override
+                    public boolean hasNext() {
+                        return objects.hasNext() || dirIterator.hasNext();
+                    }
+
+                    @Override
+                    public S3Path next() {
+                        return objects.hasNext() ? getPathFromSummary(objects.next()) : dirIterator.next();
+                    }
+                };
             } catch (final SdkException e) {
                 if ((e instanceof AbortedException) || (e.getCause() instanceof AbortedException)) { // NOSONAR
                     return Collections.emptyIterator();
@@ -196,14 +241,28 @@ private S3Path getPathFromPrefix(final String commonPrefix) {
 
         @SuppressWarnings("resource")
         private S3Path getPathFromSummary(final S3Object nextSummary) {
-            final S3Path path = new S3Path(m_path.getFileSystem(), m_path.getBucketName(), nextSummary.key());
-            final FileTime lastModified = FileTime.from(nextSummary.lastModified());
-
-            final BaseFileAttributes attributes = new BaseFileAttributes(!path.isDirectory(), path, lastModified,
-                lastModified, lastModified, nextSummary.size(), false, false, null);
-            m_path.getFileSystem().addToAttributeCache(path, attributes);
+            return new S3Path(m_path.getFileSystem(), m_path.getBucketName(), nextSummary.key());
+        }
 
-            return path;
+        /**
+         * Makes the attributes of a listed object known. The listing index stores them compactly. When the index is
+         * disabled or has dropped this listing (because it grew too large or was not sorted), an attribute object is
+         * cached per object, as without the index.
+         */
+        @SuppressWarnings("resource")
+        private void indexSummary(final S3Object summary, final String dirPrefix) {
+            final var isFile = !summary.key().endsWith(m_path.getFileSystem().getSeparator());
+            if (m_indexedListing != null && isFile && !m_indexedListing.addFile(
+                summary.key().substring(dirPrefix.length()), summary.size(), summary.lastModified().toEpochMilli())) {
+                m_indexedListing = null;
+            }
+            if (m_indexedListing == null || !isFile) {
+                final S3Path path = getPathFromSummary(summary);
+                final FileTime lastModified = FileTime.from(summary.lastModified());
+                final BaseFileAttributes attributes = new BaseFileAttributes(isFile, path, lastModified, lastModified,
+                    lastModified, summary.size(), false, false, null);
+                m_path.getFileSystem().addToAttributeCache(path, attributes);
+            }
         }
     }
 }
@@ -89,6 +89,7 @@ public void copyToRemote(final S3Path remoteFile, final Path tempFile) throws IO
         try {
             remoteFile.getFileSystem().getClient().putObject(remoteFile.getBucketName(), remoteFile.getBlobName(),
                 RequestBody.fromFile(tempFile));
+            remoteFile.getFileSystem().cacheWrittenFile(remoteFile, Files.size(tempFile));
         } catch (SdkException e) {
             throw AwsUtils.toIOE(e, remoteFile);
         }
@@ -0,0 +1,516 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.knime.cloud.aws.filehandling.s3.AwsUtils;
+import org.knime.core.util.FileUtil;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * A listing of a directory (optionally with all its descendants) that is streamed page by page into a compressed local
+ * spill file instead of being collected in memory. This allows inventories of buckets with hundreds of millions of
+ * keys with constant heap usage.
+ *
+ * The entries are in the order in which S3 lists keys (ascending UTF-8 bytes), hence they are sorted and free of
+ * duplicates. The spill file can be iterated any number of times with {@link #entries()}. In the file, each key is
+ * front coded against the previous one and each page is compressed into a gzip member of its own. The file is deleted
+ * by {@link #close()}.
+ *
+ * A listing created with {@link #createResumable(S3Path, boolean, Path)} checkpoints its position after each page and
+ * continues from there when it is created again after having been cancelled or having failed.
+ *
+ * <pre>
+ * try (var listing = S3SpilledListing.create(bucketPath, true)) {
+ *     try (var entries = listing.entries()) {
+ *         entries.filter(e -&gt; !e.isDirectory()).forEach(...);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class S3SpilledListing implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int CHECKPOINT_VERSION = 1;
+
+    /**
+     * The suffix appended to the name of the checkpoint file to obtain the name of the spill file of a resumable
+     * listing.
+     */
+    public static final String SPILL_FILE_SUFFIX = ".gz";
+
+    /**
+     * An entry of the listing.
+     */
+    public static final class Entry {
+
+        private final S3FileSystem m_fs;
+
+        private final String m_bucket;
+
+        private final String m_key;
+
+        private final long m_size;
+
+        private final long m_lastModifiedMillis;
+
+        private Entry(final S3FileSystem fs, final String bucket, final String key, final long size,
+            final long lastModifiedMillis) {
+            m_fs = fs;
+            m_bucket = bucket;
+            m_key = key;
+            m_size = size;
+            m_lastModifiedMillis = lastModifiedMillis;
+        }
+
+        /**
+         * @return the object key (or common prefix, for directories of a non-recursive listing).
+         */
+        public String getKey() {
+            return m_key;
+        }
+
+        /**
+         * @return whether the entry is a directory, i.e. its key ends with a slash.
+         */
+        public boolean isDirectory() {
+            return m_key.endsWith(S3FileSystem.PATH_SEPARATOR);
+        }
+
+        /**
+         * @return the size in bytes, 0 for common prefixes.
+         */
+        public long getSize() {
+            return m_size;
+        }
+
+        /**
+         * @return the last modified time, the epoch for common prefixes.
+         */
+        public FileTime getLastModifiedTime() {
+            return FileTime.fromMillis(m_lastModifiedMillis);
+        }
+
+        /**
+         * @return the path of the entry, which is created on each call.
+         */
+        public S3Path toPath() {
+            return new S3Path(m_fs, m_bucket, m_key);
+        }
+
+        @Override
+        public String toString() {
+            return m_bucket + S3FileSystem.PATH_SEPARATOR + m_key;
+        }
+    }
+
+    private final S3FileSystem m_fs;
+
+    private final String m_bucket;
+
+    private final String m_prefix;
+
+    private final boolean m_recursive;
+
+    private final Path m_spillFile;
+
+    private final Path m_checkpointFile;
+
+    private long m_size;
+
+    private long m_spillLength;
+
+    private String m_lastKey;
+
+    private boolean m_complete;
+
+    private S3SpilledListing(final S3Path dir, final boolean recursive, final Path spillFile,
+        final Path checkpointFile) throws IOException {
+        if (dir.getBucketName() == null) {
+            throw new IOException("Cannot list the root directory " + dir + " into a spill file");
+        }
+        m_fs = dir.getFileSystem();
+        m_bucket = dir.getBucketName();
+        m_prefix = dir.getBlobName() == null ? "" : dir.toDirectoryPath().getBlobName();
+        m_recursive = recursive;
+        m_spillFile = spillFile;
+        m_checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Lists a directory into a temporary spill file.
+     *
+     * @param dir the directory (or bucket) to list.
+     * @param recursive whether to list all descendants (without delimiter) or only the children of the directory.
+     * @return the listing, which must be closed to delete its spill file.
+     * @throws IOException if listing or writing the spill file failed, {@link InterruptedIOException} if the thread
+     *             has been interrupted.
+     */
+    public static S3SpilledListing create(final S3Path dir, final boolean recursive) throws IOException {
+        final var listing =
+            new S3SpilledListing(dir, recursive, FileUtil.createTempFile("s3-listing", ".gz").toPath(), null);
+        try {
+            listing.fetch();
+        } catch (IOException | RuntimeException e) { // NOSONAR rethrown
+            listing.close();
+            throw e;
+        }
+        return listing;
+    }
+
+    /**
+     * Lists a directory into a spill file next to the given checkpoint file (with the additional suffix
+     * {@value #SPILL_FILE_SUFFIX}) and records the position of the listing in the checkpoint file after each page. If
+     * the checkpoint file exists, the listing is resumed after its last key instead of being started over, so that a
+     * cancelled or failed listing does not repeat the pages it already completed. Once a listing is complete, this
+     * method returns it without sending any request.
+     *
+     * Other than for {@link #create(S3Path, boolean)}, {@link #close()} keeps both files. They are deleted by
+     * {@link #delete()}.
+     *
+     * @param dir the directory (or bucket) to list.
+     * @param recursive whether to list all descendants (without delimiter) or only the children of the directory.
+     * @param checkpointFile the local file holding the position of the listing.
+     * @return the complete listing.
+     * @throws IOException if listing or writing the spill file failed, {@link InterruptedIOException} if the thread
+     *             has been interrupted, or if the checkpoint file belongs to a different listing.
+     */
+    public static S3SpilledListing createResumable(final S3Path dir, final boolean recursive,
+        final Path checkpointFile) throws IOException {
+        final var spillFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + SPILL_FILE_SUFFIX);
+        final var listing = new S3SpilledListing(dir, recursive, spillFile, checkpointFile);
+        if (Files.exists(checkpointFile)) {
+            listing.readCheckpoint();
+        }
+        if (!listing.m_complete) {
+            listing.fetch();
+        }
+        return listing;
+    }
+
+    @SuppressWarnings("resource")
+    private void fetch() throws IOException {
+        final var dir = new S3Path(m_fs, m_bucket, m_prefix);
+        // when resuming after a common prefix, S3 rolls the following keys up into it again; they are skipped below
+        final var startAfter = m_lastKey != null ? m_lastKey : (m_prefix.isEmpty() ? null : m_prefix);
+        final var writer = new EntryWriter(m_lastKey);
+        String continuationToken = null;
+        try (final var channel = FileChannel.open(m_spillFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // discards a page that was written after the last checkpoint
+            channel.truncate(m_spillLength);
+            channel.position(m_spillLength);
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Listing of " + dir + " was interrupted");
+                }
+                final ListObjectsV2Response response = m_fs.getClient().listObjects(ListObjectsV2Request.builder()//
+                    .bucket(m_bucket)//
+                    .prefix(m_prefix)//
+                    .delimiter(m_recursive ? null : m_fs.getSeparator())//
+                    .encodingType("url")//
+                    .startAfter(startAfter)//
+                    .continuationToken(continuationToken)//
+                    .build());
+                final var page = ByteBuffer.wrap(writePage(response, writer));
+                while (page.hasRemaining()) {
+                    channel.write(page);
+                }
+                m_spillLength += page.limit();
+                continuationToken = response.nextContinuationToken();
+                m_complete = continuationToken == null;
+                if (m_checkpointFile != null) {
+                    channel.force(false);
+                    writeCheckpoint();
+                }
+            } while (!m_complete);
+        } catch (SdkException e) {
+            throw AwsUtils.toIOE(e, dir);
+        }
+    }
+
+    /**
+     * Merges the objects and common prefixes of a page, which are sorted each, into one sorted sequence and compresses
+     * it into a gzip member of its own. The members are concatenated in the spill file.
+     */
+    private byte[] writePage(final ListObjectsV2Response response, final EntryWriter writer) throws IOException {
+        final Iterator<S3Object> objects = response.contents().iterator();
+        final Iterator<CommonPrefix> prefixes = response.commonPrefixes().iterator();
+        var object = objects.hasNext() ? objects.next() : null;
+        var prefix = prefixes.hasNext() ? prefixes.next() : null;
+        final var buffer = new ByteArrayOutputStream();
+        try (final var out = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            while (object != null || prefix != null) {
+                final String key;
+                final long size;
+                final long lastModifiedMillis;
+                if (prefix == null || (object != null && compareKeys(object.key(), prefix.prefix()) < 0)) {
+                    key = object.key();
+                    size = object.size();
+                    lastModifiedMillis = object.lastModified().toEpochMilli();
+                    object = objects.hasNext() ? objects.next() : null;
+                } else {
+                    key = prefix.prefix();
+                    size = 0;
+                    lastModifiedMillis = 0;
+                    prefix = prefixes.hasNext() ? prefixes.next() : null;
+                }
+                if (m_lastKey == null || compareKeys(key, m_lastKey) > 0) {
+                    writer.write(out, key, size, lastModifiedMillis);
+                    m_lastKey = key;
+                    m_size++;
+                }
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private void writeCheckpoint() throws IOException {
+        final var tmpFile = m_checkpointFile.resolveSibling(m_checkpointFile.getFileName() + ".tmp");
+        try (final var out = new DataOutputStream(Files.newOutputStream(tmpFile))) {
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeUTF(m_bucket);
+            out.writeUTF(m_prefix);
+            out.writeBoolean(m_recursive);
+            out.writeBoolean(m_complete);
+            out.writeLong(m_size);
+            out.writeLong(m_spillLength);
+            out.writeBoolean(m_lastKey != null);
+            if (m_lastKey != null) {
+                out.writeUTF(m_lastKey);
+            }
+        }
+        Files.move(tmpFile, m_checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readCheckpoint() throws IOException {
+        try (final var in = new DataInputStream(Files.newInputStream(m_checkpointFile))) {
+            if (in.readInt() != CHECKPOINT_VERSION || !m_bucket.equals(in.readUTF()) || !m_prefix.equals(in.readUTF())
+                || m_recursive != in.readBoolean()) {
+                throw new IOException("The checkpoint " + m_checkpointFile + " belongs to a different listing");
+            }
+            m_complete = in.readBoolean();
+            m_size = in.readLong();
+            m_spillLength = in.readLong();
+            m_lastKey = in.readBoolean() ? in.readUTF() : null;
+        }
+        if (!Files.exists(m_spillFile) || Files.size(m_spillFile) < m_spillLength) {
+            throw new IOException("The spill file " + m_spillFile + " is missing or shorter than its checkpoint");
+        }
+    }
+
+    private static int compareKeys(final String a, final String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the number of entries.
+     */
+    public long size() {
+        return m_size;
+    }
+
+    /**
+     * @return the key of the last entry, which may be used as {@code startAfter} of a listing continuing this one, or
+     *         {@code null} if the listing is empty.
+     */
+    public String getLastKey() {
+        return m_lastKey;
+    }
+
+    /**
+     * Reads the entries from the spill file. The returned stream must be closed.
+     *
+     * @return the entries in ascending order of their keys.
+     * @throws IOException if the spill file could not be opened.
+     */
+    @SuppressWarnings("resource")
+    public Stream<Entry> entries() throws IOException {
+        final var in = new DataInputStream(
+            new GZIPInputStream(new BufferedInputStream(Files.newInputStream(m_spillFile), BUFFER_SIZE), BUFFER_SIZE));
+        final var reader = new EntryReader(in);
+        return StreamSupport
+            .stream(Spliterators.spliterator(reader, m_size,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false)
+            .onClose(() -> {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    /**
+     * Deletes the spill file, unless the listing is resumable.
+     */
+    @Override
+    public void close() throws IOException {
+        if (m_checkpointFile == null) {
+            Files.deleteIfExists(m_spillFile);
+        }
+    }
+
+    /**
+     * Deletes the spill file and the checkpoint file (if any).
+     *
+     * @throws IOException if a file could not be deleted.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(m_spillFile);
+        if (m_checkpointFile != null) {
+            Files.deleteIfExists(m_checkpointFile);
+        }
+    }
+
+    /**
+     * Writes entries, each as the number of bytes its key shares with the previous key, the remaining bytes of the
+     * key, the size and the last modified time.
+     */
+    private static final class EntryWriter {
+
+        private byte[] m_previous;
+
+        EntryWriter(final String lastKey) {
+            m_previous = lastKey == null ? new byte[0] : lastKey.getBytes(StandardCharsets.UTF_8);
+        }
+
+        void write(final DataOutputStream out, final String key, final long size, final long lastModifiedMillis)
+            throws IOException {
+            final var bytes = key.getBytes(StandardCharsets.UTF_8);
+            final var mismatch = Arrays.mismatch(m_previous, bytes);
+            final var shared = mismatch < 0 ? bytes.length : mismatch;
+            out.writeShort(shared);
+            out.writeShort(bytes.length - shared);
+            out.write(bytes, shared, bytes.length - shared);
+            out.writeLong(size);
+            out.writeLong(lastModifiedMillis);
+            m_previous = bytes;
+        }
+    }
+
+    private final class EntryReader implements Iterator<Entry> {
+
+        private final DataInputStream m_in;
+
+        private byte[] m_previous = new byte[0];
+
+        private Entry m_next;
+
+        EntryReader(final DataInputStream in) {
+            m_in = in;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (m_next == null) {
+                m_next = read();
+            }
+            return m_next != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final var next = m_next;
+            m_next = null;
+            return next;
+        }
+
+        private Entry read() {
+            try {
+                final int shared;
+                try {
+                    shared = m_in.readUnsignedShort();
+                } catch (EOFException e) { // NOSONAR end of the listing
+                    return null;
+                }
+                final var suffixLength = m_in.readUnsignedShort();
+                final var key = Arrays.copyOf(m_previous, shared + suffixLength);
+                m_in.readFully(key, shared, suffixLength);
+                m_previous = key;
+                return new Entry(m_fs, m_bucket, new String(key, StandardCharsets.UTF_8), m_in.readLong(),
+                    m_in.readLong());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
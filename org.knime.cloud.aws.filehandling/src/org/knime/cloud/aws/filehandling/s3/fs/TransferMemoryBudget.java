@@ -0,0 +1,310 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.cloud.aws.filehandling.s3.S3RequestMetrics;
+import org.knime.core.node.util.CheckUtils;
+
+/**
+ * Memory budget for the transfer buffers of an {@link S3FileSystem}. Components reserve bytes before they allocate a
+ * buffer and release them once the buffer has been dropped. A reservation is granted if it fits into the limit of the
+ * file system as well as into the JVM-wide ceiling shared by all file systems (see
+ * {@link #GLOBAL_LIMIT_SYSTEM_PROPERTY}), so that many concurrent transfers slow down instead of exhausting the heap.
+ *
+ * A reservation that is larger than a limit on its own is granted once nothing else is reserved, so that it cannot
+ * block forever.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class TransferMemoryBudget {
+
+    /**
+     * A system property to control the JVM-wide ceiling in bytes of all transfer budgets. The default is a quarter of
+     * the maximum heap size.
+     */
+    public static final String GLOBAL_LIMIT_SYSTEM_PROPERTY = "knime.aws.s3.globalTransferMemoryLimit";
+
+    private static final Ceiling JVM_CEILING =
+        new Ceiling(Long.getLong(GLOBAL_LIMIT_SYSTEM_PROPERTY, Runtime.getRuntime().maxMemory() / 4));
+
+    /**
+     * The bytes reserved by all budgets that share it. All budgets synchronize on their ceiling.
+     */
+    static final class Ceiling {
+
+        private final long m_limit;
+
+        private long m_reserved;
+
+        Ceiling(final long limit) {
+            m_limit = limit;
+        }
+
+        synchronized long getReserved() {
+            return m_reserved;
+        }
+    }
+
+    private final Ceiling m_ceiling;
+
+    private final long m_limit;
+
+    private long m_reserved;
+
+    private long m_peakReserved;
+
+    private long m_blockedAcquires;
+
+    private long m_waitNanos;
+
+    private long m_deniedAcquires;
+
+    /**
+     * @param limit the maximum number of bytes reserved at the same time.
+     */
+    TransferMemoryBudget(final long limit) {
+        this(limit, JVM_CEILING);
+    }
+
+    /**
+     * @param limit the maximum number of bytes reserved at the same time.
+     * @param ceiling the ceiling shared with other budgets.
+     */
+    TransferMemoryBudget(final long limit, final Ceiling ceiling) {
+        CheckUtils.checkArgument(limit > 0, "The transfer memory limit must be positive");
+        m_limit = limit;
+        m_ceiling = ceiling;
+    }
+
+    /**
+     * Reserves bytes, waiting until they are available.
+     *
+     * @param bytes the number of bytes to reserve.
+     * @throws InterruptedIOException if the thread has been interrupted while waiting.
+     */
+    public void acquire(final long bytes) throws InterruptedIOException {
+        if (!tryAcquire(bytes, Long.MAX_VALUE)) {
+            throw new IllegalStateException("Unbounded wait for transfer memory ended without reservation");
+        }
+    }
+
+    /**
+     * Reserves bytes if they are available right away.
+     *
+     * @param bytes the number of bytes to reserve.
+     * @return whether the bytes have been reserved.
+     */
+    public boolean tryAcquire(final long bytes) {
+        synchronized (m_ceiling) {
+            if (fits(bytes)) {
+                reserve(bytes);
+                return true;
+            }
+            m_deniedAcquires++;
+            return false;
+        }
+    }
+
+    /**
+     * Reserves bytes, waiting at most the given time until they are available.
+     *
+     * @param bytes the number of bytes to reserve.
+     * @param timeout the maximum time to wait.
+     * @return whether the bytes have been reserved.
+     * @throws InterruptedIOException if the thread has been interrupted while waiting.
+     */
+    public boolean tryAcquire(final long bytes, final Duration timeout) throws InterruptedIOException {
+        return tryAcquire(bytes, timeout.toNanos());
+    }
+
+    private boolean tryAcquire(final long bytes, final long timeoutNanos) throws InterruptedIOException {
+        synchronized (m_ceiling) {
+            if (fits(bytes)) {
+                reserve(bytes);
+                return true;
+            }
+            m_blockedAcquires++;
+            final var start = System.nanoTime();
+            var remaining = timeoutNanos;
+            try {
+                while (!fits(bytes)) {
+                    if (remaining <= 0) {
+                        m_deniedAcquires++;
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(m_ceiling, remaining);
+                    remaining = timeoutNanos - (System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) { // NOSONAR interrupt flag is restored
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for transfer memory");
+            } finally {
+                m_waitNanos += System.nanoTime() - start;
+            }
+            reserve(bytes);
+            return true;
+        }
+    }
+
+    private boolean fits(final long bytes) {
+        return (m_reserved == 0 || m_reserved + bytes <= m_limit)
+            && (m_ceiling.m_reserved == 0 || m_ceiling.m_reserved + bytes <= m_ceiling.m_limit);
+    }
+
+    private void reserve(final long bytes) {
+        m_reserved += bytes;
+        m_ceiling.m_reserved += bytes;
+        m_peakReserved = Math.max(m_peakReserved, m_reserved);
+    }
+
+    /**
+     * Releases previously reserved bytes.
+     *
+     * @param bytes the number of bytes to release.
+     */
+    public void release(final long bytes) {
+        synchronized (m_ceiling) {
+            CheckUtils.checkState(bytes <= m_reserved, "Cannot release more transfer memory than reserved");
+            m_reserved -= bytes;
+            m_ceiling.m_reserved -= bytes;
+            m_ceiling.notifyAll();
+        }
+    }
+
+    /**
+     * @return the maximum number of bytes reserved at the same time.
+     */
+    public long getLimit() {
+        return m_limit;
+    }
+
+    /**
+     * @return the number of bytes currently reserved.
+     */
+    public long getReservedBytes() {
+        synchronized (m_ceiling) {
+            return m_reserved;
+        }
+    }
+
+    /**
+     * @return the highest number of bytes reserved at the same time so far.
+     */
+    public long getPeakReservedBytes() {
+        synchronized (m_ceiling) {
+            return m_peakReserved;
+        }
+    }
+
+    /**
+     * @return the number of reservations that had to wait.
+     */
+    public long getBlockedAcquireCount() {
+        synchronized (m_ceiling) {
+            return m_blockedAcquires;
+        }
+    }
+
+    /**
+     * @return the total time reservations waited, in milliseconds.
+     */
+    public long getTotalWaitMillis() {
+        synchronized (m_ceiling) {
+            return TimeUnit.NANOSECONDS.toMillis(m_waitNanos);
+        }
+    }
+
+    /**
+     * @return the number of reservations that were not granted (without waiting or within their timeout).
+     */
+    public long getDeniedAcquireCount() {
+        synchronized (m_ceiling) {
+            return m_deniedAcquires;
+        }
+    }
+
+    /**
+     * @return the number of bytes currently reserved by the budgets of all file systems.
+     */
+    public long getGlobalReservedBytes() {
+        return m_ceiling.getReserved();
+    }
+
+    /**
+     * @return the metrics by name, as exposed through JMX (see {@link S3RequestMetrics#getTransferMemory()}).
+     */
+    public Map<String, Long> getMetrics() {
+        synchronized (m_ceiling) {
+            final var metrics = new LinkedHashMap<String, Long>();
+            metrics.put("limit", m_limit);
+            metrics.put("reservedBytes", m_reserved);
+            metrics.put("peakReservedBytes", m_peakReserved);
+            metrics.put("blockedAcquires", m_blockedAcquires);
+            metrics.put("totalWaitMillis", TimeUnit.NANOSECONDS.toMillis(m_waitNanos));
+            metrics.put("deniedAcquires", m_deniedAcquires);
+            metrics.put("globalReservedBytes", m_ceiling.m_reserved);
+            return metrics;
+        }
+    }
+
+    /**
+     * @return a human readable summary of the metrics.
+     */
+    public String getSummary() {
+        synchronized (m_ceiling) {
+            return String.format(
+                "Transfer memory: %d of %d bytes reserved (peak %d), %d waits for %d ms, %d denied reservations",
+                m_reserved, m_limit, m_peakReserved, m_blockedAcquires, TimeUnit.NANOSECONDS.toMillis(m_waitNanos),
+                m_deniedAcquires);
+        }
+    }
+}
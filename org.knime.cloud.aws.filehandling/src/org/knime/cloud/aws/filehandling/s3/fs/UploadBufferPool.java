@@ -0,0 +1,123 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of fixed size memory chunks, in which the {@link S3OutputStream}s of a file system buffer their parts when
+ * streaming uploads are enabled. A bounded number of released chunks is kept for reuse, so that consecutive uploads do
+ * not allocate (and garbage collect) a full part each.
+ *
+ * Chunks are only allocated after they have been reserved from the {@link TransferMemoryBudget} of the file system.
+ * Pooled chunks stay reserved until they are dropped.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+final class UploadBufferPool {
+
+    /**
+     * The size of a chunk in bytes.
+     */
+    static final int CHUNK_SIZE = 1024 * 1024; // 1 MB
+
+    private static final int MAX_POOLED_CHUNKS = 16;
+
+    private final BlockingQueue<byte[]> m_chunks = new ArrayBlockingQueue<>(MAX_POOLED_CHUNKS);
+
+    private final TransferMemoryBudget m_budget;
+
+    /**
+     * @param budget the budget from which chunks are reserved.
+     */
+    UploadBufferPool(final TransferMemoryBudget budget) {
+        m_budget = budget;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for the budget if no pooled chunk is available.
+     * @return a pooled or newly allocated chunk of {@link #CHUNK_SIZE} bytes, with arbitrary content, or {@code null}
+     *         if the budget did not permit to allocate a chunk within the timeout.
+     * @throws InterruptedIOException if the thread has been interrupted while waiting.
+     */
+    byte[] acquire(final Duration timeout) throws InterruptedIOException {
+        final var chunk = m_chunks.poll();
+        if (chunk != null) {
+            return chunk;
+        }
+        return m_budget.tryAcquire(CHUNK_SIZE, timeout) ? new byte[CHUNK_SIZE] : null;
+    }
+
+    /**
+     * Returns a chunk to the pool, which drops it if it already holds enough chunks.
+     *
+     * @param chunk a chunk obtained from {@link #acquire(Duration)} that is no longer used.
+     */
+    void release(final byte[] chunk) {
+        if (!m_chunks.offer(chunk)) {
+            m_budget.release(CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * @return the number of chunks held for reuse.
+     */
+    int getPooledChunkCount() {
+        return m_chunks.size();
+    }
+
+    /**
+     * Drops all pooled chunks.
+     */
+    void clear() {
+        while (m_chunks.poll() != null) {
+            m_budget.release(CHUNK_SIZE);
+        }
+    }
+}
@@ -91,6 +91,72 @@ public class S3FSConnectionConfig extends BaseFSConnectionConfig {
      */
     private static final String MULTIPART_UPLOAD_PART_SIZE_SYSTEM_PROPERTY = "knime.aws.s3.multipartUploadThreshold";
 
+    /**
+     * A system property to enable the asynchronous connection startup, see {@link #isAsyncStartup()}.
+     */
+    private static final String ASYNC_STARTUP_SYSTEM_PROPERTY = "knime.aws.s3.asyncConnectionStartup";
+
+    /**
+     * A system property to enable hedged HEAD and GET requests, see {@link #isHedgedRequests()}.
+     */
+    private static final String HEDGED_REQUESTS_SYSTEM_PROPERTY = "knime.aws.s3.hedgedRequests";
+
+    /**
+     * Default size in bytes above which objects are copied with a multipart copy.
+     */
+    public static final long DEFAULT_MULTIPART_COPY_THRESHOLD = 1024L * 1024 * 1024; // 1 GB
+
+    /**
+     * Default part size in bytes for the multipart copy.
+     */
+    public static final long DEFAULT_MULTIPART_COPY_PART_SIZE = 256L * 1024 * 1024; // 256 MB
+
+    /**
+     * Default number of parts that are copied in parallel during a multipart copy.
+     */
+    public static final int DEFAULT_MULTIPART_COPY_PARALLELISM = 8;
+
+    /**
+     * A system property to control the size in bytes above which objects are copied with a multipart copy.
+     */
+    private static final String MULTIPART_COPY_THRESHOLD_SYSTEM_PROPERTY = "knime.aws.s3.multipartCopyThreshold";
+
+    /**
+     * Default latency percentile after which a HEAD or GET request is hedged.
+     */
+    public static final double DEFAULT_HEDGING_PERCENTILE = 0.95;
+
+    /**
+     * Default maximum share of additional requests caused by hedging.
+     */
+    public static final double DEFAULT_HEDGING_BUDGET = 0.05;
+
+    /**
+     * Default maximum number of paths that are kept in the listing index.
+     */
+    public static final int DEFAULT_LISTING_INDEX_MAX_ENTRIES = 1_000_000;
+
+    /**
+     * A system property to control for how many seconds listing results are used, see {@link #getListingIndexTTL()}.
+     */
+    private static final String LISTING_INDEX_TTL_SYSTEM_PROPERTY = "knime.aws.s3.listingIndexTTLSeconds";
+
+    /**
+     * A system property to enable streaming uploads, see {@link #isStreamingUpload()}.
+     */
+    private static final String STREAMING_UPLOAD_SYSTEM_PROPERTY = "knime.aws.s3.streamingUpload";
+
+    /**
+     * Default maximum number of bytes the transfer buffers of a file system may use at the same time.
+     */
+    public static final long DEFAULT_TRANSFER_MEMORY_LIMIT = 256L * 1024 * 1024; // 256 MB
+
+    /**
+     * A system property to control the maximum number of bytes the transfer buffers of a file system may use, see
+     * {@link #getTransferMemoryLimit()}.
+     */
+    private static final String TRANSFER_MEMORY_LIMIT_SYSTEM_PROPERTY = "knime.aws.s3.transferMemoryLimit";
+
     private Duration m_socketTimeout;
 
     private boolean m_normalizePath;
@@ -113,7 +179,29 @@ public class S3FSConnectionConfig extends BaseFSConnectionConfig {
 
     private boolean m_pathStyle = false;
 
-    private final int m_multipartUploadPartSize;
+    private int m_multipartUploadPartSize;
+
+    private boolean m_asyncStartup;
+
+    private boolean m_hedgedRequests;
+
+    private double m_hedgingPercentile = DEFAULT_HEDGING_PERCENTILE;
+
+    private double m_hedgingBudget = DEFAULT_HEDGING_BUDGET;
+
+    private long m_multipartCopyThreshold;
+
+    private long m_multipartCopyPartSize = DEFAULT_MULTIPART_COPY_PART_SIZE;
+
+    private int m_multipartCopyParallelism = DEFAULT_MULTIPART_COPY_PARALLELISM;
+
+    private Duration m_listingIndexTTL;
+
+    private int m_listingIndexMaxEntries = DEFAULT_LISTING_INDEX_MAX_ENTRIES;
+
+    private boolean m_streamingUpload;
+
+    private long m_transferMemoryLimit;
 
     /**
      *
@@ -124,6 +212,14 @@ public S3FSConnectionConfig(final String workingDirectory, final CloudConnection
         super(workingDirectory, true);
         m_connectionInfo = connectionInfo;
         m_multipartUploadPartSize = determineMultipartUploadPartSize();
+        m_asyncStartup = Boolean.getBoolean(ASYNC_STARTUP_SYSTEM_PROPERTY);
+        m_hedgedRequests = Boolean.getBoolean(HEDGED_REQUESTS_SYSTEM_PROPERTY);
+        m_multipartCopyThreshold =
+            Long.getLong(MULTIPART_COPY_THRESHOLD_SYSTEM_PROPERTY, DEFAULT_MULTIPART_COPY_THRESHOLD);
+        final var listingIndexTTLSeconds = Long.getLong(LISTING_INDEX_TTL_SYSTEM_PROPERTY);
+        m_listingIndexTTL = listingIndexTTLSeconds == null ? null : Duration.ofSeconds(listingIndexTTLSeconds);
+        m_streamingUpload = Boolean.getBoolean(STREAMING_UPLOAD_SYSTEM_PROPERTY);
+        m_transferMemoryLimit = Long.getLong(TRANSFER_MEMORY_LIMIT_SYSTEM_PROPERTY, DEFAULT_TRANSFER_MEMORY_LIMIT);
     }
 
     private static int determineMultipartUploadPartSize() {
@@ -291,6 +387,183 @@ public int getMultipartUploadPartSize() {
         return m_multipartUploadPartSize;
     }
 
+    /**
+     * @param multipartUploadPartSize the part size (in bytes) to use for multipart uploads, overriding the default
+     *            and the system property.
+     */
+    public void setMultipartUploadPartSize(final int multipartUploadPartSize) {
+        m_multipartUploadPartSize = multipartUploadPartSize;
+    }
+
+    /**
+     * @return {@code true} if the permission probe and the connection warm-up (credentials, DNS, TLS, bucket region)
+     *         should happen in the background instead of blocking the creation of the connection.
+     */
+    public boolean isAsyncStartup() {
+        return m_asyncStartup;
+    }
+
+    /**
+     * @param asyncStartup {@code true} if the permission probe and the connection warm-up should happen in the
+     *            background
+     */
+    public void setAsyncStartup(final boolean asyncStartup) {
+        m_asyncStartup = asyncStartup;
+    }
+
+    /**
+     * @return {@code true} if HEAD and GET requests that take longer than usual should be hedged, i.e. a duplicate
+     *         request is sent and the first response is used.
+     */
+    public boolean isHedgedRequests() {
+        return m_hedgedRequests;
+    }
+
+    /**
+     * @param hedgedRequests {@code true} if HEAD and GET requests should be hedged
+     */
+    public void setHedgedRequests(final boolean hedgedRequests) {
+        m_hedgedRequests = hedgedRequests;
+    }
+
+    /**
+     * @return the latency percentile (between 0 and 1) after which a request is hedged
+     */
+    public double getHedgingPercentile() {
+        return m_hedgingPercentile;
+    }
+
+    /**
+     * @param hedgingPercentile the latency percentile (between 0 and 1) after which a request is hedged
+     */
+    public void setHedgingPercentile(final double hedgingPercentile) {
+        m_hedgingPercentile = hedgingPercentile;
+    }
+
+    /**
+     * @return the maximum share (between 0 and 1) of additional requests caused by hedging
+     */
+    public double getHedgingBudget() {
+        return m_hedgingBudget;
+    }
+
+    /**
+     * @param hedgingBudget the maximum share (between 0 and 1) of additional requests caused by hedging
+     */
+    public void setHedgingBudget(final double hedgingBudget) {
+        m_hedgingBudget = hedgingBudget;
+    }
+
+    /**
+     * @return the object size in bytes above which objects are copied with parallel {@code UploadPartCopy} requests
+     *         instead of a single {@code CopyObject} request
+     */
+    public long getMultipartCopyThreshold() {
+        return m_multipartCopyThreshold;
+    }
+
+    /**
+     * @param multipartCopyThreshold the object size in bytes above which objects are copied with a multipart copy,
+     *            capped at 5 GB, the maximum size of a single {@code CopyObject} request
+     */
+    public void setMultipartCopyThreshold(final long multipartCopyThreshold) {
+        m_multipartCopyThreshold = multipartCopyThreshold;
+    }
+
+    /**
+     * @return the part size in bytes for the multipart copy
+     */
+    public long getMultipartCopyPartSize() {
+        return m_multipartCopyPartSize;
+    }
+
+    /**
+     * @param multipartCopyPartSize the part size in bytes for the multipart copy, which is increased if the object
+     *            would otherwise need more than 10000 parts
+     */
+    public void setMultipartCopyPartSize(final long multipartCopyPartSize) {
+        m_multipartCopyPartSize = multipartCopyPartSize;
+    }
+
+    /**
+     * @return the number of parts that are copied in parallel during a multipart copy
+     */
+    public int getMultipartCopyParallelism() {
+        return m_multipartCopyParallelism;
+    }
+
+    /**
+     * @param multipartCopyParallelism the number of parts that are copied in parallel during a multipart copy
+     */
+    public void setMultipartCopyParallelism(final int multipartCopyParallelism) {
+        m_multipartCopyParallelism = multipartCopyParallelism;
+    }
+
+    /**
+     * @return for how long the results of a complete directory listing are used to answer whether the children of the
+     *         directory exist and what their attributes are, or <code>null</code> (the default) to use them as long as
+     *         the attribute cache of the file system keeps attributes. As the index also answers that a path does not
+     *         exist, a longer time delays seeing files created by others. {@link Duration#ZERO} disables the listing
+     *         index.
+     */
+    public Duration getListingIndexTTL() {
+        return m_listingIndexTTL;
+    }
+
+    /**
+     * @param listingIndexTTL for how long the results of a complete directory listing are used, or <code>null</code>
+     *            for the time to live of the attribute cache
+     */
+    public void setListingIndexTTL(final Duration listingIndexTTL) {
+        m_listingIndexTTL = listingIndexTTL;
+    }
+
+    /**
+     * @return the maximum number of paths kept in the listing index
+     */
+    public int getListingIndexMaxEntries() {
+        return m_listingIndexMaxEntries;
+    }
+
+    /**
+     * @param listingIndexMaxEntries the maximum number of paths kept in the listing index
+     */
+    public void setListingIndexMaxEntries(final int listingIndexMaxEntries) {
+        m_listingIndexMaxEntries = listingIndexMaxEntries;
+    }
+
+    /**
+     * @return {@code true} if written files are uploaded from parts buffered in memory instead of temporary files, so
+     *         that no local disk space is needed and each part is sent as soon as it is complete. Streaming uploads
+     *         start with 5 MB parts and grow them up to the multipart upload part size.
+     */
+    public boolean isStreamingUpload() {
+        return m_streamingUpload;
+    }
+
+    /**
+     * @param streamingUpload {@code true} if written files are uploaded from parts buffered in memory
+     */
+    public void setStreamingUpload(final boolean streamingUpload) {
+        m_streamingUpload = streamingUpload;
+    }
+
+    /**
+     * @return the maximum number of bytes the transfer buffers (e.g. the memory buffered parts of streaming uploads)
+     *         of the file system may use at the same time. All file systems are additionally bounded by a JVM-wide
+     *         ceiling.
+     */
+    public long getTransferMemoryLimit() {
+        return m_transferMemoryLimit;
+    }
+
+    /**
+     * @param transferMemoryLimit the maximum number of bytes the transfer buffers of the file system may use
+     */
+    public void setTransferMemoryLimit(final long transferMemoryLimit) {
+        m_transferMemoryLimit = transferMemoryLimit;
+    }
+
     /**
      * Enum representing different available S3 server-side encryption modes.
      *
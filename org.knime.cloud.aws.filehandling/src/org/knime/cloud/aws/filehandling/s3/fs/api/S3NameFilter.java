@@ -0,0 +1,264 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright by KNIME AG, Zurich, Switzerland
+ *  Website: http://www.knime.com; Email: contact@knime.com
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME AG herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * ---------------------------------------------------------------------
+ */
+package org.knime.cloud.aws.filehandling.s3.fs.api;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link DirectoryStream.Filter} on the file names of a directory, whose literal name prefix is pushed down into the
+ * S3 listing request. Only the objects whose names start with the prefix are listed, e.g. for the glob
+ * <code>part-2024-10-*.parquet</code> only keys starting with <code>part-2024-10-</code> are transferred, instead of all
+ * keys of the directory.
+ *
+ * <pre>
+ * try (var stream = Files.newDirectoryStream(dir, S3NameFilter.ofGlob("part-2024-10-*.parquet"))) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Callers have to opt in by passing an instance of this class. The prefix is not pushed down for
+ * {@link java.nio.file.Files#newDirectoryStream(Path, String)} or for filters built from
+ * {@link java.nio.file.FileSystem#getPathMatcher(String)}: the JDK wraps the matcher of the glob in an anonymous filter,
+ * so the S3 file system only sees an opaque filter and lists the whole directory. Also, a path matcher matches whole
+ * paths and not only file names, so {@link java.nio.file.FileSystem#getPathMatcher(String)} cannot return this filter.
+ *
+ * @author Mareike Hoeger, KNIME GmbH, Konstanz, Germany
+ */
+public final class S3NameFilter implements DirectoryStream.Filter<Path> {
+
+    private static final String GLOB_META_CHARS = "*?[]{}\\";
+
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    private static final String QUANTIFIERS = "?*{";
+
+    private final Pattern m_pattern;
+
+    private final String m_prefix;
+
+    private S3NameFilter(final Pattern pattern, final String prefix) {
+        m_pattern = pattern;
+        m_prefix = prefix;
+    }
+
+    /**
+     * Creates a filter that accepts the file names matching a glob pattern, with the syntax of
+     * {@link java.nio.file.FileSystem#getPathMatcher(String)}.
+     *
+     * @param glob the glob pattern, without "glob:" prefix.
+     * @return the filter.
+     */
+    public static S3NameFilter ofGlob(final String glob) {
+        return new S3NameFilter(Pattern.compile(globToRegex(glob)), globPrefix(glob));
+    }
+
+    /**
+     * Creates a filter that accepts the file names that match a regular expression as a whole.
+     *
+     * @param regex the regular expression.
+     * @return the filter.
+     */
+    public static S3NameFilter ofRegex(final String regex) {
+        return new S3NameFilter(Pattern.compile(regex), regexPrefix(regex));
+    }
+
+    /**
+     * Creates a filter that accepts the file names that match a pattern as a whole. A literal prefix is only pushed
+     * down if the pattern has no flags.
+     *
+     * @param pattern the pattern.
+     * @return the filter.
+     */
+    public static S3NameFilter ofRegex(final Pattern pattern) {
+        return new S3NameFilter(pattern, pattern.flags() == 0 ? regexPrefix(pattern.pattern()) : "");
+    }
+
+    /**
+     * @return the literal prefix that all accepted names start with, possibly empty.
+     */
+    public String getNamePrefix() {
+        return m_prefix;
+    }
+
+    @Override
+    public boolean accept(final Path entry) {
+        final var fileName = entry.getFileName();
+        if (fileName == null) {
+            return false;
+        }
+        var name = fileName.toString();
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return m_pattern.matcher(name).matches();
+    }
+
+    static String globPrefix(final String glob) {
+        final var prefix = new StringBuilder();
+        for (var i = 0; i < glob.length(); i++) {
+            var c = glob.charAt(i);
+            if (c == '\\' && i + 1 < glob.length()) {
+                c = glob.charAt(++i);
+            } else if (GLOB_META_CHARS.indexOf(c) >= 0) {
+                break;
+            }
+            if (c == '/') {
+                break;
+            }
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    static String regexPrefix(final String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return "";
+        }
+
+        final var prefix = new StringBuilder();
+        var i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            var c = regex.charAt(i);
+            var next = i + 1;
+            if (c == '\\') {
+                // only escaped meta characters are literals, e.g. \d or \Q are not
+                if (next >= regex.length() || REGEX_META_CHARS.indexOf(regex.charAt(next)) < 0) {
+                    break;
+                }
+                c = regex.charAt(next++);
+            } else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+                break;
+            }
+            if (next < regex.length() && QUANTIFIERS.indexOf(regex.charAt(next)) >= 0) {
+                // the character is optional or repeated
+                break;
+            }
+            if (c == '/') {
+                break;
+            }
+            prefix.append(c);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(final String regex) {
+        var depth = 0;
+        var inClass = false;
+        for (var i = 0; i < regex.length(); i++) {
+            final var c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String globToRegex(final String glob) {
+        final var regex = new StringBuilder();
+        var inGroup = false;
+        var inClass = false;
+        for (var i = 0; i < glob.length(); i++) {
+            final var c = glob.charAt(i);
+            if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                    regex.append(']');
+                } else if (c == '!' && glob.charAt(i - 1) == '[') {
+                    regex.append('^');
+                } else if (c == '\\' || c == '[' || c == '&' || (c == '^' && glob.charAt(i - 1) == '[')) {
+                    regex.append('\\').append(c);
+                } else {
+                    regex.append(c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    break;
+                case '*':
+                    regex.append("[^/]*");
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    inClass = true;
+                    regex.append('[');
+                    break;
+                case '{':
+                    inGroup = true;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    regex.append(inGroup ? ")" : "\\}");
+                    inGroup = false;
+                    break;
+                case ',':
+                    regex.append(inGroup ? "|" : ",");
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+}
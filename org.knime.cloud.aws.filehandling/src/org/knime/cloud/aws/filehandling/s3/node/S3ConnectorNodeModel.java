@@ -145,7 +145,8 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
         if (conInfo.isUseAnonymous()) {
             setWarningMessage(
                 "You are using anonymous credentials. File browsing will only work inside public buckets.");
-        } else {
+        } else if (!config.isAsyncStartup()) {
+            // with asynchronous startup, the file system probes the connection in the background
             testFileSystemConnection(m_fsConn);
         }
         return new PortObject[]{new FileSystemPortObject(createSpec())};
@@ -155,7 +156,7 @@ protected PortObject[] execute(final PortObject[] inObjects, final ExecutionCont
     private void testFileSystemConnection(final S3FSConnection fsConn) throws InvalidSettingsException {
         final S3FileSystem fileSystem = (S3FileSystem)fsConn.getFileSystem();
         try {
-            fileSystem.getClient().listBuckets();
+            fileSystem.getClient().testConnection();
         } catch (final AwsServiceException e) {
             if (Objects.equals(e.awsErrorDetails().errorCode(), "InvalidAccessKeyId")) {
                 throw new InvalidSettingsException("Please check your Access Key ID / Secret Key.", e);
@@ -57,9 +57,6 @@
 import org.knime.filehandling.core.testing.DefaultFSTestInitializer;
 
 import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
-import software.amazon.awssdk.services.s3.model.S3Object;
 
 /**
  * S3 initializer.
@@ -116,22 +113,13 @@ protected void beforeTestCaseInternal() throws IOException {
     }
 
     @Override
-    protected void afterTestCaseInternal() {
+    protected void afterTestCaseInternal() throws IOException {
         final var scratchDir = getTestCaseScratchDir();
-
-        String continuationToken = null;
-        do {
-            ListObjectsV2Request req = ListObjectsV2Request.builder()//
-                .bucket(scratchDir.getBucketName())//
-                .prefix(scratchDir.getBlobName())//
-                .continuationToken(continuationToken)//
-                .build();
-            ListObjectsV2Response result = m_s3Client.listObjects(req);
-
-            continuationToken = result.nextContinuationToken();
-            for (S3Object obj : result.contents()) {
-                m_s3Client.deleteObject(scratchDir.getBucketName(), obj.key());
-            }
-        } while (continuationToken != null);
+        final var errors = m_s3Client.deleteObjectsWithPrefix(scratchDir.getBucketName(), scratchDir.getBlobName());
+        if (!errors.isEmpty()) {
+            final var error = errors.get(0);
+            throw new IOException(String.format("Could not delete %d objects of %s (%s: %s)", errors.size(),
+                scratchDir, error.key(), error.message()));
+        }
     }
 }
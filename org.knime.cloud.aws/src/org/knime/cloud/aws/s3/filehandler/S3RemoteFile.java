@@ -50,6 +50,7 @@
 
 import java.io.BufferedInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
@@ -57,6 +58,7 @@
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -76,12 +78,15 @@
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
 import software.amazon.awssdk.services.s3.model.DeleteBucketRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
@@ -293,9 +298,7 @@ protected long getLastModified() throws Exception {
     @Override
 	protected boolean deleteContainer() throws Exception {
 		try {
-    	    for (final CloudRemoteFile<S3Connection> file : listFiles()) {
-    			((S3RemoteFile) file).delete();
-    		}
+		    deleteObjectsWithPrefix(null);
     		getClient().deleteBucket(DeleteBucketRequest.builder().bucket(getContainerName()).build());
     		return true;
 		} catch (S3Exception amazonException) {
@@ -309,15 +312,43 @@ protected boolean deleteContainer() throws Exception {
 	@Override
 	protected boolean deleteDirectory() throws Exception {
 		try {
-    	    for (final CloudRemoteFile<S3Connection> file : listFiles()) {
-    			((S3RemoteFile) file).delete();
-    		}
-    		return deleteBlob();
+		    // the directory object itself has the prefix as key and is deleted as well
+		    deleteObjectsWithPrefix(StringUtils.appendIfMissing(getBlobName(), DELIMITER));
+		    return true;
 		} catch (S3Exception amazonException) {
 		    throw new KnimeS3Exception(amazonException);
 		}
 	}
 
+	/**
+	 * Deletes all objects whose key starts with the given prefix, with one DeleteObjects request (of up to 1000 keys)
+	 * per listed page instead of one request per object.
+	 *
+	 * @param prefix the key prefix, or <code>null</code> for all objects of the bucket
+	 */
+	@SuppressWarnings("resource")
+	private void deleteObjectsWithPrefix(final String prefix) throws Exception {
+	    final String bucketName = getContainerName();
+	    var request = ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+	    ListObjectsV2Response result;
+	    do {
+	        result = getClient().listObjectsV2(request);
+	        final List<ObjectIdentifier> objects = result.contents().stream()
+	                .map(o -> ObjectIdentifier.builder().key(o.key()).build())
+	                .collect(Collectors.toList());
+	        if (!objects.isEmpty()) {
+	            final var response = getClient().deleteObjects(DeleteObjectsRequest.builder().bucket(bucketName)
+	                    .delete(d -> d.objects(objects).quiet(true)).build());
+	            if (!response.errors().isEmpty()) {
+	                final S3Error error = response.errors().get(0);
+	                throw new IOException(String.format("Could not delete %d objects in %s (%s: %s)",
+	                        response.errors().size(), bucketName, error.key(), error.message()));
+	            }
+	        }
+	        request = request.toBuilder().continuationToken(result.nextContinuationToken()).build();
+	    } while (result.isTruncated());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */